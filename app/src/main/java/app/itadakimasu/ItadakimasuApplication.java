@@ -0,0 +1,20 @@
+package app.itadakimasu;
+
+import android.app.Application;
+
+import app.itadakimasu.data.local.LocalDataSource;
+import app.itadakimasu.utils.imageProcessing.ImageProcessingService;
+
+/**
+ * App's application class, opens the local database and creates the image processing service
+ * before any screen is shown.
+ */
+public class ItadakimasuApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        LocalDataSource.init(this);
+        ImageProcessingService.init(this);
+    }
+}
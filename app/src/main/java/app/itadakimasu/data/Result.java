@@ -20,17 +20,36 @@ public abstract class Result<T> {
         return "";
     }
 
+    /**
+     * @return true if the data has been read from the local database and the data source's answer
+     * may still come; false if not.
+     */
+    public boolean isFromCache() {
+        return false;
+    }
+
     // Success sub-class
     public final static class Success<T> extends Result {
         private final T data;
+        private final boolean fromCache;
 
         public Success(T data) {
+            this(data, false);
+        }
+
+        public Success(T data, boolean fromCache) {
             this.data = data;
+            this.fromCache = fromCache;
         }
 
         public T getData() {
             return this.data;
         }
+
+        @Override
+        public boolean isFromCache() {
+            return this.fromCache;
+        }
     }
 
     // Error sub-class
@@ -0,0 +1,41 @@
+package app.itadakimasu.data.local;
+
+import android.content.Context;
+
+import androidx.room.Database;
+import androidx.room.Room;
+import androidx.room.RoomDatabase;
+
+/**
+ * App's local database, a mirror of the recipes and favourites obtained from firebase so the
+ * screens can show them before firebase answers.
+ */
+@Database(entities = {RecipeEntity.class, IngredientEntity.class, StepEntity.class, FavouriteEntity.class},
+        version = 6, exportSchema = false)
+public abstract class AppDatabase extends RoomDatabase {
+    private static final String DATABASE_NAME = "itadakimasu_local.db";
+    // Database's singleton
+    private static volatile AppDatabase INSTANCE;
+
+    public abstract RecipeDao recipeDao();
+
+    public abstract FavouriteDao favouriteDao();
+
+    /**
+     * @param context - app's context required to create the database.
+     * @return the database's singleton.
+     */
+    public static AppDatabase getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (AppDatabase.class) {
+                if (INSTANCE == null) {
+                    // The data is a copy of firebase's one, so it can be rebuilt if the schema changes.
+                    INSTANCE = Room.databaseBuilder(context.getApplicationContext(), AppDatabase.class, DATABASE_NAME)
+                            .fallbackToDestructiveMigration()
+                            .build();
+                }
+            }
+        }
+        return INSTANCE;
+    }
+}
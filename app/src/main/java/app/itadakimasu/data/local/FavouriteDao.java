@@ -0,0 +1,45 @@
+package app.itadakimasu.data.local;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import java.util.List;
+
+/**
+ * Access to the local copies of the favourites entries.
+ */
+@Dao
+public abstract class FavouriteDao {
+
+    @Query("SELECT * FROM favourites WHERE username = :username ORDER BY additionDate DESC, id DESC LIMIT :limit")
+    public abstract List<FavouriteEntity> getNewestFavourites(String username, int limit);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    public abstract void insertFavourites(List<FavouriteEntity> favourites);
+
+    @Query("DELETE FROM favourites WHERE username = :username AND additionDate >= :since AND id NOT IN (:keptIds)")
+    public abstract void deleteFavouritesSinceExcept(String username, long since, List<String> keptIds);
+
+    @Query("DELETE FROM favourites WHERE id = :favouriteId")
+    public abstract void deleteFavourite(String favouriteId);
+
+    @Query("DELETE FROM favourites WHERE recipeId = :recipeId")
+    public abstract void deleteFavouritesWithRecipe(String recipeId);
+
+    /**
+     * Replaces the stored entries of the user from the window that goes from the oldest given entry
+     * to the newest one, so the entries removed on firebase are removed as well.
+     * @param username - the user who added the entries.
+     * @param favourites - the entries obtained from firebase.
+     * @param since - the addition date where the window starts.
+     * @param keptIds - the ids of the given entries.
+     */
+    @Transaction
+    public void replaceNewestFavourites(String username, List<FavouriteEntity> favourites, long since, List<String> keptIds) {
+        deleteFavouritesSinceExcept(username, since, keptIds);
+        insertFavourites(favourites);
+    }
+}
@@ -0,0 +1,67 @@
+package app.itadakimasu.data.local;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import java.util.Date;
+
+import app.itadakimasu.data.model.Favourite;
+
+/**
+ * Local copy of a favourite entry.
+ */
+@Entity(tableName = "favourites", indices = {@Index("username"), @Index("recipeId")})
+public class FavouriteEntity {
+    @PrimaryKey
+    @NonNull
+    private final String id;
+    private final String username;
+    private final String recipeId;
+    // Addition date in milliseconds, used to sort the entries like firebase does.
+    private final long additionDate;
+
+    public FavouriteEntity(@NonNull String id, String username, String recipeId, long additionDate) {
+        this.id = id;
+        this.username = username;
+        this.recipeId = recipeId;
+        this.additionDate = additionDate;
+    }
+
+    /**
+     * @param favourite - the favourite entry obtained from firebase. If it has no date yet, the
+     *                  current time is used until firebase assigns it.
+     * @return the entity with the entry's data.
+     */
+    public static FavouriteEntity fromFavourite(Favourite favourite) {
+        long additionDate = favourite.getAdditionDate() != null ? favourite.getAdditionDate().getTime() : System.currentTimeMillis();
+        return new FavouriteEntity(favourite.getId(), favourite.getUsername(), favourite.getRecipeId(), additionDate);
+    }
+
+    /**
+     * @return the favourite model with the stored data.
+     */
+    public Favourite toFavourite() {
+        Favourite favourite = new Favourite(id, username, recipeId);
+        favourite.setAdditionDate(new Date(additionDate));
+        return favourite;
+    }
+
+    @NonNull
+    public String getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getRecipeId() {
+        return recipeId;
+    }
+
+    public long getAdditionDate() {
+        return additionDate;
+    }
+}
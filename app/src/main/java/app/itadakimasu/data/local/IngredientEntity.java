@@ -0,0 +1,52 @@
+package app.itadakimasu.data.local;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+
+import app.itadakimasu.data.model.Ingredient;
+
+/**
+ * Local copy of a recipe's ingredient.
+ */
+@Entity(tableName = "ingredients", primaryKeys = {"recipeId", "ingredientPosition"})
+public class IngredientEntity {
+    @NonNull
+    private final String recipeId;
+    private final int ingredientPosition;
+    private final String ingredientDescription;
+
+    public IngredientEntity(@NonNull String recipeId, int ingredientPosition, String ingredientDescription) {
+        this.recipeId = recipeId;
+        this.ingredientPosition = ingredientPosition;
+        this.ingredientDescription = ingredientDescription;
+    }
+
+    /**
+     * @param recipeId - the recipe that contains the ingredient.
+     * @param ingredient - the ingredient obtained from firebase.
+     * @return the entity with the ingredient's data.
+     */
+    public static IngredientEntity fromIngredient(String recipeId, Ingredient ingredient) {
+        return new IngredientEntity(recipeId, ingredient.getIngredientPosition(), ingredient.getIngredientDescription());
+    }
+
+    /**
+     * @return the ingredient model with the stored data.
+     */
+    public Ingredient toIngredient() {
+        return new Ingredient(ingredientPosition, ingredientDescription);
+    }
+
+    @NonNull
+    public String getRecipeId() {
+        return recipeId;
+    }
+
+    public int getIngredientPosition() {
+        return ingredientPosition;
+    }
+
+    public String getIngredientDescription() {
+        return ingredientDescription;
+    }
+}
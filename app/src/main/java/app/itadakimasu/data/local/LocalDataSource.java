@@ -0,0 +1,313 @@
+package app.itadakimasu.data.local;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import app.itadakimasu.data.model.Favourite;
+import app.itadakimasu.data.model.Ingredient;
+import app.itadakimasu.data.model.Recipe;
+import app.itadakimasu.data.model.RecipeContent;
+import app.itadakimasu.data.model.Step;
+
+/**
+ * Data source of the app's local database. Every read and write is done on a single background
+ * thread, so they are applied in the same order they are requested, and the reads are delivered
+ * on the main thread.
+ */
+public class LocalDataSource {
+    private static final String TAG = "LocalDataSource";
+    // Data source's singleton
+    private static volatile LocalDataSource INSTANCE;
+    private final RecipeDao recipeDao;
+    private final FavouriteDao favouriteDao;
+    private final ExecutorService databaseExecutor;
+    private final Handler mainHandler;
+
+    /**
+     * Callback that receives the data read from the database on the main thread.
+     * @param <T> - the type of the data.
+     */
+    public interface OnLoadedListener<T> {
+        void onLoaded(T data);
+    }
+
+    /**
+     * Creates the singleton, it should be called when the app is created.
+     * @param context - app's context required to open the database.
+     */
+    public static void init(Context context) {
+        if (INSTANCE == null) {
+            synchronized (LocalDataSource.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new LocalDataSource(AppDatabase.getInstance(context));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the data source's singleton.
+     */
+    public static LocalDataSource getInstance() {
+        if (INSTANCE == null) {
+            throw new IllegalStateException("LocalDataSource.init must be called when the app is created");
+        }
+        return INSTANCE;
+    }
+
+    private LocalDataSource(AppDatabase database) {
+        this.recipeDao = database.recipeDao();
+        this.favouriteDao = database.favouriteDao();
+        this.databaseExecutor = Executors.newSingleThreadExecutor();
+        this.mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * @param limit - maximum quantity of recipes.
+     * @param listener - receives the newest stored recipes.
+     */
+    public void loadNewestRecipes(int limit, OnLoadedListener<List<Recipe>> listener) {
+        read(() -> toRecipes(recipeDao.getNewestRecipes(limit)), listener);
+    }
+
+    /**
+     * @param author - the recipes' author.
+     * @param limit - maximum quantity of recipes.
+     * @param listener - receives the newest stored recipes of the author.
+     */
+    public void loadNewestRecipesByAuthor(String author, int limit, OnLoadedListener<List<Recipe>> listener) {
+        read(() -> toRecipes(recipeDao.getNewestRecipesByAuthor(author, limit)), listener);
+    }
+
+    /**
+     * @param recipeIds - the recipes' ids.
+     * @param listener - receives the stored recipes in the same order as the ids, the ones that
+     *                 are not stored are skipped.
+     */
+    public void loadRecipesByIds(List<String> recipeIds, OnLoadedListener<List<Recipe>> listener) {
+        read(() -> {
+            Map<String, Recipe> recipesById = new HashMap<>();
+            for (RecipeEntity entity : recipeDao.getRecipesByIds(recipeIds)) {
+                recipesById.put(entity.getId(), entity.toRecipe());
+            }
+            List<Recipe> recipes = new ArrayList<>();
+            for (String recipeId : recipeIds) {
+                Recipe recipe = recipesById.get(recipeId);
+                if (recipe != null) {
+                    recipes.add(recipe);
+                }
+            }
+            return recipes;
+        }, listener);
+    }
+
+    /**
+     * @param recipeId - the recipe's id.
+     * @param listener - receives the stored content, null if the recipe's content is not stored.
+     */
+    public void loadRecipeContent(String recipeId, OnLoadedListener<RecipeContent> listener) {
+        read(() -> {
+            List<Ingredient> ingredients = new ArrayList<>();
+            for (IngredientEntity entity : recipeDao.getIngredients(recipeId)) {
+                ingredients.add(entity.toIngredient());
+            }
+            List<Step> steps = new ArrayList<>();
+            for (StepEntity entity : recipeDao.getSteps(recipeId)) {
+                steps.add(entity.toStep());
+            }
+            return ingredients.isEmpty() && steps.isEmpty() ? null : new RecipeContent(ingredients, steps);
+        }, listener);
+    }
+
+    /**
+     * @param username - the user who added the entries.
+     * @param limit - maximum quantity of entries.
+     * @param listener - receives the newest stored entries of the user.
+     */
+    public void loadNewestFavourites(String username, int limit, OnLoadedListener<List<Favourite>> listener) {
+        read(() -> {
+            List<Favourite> favourites = new ArrayList<>();
+            for (FavouriteEntity entity : favouriteDao.getNewestFavourites(username, limit)) {
+                favourites.add(entity.toFavourite());
+            }
+            return favourites;
+        }, listener);
+    }
+
+    /**
+     * Stores the first page of the newest recipes, removing the stored ones that are not on firebase
+     * anymore.
+     * @param recipes - the newest recipes obtained from firebase.
+     * @param limit - the page's size, if there are less recipes, the page contains every recipe.
+     */
+    public void saveNewestRecipes(List<Recipe> recipes, int limit) {
+        List<RecipeEntity> entities = toRecipeEntities(recipes);
+        long since = getWindowStart(recipes, limit);
+        List<String> ids = getIds(recipes);
+        write(() -> recipeDao.replaceNewestRecipes(entities, since, ids));
+    }
+
+    /**
+     * Stores the first page of the author's newest recipes, removing the stored ones that are not on
+     * firebase anymore.
+     * @param author - the recipes' author.
+     * @param recipes - the newest recipes obtained from firebase.
+     * @param limit - the page's size, if there are less recipes, the page contains every recipe.
+     */
+    public void saveNewestRecipesByAuthor(String author, List<Recipe> recipes, int limit) {
+        List<RecipeEntity> entities = toRecipeEntities(recipes);
+        long since = getWindowStart(recipes, limit);
+        List<String> ids = getIds(recipes);
+        write(() -> recipeDao.replaceNewestRecipesByAuthor(author, entities, since, ids));
+    }
+
+    /**
+     * @param recipes - recipes obtained from firebase that will be stored or updated.
+     */
+    public void saveRecipes(List<Recipe> recipes) {
+        List<RecipeEntity> entities = toRecipeEntities(recipes);
+        write(() -> recipeDao.insertRecipes(entities));
+    }
+
+    /**
+     * @param recipeId - the recipe's id.
+     * @param content - the recipe's content obtained from firebase.
+     */
+    public void saveRecipeContent(String recipeId, RecipeContent content) {
+        List<IngredientEntity> ingredients = new ArrayList<>();
+        for (Ingredient ingredient : content.getIngredients()) {
+            ingredients.add(IngredientEntity.fromIngredient(recipeId, ingredient));
+        }
+        List<StepEntity> steps = new ArrayList<>();
+        for (Step step : content.getSteps()) {
+            steps.add(StepEntity.fromStep(recipeId, step));
+        }
+        write(() -> recipeDao.replaceRecipeContent(recipeId, ingredients, steps));
+    }
+
+    /**
+     * Stores the first page of the user's newest favourites entries, removing the stored ones that
+     * are not on firebase anymore.
+     * @param username - the user who added the entries.
+     * @param favourites - the entries obtained from firebase.
+     * @param limit - the page's size, if there are less entries, the page contains every entry.
+     */
+    public void saveNewestFavourites(String username, List<Favourite> favourites, int limit) {
+        List<FavouriteEntity> entities = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        for (Favourite favourite : favourites) {
+            entities.add(FavouriteEntity.fromFavourite(favourite));
+            ids.add(favourite.getId());
+        }
+        long since = favourites.size() < limit || favourites.isEmpty() ? 0
+                : entities.get(entities.size() - 1).getAdditionDate();
+        write(() -> favouriteDao.replaceNewestFavourites(username, entities, since, ids));
+    }
+
+    /**
+     * @param favourite - the entry that has been added.
+     */
+    public void saveFavourite(Favourite favourite) {
+        List<FavouriteEntity> entities = new ArrayList<>();
+        entities.add(FavouriteEntity.fromFavourite(favourite));
+        write(() -> favouriteDao.insertFavourites(entities));
+    }
+
+    /**
+     * @param favouriteId - the id of the entry that has been removed.
+     */
+    public void deleteFavourite(String favouriteId) {
+        write(() -> favouriteDao.deleteFavourite(favouriteId));
+    }
+
+    /**
+     * Removes a recipe, its content and the favourites entries that point to it.
+     * @param recipeId - the recipe's id.
+     */
+    public void deleteRecipe(String recipeId) {
+        write(() -> {
+            recipeDao.deleteRecipeWithContent(recipeId);
+            favouriteDao.deleteFavouritesWithRecipe(recipeId);
+        });
+    }
+
+    /**
+     * Runs a read on the database's thread and delivers its result on the main thread.
+     */
+    private <T> void read(DatabaseRead<T> databaseRead, OnLoadedListener<T> listener) {
+        databaseExecutor.execute(() -> {
+            try {
+                T data = databaseRead.read();
+                mainHandler.post(() -> listener.onLoaded(data));
+            } catch (RuntimeException exception) {
+                // A failed read just means that there is no local data to show.
+                Log.e(TAG, "read: error reading local database", exception);
+            }
+        });
+    }
+
+    /**
+     * Runs a write on the database's thread.
+     */
+    private void write(Runnable databaseWrite) {
+        databaseExecutor.execute(() -> {
+            try {
+                databaseWrite.run();
+            } catch (RuntimeException exception) {
+                Log.e(TAG, "write: error writing local database", exception);
+            }
+        });
+    }
+
+    /**
+     * The window of a first page starts on its oldest recipe, or at the beginning if the page
+     * isn't full, because then it contains every recipe.
+     */
+    private long getWindowStart(List<Recipe> recipes, int limit) {
+        if (recipes.size() < limit || recipes.isEmpty()) {
+            return 0;
+        }
+        Recipe oldestRecipe = recipes.get(recipes.size() - 1);
+        return oldestRecipe.getCreationDate() != null ? oldestRecipe.getCreationDate().getTime() : 0;
+    }
+
+    private List<String> getIds(List<Recipe> recipes) {
+        List<String> ids = new ArrayList<>();
+        for (Recipe recipe : recipes) {
+            ids.add(recipe.getId());
+        }
+        return ids;
+    }
+
+    private List<RecipeEntity> toRecipeEntities(List<Recipe> recipes) {
+        List<RecipeEntity> entities = new ArrayList<>();
+        for (Recipe recipe : recipes) {
+            entities.add(RecipeEntity.fromRecipe(recipe));
+        }
+        return entities;
+    }
+
+    private List<Recipe> toRecipes(List<RecipeEntity> entities) {
+        List<Recipe> recipes = new ArrayList<>();
+        for (RecipeEntity entity : entities) {
+            recipes.add(entity.toRecipe());
+        }
+        return recipes;
+    }
+
+    /**
+     * Read operation done on the database's thread.
+     */
+    private interface DatabaseRead<T> {
+        T read();
+    }
+}
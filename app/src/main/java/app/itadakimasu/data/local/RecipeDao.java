@@ -0,0 +1,106 @@
+package app.itadakimasu.data.local;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import java.util.List;
+
+/**
+ * Access to the local copies of the recipes, their ingredients and steps.
+ */
+@Dao
+public abstract class RecipeDao {
+
+    @Query("SELECT * FROM recipes ORDER BY creationDate DESC, id DESC LIMIT :limit")
+    public abstract List<RecipeEntity> getNewestRecipes(int limit);
+
+    @Query("SELECT * FROM recipes WHERE author = :author ORDER BY creationDate DESC, id DESC LIMIT :limit")
+    public abstract List<RecipeEntity> getNewestRecipesByAuthor(String author, int limit);
+
+    @Query("SELECT * FROM recipes WHERE id IN (:recipeIds)")
+    public abstract List<RecipeEntity> getRecipesByIds(List<String> recipeIds);
+
+    @Query("SELECT * FROM ingredients WHERE recipeId = :recipeId ORDER BY ingredientPosition")
+    public abstract List<IngredientEntity> getIngredients(String recipeId);
+
+    @Query("SELECT * FROM steps WHERE recipeId = :recipeId ORDER BY stepPosition")
+    public abstract List<StepEntity> getSteps(String recipeId);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    public abstract void insertRecipes(List<RecipeEntity> recipes);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    public abstract void insertIngredients(List<IngredientEntity> ingredients);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    public abstract void insertSteps(List<StepEntity> steps);
+
+    @Query("DELETE FROM recipes WHERE creationDate >= :since AND id NOT IN (:keptIds)")
+    public abstract void deleteRecipesSinceExcept(long since, List<String> keptIds);
+
+    @Query("DELETE FROM recipes WHERE author = :author AND creationDate >= :since AND id NOT IN (:keptIds)")
+    public abstract void deleteRecipesByAuthorSinceExcept(String author, long since, List<String> keptIds);
+
+    @Query("DELETE FROM recipes WHERE id = :recipeId")
+    public abstract void deleteRecipe(String recipeId);
+
+    @Query("DELETE FROM ingredients WHERE recipeId = :recipeId")
+    public abstract void deleteIngredients(String recipeId);
+
+    @Query("DELETE FROM steps WHERE recipeId = :recipeId")
+    public abstract void deleteSteps(String recipeId);
+
+    /**
+     * Replaces the stored recipes from the window that goes from the oldest given recipe to the
+     * newest one, so the recipes removed on firebase are removed as well.
+     * @param recipes - the recipes obtained from firebase.
+     * @param since - the creation date where the window starts.
+     * @param keptIds - the ids of the given recipes.
+     */
+    @Transaction
+    public void replaceNewestRecipes(List<RecipeEntity> recipes, long since, List<String> keptIds) {
+        deleteRecipesSinceExcept(since, keptIds);
+        insertRecipes(recipes);
+    }
+
+    /**
+     * Same as replaceNewestRecipes, only for the recipes of given author.
+     * @param author - the recipes' author.
+     * @param recipes - the recipes obtained from firebase.
+     * @param since - the creation date where the window starts.
+     * @param keptIds - the ids of the given recipes.
+     */
+    @Transaction
+    public void replaceNewestRecipesByAuthor(String author, List<RecipeEntity> recipes, long since, List<String> keptIds) {
+        deleteRecipesByAuthorSinceExcept(author, since, keptIds);
+        insertRecipes(recipes);
+    }
+
+    /**
+     * Replaces the ingredients and steps of a recipe.
+     * @param recipeId - the recipe's id.
+     * @param ingredients - the recipe's ingredients.
+     * @param steps - the recipe's steps.
+     */
+    @Transaction
+    public void replaceRecipeContent(String recipeId, List<IngredientEntity> ingredients, List<StepEntity> steps) {
+        deleteIngredients(recipeId);
+        deleteSteps(recipeId);
+        insertIngredients(ingredients);
+        insertSteps(steps);
+    }
+
+    /**
+     * Removes a recipe with its ingredients and steps.
+     * @param recipeId - the recipe's id.
+     */
+    @Transaction
+    public void deleteRecipeWithContent(String recipeId) {
+        deleteRecipe(recipeId);
+        deleteIngredients(recipeId);
+        deleteSteps(recipeId);
+    }
+}
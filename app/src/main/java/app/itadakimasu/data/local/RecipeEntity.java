@@ -0,0 +1,118 @@
+package app.itadakimasu.data.local;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import java.util.Date;
+
+import app.itadakimasu.data.model.Recipe;
+
+/**
+ * Local copy of a recipe preview, stored on the app's database to show it before firebase answers.
+ */
+@Entity(tableName = "recipes", indices = {@Index("creationDate"), @Index("author")})
+public class RecipeEntity {
+    @PrimaryKey
+    @NonNull
+    private final String id;
+    private final String author;
+    private final String photoAuthorUrl;
+    private final String photoAuthorVersion;
+    private final String title;
+    private final String description;
+    private final String photoUrl;
+    private final String photoVersion;
+    private final boolean photoVariantsUploaded;
+    private final String photoBlurHash;
+    // Creation date in milliseconds, used to sort the recipes like firebase does.
+    private final long creationDate;
+
+    public RecipeEntity(@NonNull String id, String author, String photoAuthorUrl, String photoAuthorVersion,
+                        String title, String description, String photoUrl, String photoVersion, boolean photoVariantsUploaded,
+                        String photoBlurHash, long creationDate) {
+        this.id = id;
+        this.author = author;
+        this.photoAuthorUrl = photoAuthorUrl;
+        this.photoAuthorVersion = photoAuthorVersion;
+        this.title = title;
+        this.description = description;
+        this.photoUrl = photoUrl;
+        this.photoVersion = photoVersion;
+        this.photoVariantsUploaded = photoVariantsUploaded;
+        this.photoBlurHash = photoBlurHash;
+        this.creationDate = creationDate;
+    }
+
+    /**
+     * @param recipe - the recipe obtained from firebase.
+     * @return the entity with the recipe's preview data.
+     */
+    public static RecipeEntity fromRecipe(Recipe recipe) {
+        long creationDate = recipe.getCreationDate() != null ? recipe.getCreationDate().getTime() : 0;
+        return new RecipeEntity(recipe.getId(), recipe.getAuthor(), recipe.getPhotoAuthorUrl(), recipe.getPhotoAuthorVersion(),
+                recipe.getTitle(), recipe.getDescription(), recipe.getPhotoUrl(), recipe.getPhotoVersion(),
+                recipe.isPhotoVariantsUploaded(), recipe.getPhotoBlurHash(), creationDate);
+    }
+
+    /**
+     * @return the recipe model with the stored data.
+     */
+    public Recipe toRecipe() {
+        Recipe recipe = new Recipe(author, photoAuthorUrl, title, description);
+        recipe.setId(id);
+        recipe.setPhotoUrl(photoUrl);
+        recipe.setPhotoVersion(photoVersion);
+        recipe.setPhotoVariantsUploaded(photoVariantsUploaded);
+        recipe.setPhotoBlurHash(photoBlurHash);
+        recipe.setPhotoAuthorVersion(photoAuthorVersion);
+        recipe.setCreationDate(new Date(creationDate));
+        return recipe;
+    }
+
+    @NonNull
+    public String getId() {
+        return id;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public String getPhotoAuthorUrl() {
+        return photoAuthorUrl;
+    }
+
+    public String getPhotoAuthorVersion() {
+        return photoAuthorVersion;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getPhotoUrl() {
+        return photoUrl;
+    }
+
+    public String getPhotoVersion() {
+        return photoVersion;
+    }
+
+    public boolean isPhotoVariantsUploaded() {
+        return photoVariantsUploaded;
+    }
+
+    public String getPhotoBlurHash() {
+        return photoBlurHash;
+    }
+
+    public long getCreationDate() {
+        return creationDate;
+    }
+}
@@ -0,0 +1,52 @@
+package app.itadakimasu.data.local;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+
+import app.itadakimasu.data.model.Step;
+
+/**
+ * Local copy of a recipe's step.
+ */
+@Entity(tableName = "steps", primaryKeys = {"recipeId", "stepPosition"})
+public class StepEntity {
+    @NonNull
+    private final String recipeId;
+    private final int stepPosition;
+    private final String stepDescription;
+
+    public StepEntity(@NonNull String recipeId, int stepPosition, String stepDescription) {
+        this.recipeId = recipeId;
+        this.stepPosition = stepPosition;
+        this.stepDescription = stepDescription;
+    }
+
+    /**
+     * @param recipeId - the recipe that contains the step.
+     * @param step - the step obtained from firebase.
+     * @return the entity with the step's data.
+     */
+    public static StepEntity fromStep(String recipeId, Step step) {
+        return new StepEntity(recipeId, step.getStepPosition(), step.getStepDescription());
+    }
+
+    /**
+     * @return the step model with the stored data.
+     */
+    public Step toStep() {
+        return new Step(stepPosition, stepDescription);
+    }
+
+    @NonNull
+    public String getRecipeId() {
+        return recipeId;
+    }
+
+    public int getStepPosition() {
+        return stepPosition;
+    }
+
+    public String getStepDescription() {
+        return stepDescription;
+    }
+}
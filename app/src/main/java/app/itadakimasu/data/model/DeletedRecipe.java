@@ -0,0 +1,45 @@
+package app.itadakimasu.data.model;
+
+import com.google.firebase.firestore.ServerTimestamp;
+
+import java.util.Date;
+
+/**
+ * Model class for the documents that record deleted recipes, so the clients that have the recipe
+ * on their lists can remove it without reading the whole list again.
+ */
+public class DeletedRecipe {
+    private String id;
+    // Auto assigned value by firebase when its uploaded to database.
+    @ServerTimestamp
+    private Date deletionDate;
+
+    /**
+     * @param id - the deleted recipe's id.
+     */
+    public DeletedRecipe(String id) {
+        this.id = id;
+    }
+
+    /**
+     * Default constructor that is required for firebase.
+     */
+    public DeletedRecipe() {
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Date getDeletionDate() {
+        return deletionDate;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public void setDeletionDate(Date deletionDate) {
+        this.deletionDate = deletionDate;
+    }
+}
@@ -0,0 +1,65 @@
+package app.itadakimasu.data.model;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * An image compressed to be uploaded, with the format and size it was encoded with, so they can be
+ * stored next to it and the image is served and decoded as what it is.
+ */
+public final class EncodedImage {
+    public static final String MIME_TYPE_JPEG = "image/jpeg";
+    public static final String MIME_TYPE_WEBP = "image/webp";
+
+    private final byte[] data;
+    private final String mimeType;
+    private final int quality;
+    private final int width;
+    private final int height;
+    @Nullable
+    private final String blurHash;
+
+    /**
+     * @param data - the bytes of the encoded image.
+     * @param mimeType - the format that the image is encoded with.
+     * @param quality - the quality from 0 to 100 that the image is encoded with.
+     * @param width - the width of the image in pixels.
+     * @param height - the height of the image in pixels.
+     * @param blurHash - the blurhash of the image, shown while it loads.
+     */
+    public EncodedImage(@NonNull byte[] data, @NonNull String mimeType, int quality, int width, int height, @Nullable String blurHash) {
+        this.data = data;
+        this.mimeType = mimeType;
+        this.quality = quality;
+        this.width = width;
+        this.height = height;
+        this.blurHash = blurHash;
+    }
+
+    @NonNull
+    public byte[] getData() {
+        return data;
+    }
+
+    @NonNull
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    public int getQuality() {
+        return quality;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    @Nullable
+    public String getBlurHash() {
+        return blurHash;
+    }
+}
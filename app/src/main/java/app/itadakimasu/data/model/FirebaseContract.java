@@ -8,17 +8,24 @@ public class FirebaseContract {
         public static final String COLLECTION_NAME = "users";
         public static final String USERNAME = "username";
         public static final String PHOTO = "photoUrl";
+        public static final String PHOTO_VERSION = "photoVersion";
+        public static final String PHOTO_BLUR_HASH = "photoBlurHash";
     }
 
     public static class RecipeEntry {
         public static final String COLLECTION_NAME = "recipes";
         public static final String AUTHOR = "author";
         public static final String AUTHOR_PHOTO = "photoAuthorUrl";
+        public static final String AUTHOR_PHOTO_VERSION = "photoAuthorVersion";
         public static final String ID = "id";
         public static final String TITLE = "title";
         public static final String DESCRIPTION = "description";
         public static final String PHOTO = "photoUrl";
+        public static final String PHOTO_VERSION = "photoVersion";
+        public static final String PHOTO_VARIANTS_UPLOADED = "photoVariantsUploaded";
+        public static final String PHOTO_BLUR_HASH = "photoBlurHash";
         public static final String CREATION_DATE = "creationDate";
+        public static final String MODIFICATION_DATE = "modificationDate";
 
         public static class IngredientEntry {
             public static final String COLLECTION_NAME = "ingredients";
@@ -32,7 +39,19 @@ public class FirebaseContract {
             public static final String DESCRIPTION = "stepDescription";
         }
 
+        public static class ContentEntry {
+            public static final String COLLECTION_NAME = "content";
+            public static final String AGGREGATE_ID = "aggregate";
+            public static final String INGREDIENTS = "ingredients";
+            public static final String STEPS = "steps";
+        }
+
+    }
 
+    public static class DeletedRecipeEntry {
+        public static final String COLLECTION_NAME = "deletedRecipes";
+        public static final String ID = "id";
+        public static final String DELETION_DATE = "deletionDate";
     }
 
     public static class FavouritesEntry {
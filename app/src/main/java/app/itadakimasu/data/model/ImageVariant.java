@@ -0,0 +1,47 @@
+package app.itadakimasu.data.model;
+
+/**
+ * Sizes in which a recipe's image is uploaded, so every view downloads the one that fits it.
+ * The full size is stored on the recipe's photo url, the other variants next to it with a suffix.
+ */
+public enum ImageVariant {
+    // Used on the lists' rows.
+    THUMBNAIL("_thumb", 480, 252, 30 * 1024),
+    // Used on the recipe's details.
+    HERO("_hero", 1080, 566, 120 * 1024),
+    // The image as uploaded, used when editing the recipe.
+    FULL("", 1920, 1006, 300 * 1024);
+
+    private final String suffix;
+    private final int maxWidth;
+    private final int maxHeight;
+    // Bytes that the encoded image should fit in.
+    private final int maxBytes;
+
+    ImageVariant(String suffix, int maxWidth, int maxHeight, int maxBytes) {
+        this.suffix = suffix;
+        this.maxWidth = maxWidth;
+        this.maxHeight = maxHeight;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @param photoUrl - the recipe's photo url, where the full size image is stored.
+     * @return the path where this variant of the image is stored.
+     */
+    public String getPath(String photoUrl) {
+        return photoUrl + suffix;
+    }
+
+    public int getMaxWidth() {
+        return maxWidth;
+    }
+
+    public int getMaxHeight() {
+        return maxHeight;
+    }
+
+    public int getMaxBytes() {
+        return maxBytes;
+    }
+}
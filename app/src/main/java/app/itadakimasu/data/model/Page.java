@@ -0,0 +1,65 @@
+package app.itadakimasu.data.model;
+
+import androidx.annotation.Nullable;
+
+import com.google.firebase.Timestamp;
+
+import java.util.List;
+
+/**
+ * A page of documents and the cursor where the next page starts.
+ * @param <T> - the type of the documents.
+ */
+public class Page<T> {
+    private final List<T> items;
+    private final PageCursor nextCursor;
+    private final Timestamp newestChange;
+
+    /**
+     * @param items - the documents of the page.
+     * @param nextCursor - the cursor of the last document, null if the page is empty.
+     */
+    public Page(List<T> items, @Nullable PageCursor nextCursor) {
+        this(items, nextCursor, null);
+    }
+
+    /**
+     * @param items - the documents of the page.
+     * @param nextCursor - the cursor of the last document, null if the page is empty.
+     * @param newestChange - the newest change of the documents, with the precision stored by firebase.
+     */
+    public Page(List<T> items, @Nullable PageCursor nextCursor, @Nullable Timestamp newestChange) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.newestChange = newestChange;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    @Nullable
+    public PageCursor getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * @return the newest change of the documents, null if the page was read from the local
+     * database, which only keeps milliseconds, or it's empty.
+     */
+    @Nullable
+    public Timestamp getNewestChange() {
+        return newestChange;
+    }
+
+    /**
+     * @return the quantity of documents of the page.
+     */
+    public int size() {
+        return items.size();
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+}
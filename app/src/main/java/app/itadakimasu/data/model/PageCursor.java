@@ -0,0 +1,82 @@
+package app.itadakimasu.data.model;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * Position of the last document of a page, used to obtain the next page.
+ * Documents are ordered by a date and by their document id, so documents that share the same date
+ * keep a stable order and are never skipped or repeated between pages.
+ */
+public final class PageCursor {
+    private static final String SEPARATOR = ":";
+
+    private final Timestamp timestamp;
+    private final String documentId;
+
+    /**
+     * @param timestamp - the date of the last document, with the precision stored by firebase.
+     * @param documentId - the id of the last document.
+     */
+    public PageCursor(@NonNull Timestamp timestamp, @NonNull String documentId) {
+        this.timestamp = timestamp;
+        this.documentId = documentId;
+    }
+
+    /**
+     * Creates the cursor of a document obtained from firebase.
+     * @param snapshot - the last document of the page.
+     * @param dateField - the date field that orders the documents.
+     * @return the cursor, or null if the document doesn't have the date.
+     */
+    @Nullable
+    public static PageCursor fromSnapshot(DocumentSnapshot snapshot, String dateField) {
+        // Documents that are still being written have an estimated server timestamp.
+        Timestamp timestamp = snapshot.getTimestamp(dateField, DocumentSnapshot.ServerTimestampBehavior.ESTIMATE);
+        return timestamp != null ? new PageCursor(timestamp, snapshot.getId()) : null;
+    }
+
+    /**
+     * Creates the cursor of a document stored on the local database, which only keeps milliseconds.
+     * @param date - the date of the last document.
+     * @param documentId - the id of the last document.
+     * @return the cursor, or null if any value is missing.
+     */
+    @Nullable
+    public static PageCursor fromDate(Date date, String documentId) {
+        return date != null && documentId != null ? new PageCursor(new Timestamp(date), documentId) : null;
+    }
+
+    public Timestamp getTimestamp() {
+        return timestamp;
+    }
+
+    public String getDocumentId() {
+        return documentId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PageCursor that = (PageCursor) o;
+        return timestamp.equals(that.timestamp) && documentId.equals(that.documentId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(timestamp, documentId);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return timestamp.getSeconds() + SEPARATOR + timestamp.getNanoseconds() + SEPARATOR + documentId;
+    }
+}
@@ -15,13 +15,24 @@ import java.util.Objects;
 public class Recipe implements Parcelable {
     private String author;
     private String photoAuthorUrl;
+    // Version of the author's photo, it changes every time the photo is replaced on its path.
+    private String photoAuthorVersion;
 
     private String id;
     private String title;
     private String description;
     private String photoUrl;
+    // Version of the recipe's photo, it changes every time the photo is replaced on its path.
+    private String photoVersion;
+    // True if the image was uploaded with its smaller variants next to it.
+    private boolean photoVariantsUploaded;
+    // Blurhash of the recipe's photo, shown while the photo loads.
+    private String photoBlurHash;
     @ServerTimestamp
     private Date creationDate;
+    // Assigned by firebase every time the recipe is written, used to find the recipes that changed.
+    @ServerTimestamp
+    private Date modificationDate;
     @Exclude
     private boolean isFavourite;
 
@@ -73,11 +84,40 @@ public class Recipe implements Parcelable {
         return photoUrl;
     }
 
+    public String getPhotoVersion() {
+        return photoVersion;
+    }
+
+    public boolean isPhotoVariantsUploaded() {
+        return photoVariantsUploaded;
+    }
+
+    public String getPhotoBlurHash() {
+        return photoBlurHash;
+    }
+
+    /**
+     * @param variant - the size of the image that fits the view.
+     * @return the path of the variant, or the full size image if the variants weren't uploaded.
+     */
+    @Exclude
+    public String getPhotoUrl(ImageVariant variant) {
+        return photoVariantsUploaded ? variant.getPath(photoUrl) : photoUrl;
+    }
+
+    public String getPhotoAuthorVersion() {
+        return photoAuthorVersion;
+    }
+
 
     public Date getCreationDate() {
         return creationDate;
     }
 
+    public Date getModificationDate() {
+        return modificationDate;
+    }
+
     @Exclude
     public Boolean isFavourite() {
         return isFavourite;
@@ -107,11 +147,31 @@ public class Recipe implements Parcelable {
         this.photoUrl = photoUrl;
     }
 
+    public void setPhotoVersion(String photoVersion) {
+        this.photoVersion = photoVersion;
+    }
+
+    public void setPhotoVariantsUploaded(boolean photoVariantsUploaded) {
+        this.photoVariantsUploaded = photoVariantsUploaded;
+    }
+
+    public void setPhotoBlurHash(String photoBlurHash) {
+        this.photoBlurHash = photoBlurHash;
+    }
+
+    public void setPhotoAuthorVersion(String photoAuthorVersion) {
+        this.photoAuthorVersion = photoAuthorVersion;
+    }
+
 
     public void setCreationDate(Date creationDate) {
         this.creationDate = creationDate;
     }
 
+    public void setModificationDate(Date modificationDate) {
+        this.modificationDate = modificationDate;
+    }
+
     @Exclude
     public void setFavourite(boolean favourite) {
         isFavourite = favourite;
@@ -149,6 +209,10 @@ public class Recipe implements Parcelable {
         dest.writeString(this.photoUrl);
         dest.writeParcelable((Parcelable)this.creationDate, flags);
         dest.writeByte(this.isFavourite ? (byte) 1 : (byte) 0);
+        dest.writeString(this.photoVersion);
+        dest.writeString(this.photoAuthorVersion);
+        dest.writeByte(this.photoVariantsUploaded ? (byte) 1 : (byte) 0);
+        dest.writeString(this.photoBlurHash);
     }
 
     public void readFromParcel(Parcel source) {
@@ -160,6 +224,10 @@ public class Recipe implements Parcelable {
         this.photoUrl = source.readString();
         this.creationDate = source.readParcelable(FieldValue.class.getClassLoader());
         this.isFavourite = source.readByte() != 0;
+        this.photoVersion = source.readString();
+        this.photoAuthorVersion = source.readString();
+        this.photoVariantsUploaded = source.readByte() != 0;
+        this.photoBlurHash = source.readString();
     }
 
     protected Recipe(Parcel in) {
@@ -171,6 +239,10 @@ public class Recipe implements Parcelable {
         this.photoUrl = in.readString();
         this.creationDate = in.readParcelable(FieldValue.class.getClassLoader());
         this.isFavourite = in.readByte() != 0;
+        this.photoVersion = in.readString();
+        this.photoAuthorVersion = in.readString();
+        this.photoVariantsUploaded = in.readByte() != 0;
+        this.photoBlurHash = in.readString();
     }
 
     public static final Creator<Recipe> CREATOR = new Creator<Recipe>() {
@@ -0,0 +1,55 @@
+package app.itadakimasu.data.model;
+
+import com.google.firebase.Timestamp;
+
+import java.util.List;
+
+/**
+ * Recipes created, edited or deleted since a moment, used to update a list without reading it again.
+ */
+public class RecipeChanges {
+    private final List<Recipe> modifiedRecipes;
+    private final List<String> deletedRecipeIds;
+    private final Timestamp syncedUntil;
+    private final boolean complete;
+
+    /**
+     * @param modifiedRecipes - the recipes created or edited, ordered by modification date.
+     * @param deletedRecipeIds - the ids of the deleted recipes.
+     * @param syncedUntil - the newest change received, the next changes are obtained after it.
+     * @param complete - false if there were more changes than the ones obtained.
+     */
+    public RecipeChanges(List<Recipe> modifiedRecipes, List<String> deletedRecipeIds, Timestamp syncedUntil, boolean complete) {
+        this.modifiedRecipes = modifiedRecipes;
+        this.deletedRecipeIds = deletedRecipeIds;
+        this.syncedUntil = syncedUntil;
+        this.complete = complete;
+    }
+
+    public List<Recipe> getModifiedRecipes() {
+        return modifiedRecipes;
+    }
+
+    public List<String> getDeletedRecipeIds() {
+        return deletedRecipeIds;
+    }
+
+    public Timestamp getSyncedUntil() {
+        return syncedUntil;
+    }
+
+    /**
+     * @return true if every change has been obtained; false if there were too many, and the list
+     * should be loaded again.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @return true if nothing changed.
+     */
+    public boolean isEmpty() {
+        return modifiedRecipes.isEmpty() && deletedRecipeIds.isEmpty();
+    }
+}
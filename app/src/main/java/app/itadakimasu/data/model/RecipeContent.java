@@ -0,0 +1,47 @@
+package app.itadakimasu.data.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Model class for the recipe's content document, an aggregate that stores the ordered ingredients
+ * and steps of a recipe, so they can be obtained with a single read.
+ */
+public class RecipeContent {
+    private List<Ingredient> ingredients;
+    private List<Step> steps;
+
+    /**
+     * Creates the content of a recipe with its lists.
+     * @param ingredients - the ingredients ordered by position.
+     * @param steps - the steps ordered by position.
+     */
+    public RecipeContent(List<Ingredient> ingredients, List<Step> steps) {
+        this.ingredients = ingredients;
+        this.steps = steps;
+    }
+
+    /**
+     * Default constructor that is required for firebase.
+     */
+    public RecipeContent() {
+        this.ingredients = new ArrayList<>();
+        this.steps = new ArrayList<>();
+    }
+
+    public List<Ingredient> getIngredients() {
+        return ingredients;
+    }
+
+    public List<Step> getSteps() {
+        return steps;
+    }
+
+    public void setIngredients(List<Ingredient> ingredients) {
+        this.ingredients = ingredients;
+    }
+
+    public void setSteps(List<Step> steps) {
+        this.steps = steps;
+    }
+}
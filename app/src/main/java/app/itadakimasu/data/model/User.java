@@ -10,6 +10,10 @@ public class User implements Parcelable {
     private String uuid;
     private String username;
     private String photoUrl;
+    // Version of the photo, it changes every time the photo is replaced on its path.
+    private String photoVersion;
+    // Blurhash of the photo, shown while the photo loads.
+    private String photoBlurHash;
 
     /**
      * Sets user's id, username and its photo url reference.
@@ -64,6 +68,22 @@ public class User implements Parcelable {
         this.photoUrl = photoUrl;
     }
 
+    public String getPhotoVersion() {
+        return photoVersion;
+    }
+
+    public void setPhotoVersion(String photoVersion) {
+        this.photoVersion = photoVersion;
+    }
+
+    public String getPhotoBlurHash() {
+        return photoBlurHash;
+    }
+
+    public void setPhotoBlurHash(String photoBlurHash) {
+        this.photoBlurHash = photoBlurHash;
+    }
+
     // Auto generated parcelable //
 
     @Override
@@ -76,18 +96,24 @@ public class User implements Parcelable {
         dest.writeString(this.uuid);
         dest.writeString(this.username);
         dest.writeString(this.photoUrl);
+        dest.writeString(this.photoVersion);
+        dest.writeString(this.photoBlurHash);
     }
 
     public void readFromParcel(Parcel source) {
         this.uuid = source.readString();
         this.username = source.readString();
         this.photoUrl = source.readString();
+        this.photoVersion = source.readString();
+        this.photoBlurHash = source.readString();
     }
 
     protected User(Parcel in) {
         this.uuid = in.readString();
         this.username = in.readString();
         this.photoUrl = in.readString();
+        this.photoVersion = in.readString();
+        this.photoBlurHash = in.readString();
     }
 
     public static final Creator<User> CREATOR = new Creator<>() {
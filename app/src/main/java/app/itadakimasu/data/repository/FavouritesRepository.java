@@ -1,21 +1,39 @@
 package app.itadakimasu.data.repository;
 
+import android.net.Uri;
 import android.util.Log;
 
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentChange;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.WriteBatch;
 
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import app.itadakimasu.data.Result;
+import app.itadakimasu.data.local.LocalDataSource;
 import app.itadakimasu.data.model.Favourite;
 import app.itadakimasu.data.model.FirebaseContract;
+import app.itadakimasu.data.model.Page;
+import app.itadakimasu.data.model.PageCursor;
 
 /**
  * Repository that creates, retrieves and delete favourites documents from firebase's database.
@@ -26,8 +44,21 @@ public class FavouritesRepository {
     private static volatile FavouritesRepository INSTANCE;
     // Limit of how many documents will be fetched for each query.
     public static int LIMIT_QUERY = 5;
+    // Maximum quantity of operations that firestore accepts on a write batch.
+    private static final int BATCH_LIMIT = 500;
     // Data source of firebase firestore database.
     private final FirebaseFirestore dbFirestore;
+    // Local copy of the favourites entries, shown while firestore answers.
+    private final LocalDataSource localDataSource;
+    // Favourites entries of the authenticated user, by document id, with the recipe's id they point to.
+    private final Map<String, String> favouriteEntries;
+    // Local index with the recipes' ids that the authenticated user has added to favourites.
+    private final Set<String> favouriteRecipeIds;
+    // Observable copy of the index, notified every time the index changes.
+    private final MutableLiveData<Set<String>> favouriteRecipeIdsState;
+    // Realtime listener that keeps the index updated and the user whose favourites are indexed.
+    private ListenerRegistration favouritesListener;
+    private String indexedUsername;
 
     /**
      * @return favourites repository singleton.
@@ -48,25 +79,132 @@ public class FavouritesRepository {
      */
     private FavouritesRepository() {
         this.dbFirestore = FirebaseFirestore.getInstance();
+        this.localDataSource = LocalDataSource.getInstance();
+        this.favouriteEntries = new HashMap<>();
+        this.favouriteRecipeIds = new HashSet<>();
+        this.favouriteRecipeIdsState = new MutableLiveData<>();
+    }
+
+    /**
+     * Starts the realtime listener that builds the local index of the user's favourite recipes.
+     * The first snapshot loads every entry, after that only the changed entries are applied.
+     * If the index is already listening for the same user, nothing is done.
+     * @param authUsername - the authenticated user's username.
+     */
+    public void startFavouritesIndex(String authUsername) {
+        if (authUsername == null || authUsername.isEmpty() || authUsername.equals(indexedUsername)) {
+            return;
+        }
+        stopFavouritesIndex();
+        Log.i(TAG, "startFavouritesIndex: listening to favourites entries");
+        indexedUsername = authUsername;
+
+        favouritesListener = dbFirestore.collection(FirebaseContract.FavouritesEntry.COLLECTION_NAME)
+                .whereEqualTo(FirebaseContract.FavouritesEntry.USERNAME, authUsername)
+                .addSnapshotListener((queryDocumentSnapshots, failure) -> {
+                    if (failure != null || queryDocumentSnapshots == null) {
+                        Log.e(TAG, "startFavouritesIndex: error listening to favourites entries", failure);
+                        return;
+                    }
+                    for (DocumentChange change : queryDocumentSnapshots.getDocumentChanges()) {
+                        String documentId = change.getDocument().getId();
+                        if (change.getType() == DocumentChange.Type.REMOVED) {
+                            favouriteEntries.remove(documentId);
+                        } else {
+                            favouriteEntries.put(documentId, change.getDocument().getString(FirebaseContract.FavouritesEntry.RECIPE_ID));
+                        }
+                    }
+                    // The set is rebuilt from the entries, so an entry that is moved to another
+                    // document doesn't remove the recipe from the index.
+                    favouriteRecipeIds.clear();
+                    favouriteRecipeIds.addAll(favouriteEntries.values());
+                    publishFavouriteRecipeIds();
+                });
+    }
+
+    /**
+     * Removes the realtime listener and clears the index, used when the user signs out.
+     */
+    public void stopFavouritesIndex() {
+        if (favouritesListener != null) {
+            favouritesListener.remove();
+            favouritesListener = null;
+        }
+        indexedUsername = null;
+        favouriteEntries.clear();
+        favouriteRecipeIds.clear();
+        favouriteRecipeIdsState.setValue(null);
+    }
+
+    /**
+     * @return observable set of the favourite recipes' ids, null until the index has been loaded.
+     */
+    public LiveData<Set<String>> getFavouriteRecipeIds() {
+        return favouriteRecipeIdsState;
+    }
+
+    /**
+     * Checks on the local index if a recipe is one of the authenticated user's favourites.
+     * @param recipeId - the recipe's id.
+     * @return true if the recipe is added to favourites; false if not or the index is not loaded yet.
+     */
+    public boolean isFavourite(String recipeId) {
+        return favouriteRecipeIds.contains(recipeId);
+    }
+
+    /**
+     * Favourites entries use a document id derived from the username and the recipe's id, so an
+     * entry can be written or deleted directly without querying it first.
+     * @param authUsername - the user who added the recipe to favourites.
+     * @param recipeId - the recipe's id.
+     * @return the favourite entry's document id.
+     */
+    public static String getFavouriteDocumentId(String authUsername, String recipeId) {
+        return Uri.encode(authUsername) + "_" + recipeId;
+    }
+
+    /**
+     * Notifies the observers with an immutable copy of the index.
+     */
+    private void publishFavouriteRecipeIds() {
+        favouriteRecipeIdsState.setValue(Collections.unmodifiableSet(new HashSet<>(favouriteRecipeIds)));
     }
 
     /**
      * Given the username who added a recipe to favourites, get their first newest documents, ordered
-     * by date.
+     * by date. With CACHE_THEN_SERVER, the entries stored on the local database are emitted first if
+     * firestore hasn't answered yet.
      * @param authUsername - the user who added the recipes as favourites.
-     * @return result success with the list of favourites entries; result error if it fails.
+     * @param policy - the source used to read the entries.
+     * @return result success with the page of favourites entries; result error if it fails.
      */
-    public LiveData<Result<?>> getNewestFavouritesByUser(String authUsername) {
+    public LiveData<Result<?>> getNewestFavouritesByUser(String authUsername, ReadPolicy policy) {
         MutableLiveData<Result<?>> result = new MutableLiveData<>();
         Log.i(TAG, "getNewestFavouritesByUser: obtaining newest favourites entries");
-        
-        dbFirestore.collection(FirebaseContract.FavouritesEntry.COLLECTION_NAME)
-                .whereEqualTo(FirebaseContract.FavouritesEntry.USERNAME, authUsername)
-                .orderBy(FirebaseContract.FavouritesEntry.ADDITION_DATE, Query.Direction.DESCENDING)
-                .limit(LIMIT_QUERY)
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> result.setValue(new Result.Success<List<Favourite>>(queryDocumentSnapshots.toObjects(Favourite.class))))
-                .addOnFailureListener(failure -> {
+        AtomicBoolean firestoreAnswered = new AtomicBoolean(false);
+        if (policy == ReadPolicy.CACHE_THEN_SERVER) {
+            localDataSource.loadNewestFavourites(authUsername, LIMIT_QUERY, cachedFavourites -> {
+                if (!cachedFavourites.isEmpty() && !firestoreAnswered.get()) {
+                    Favourite lastFavourite = cachedFavourites.get(cachedFavourites.size() - 1);
+                    PageCursor cursor = PageCursor.fromDate(lastFavourite.getAdditionDate(), lastFavourite.getId());
+                    result.setValue(new Result.Success<Page<Favourite>>(new Page<>(cachedFavourites, cursor), true));
+                }
+            });
+        }
+
+        Query query = orderedFavouritesByUser(authUsername)
+                .limit(LIMIT_QUERY);
+        policy.read(query::get, snapshot -> !snapshot.isEmpty(),
+                (queryDocumentSnapshots, fromCache) -> {
+                    firestoreAnswered.set(true);
+                    Page<Favourite> page = toFavouritePage(queryDocumentSnapshots);
+                    result.setValue(new Result.Success<Page<Favourite>>(page, fromCache));
+                    if (!fromCache) {
+                        localDataSource.saveNewestFavourites(authUsername, page.getItems(), LIMIT_QUERY);
+                    }
+                },
+                failure -> {
+                    firestoreAnswered.set(true);
                     result.setValue(new Result.Error(failure));
                     Log.e(TAG, "getNewestFavouritesByUser: error obtaining favourites entries.", failure);
                 });
@@ -75,24 +213,23 @@ public class FavouritesRepository {
     }
 
     /**
-     * Given the username who added a recipe to favourites and the last favourite entry addition date,
-     * get their next documents, paginating using the last favourite entry.
+     * Given the username who added a recipe to favourites and the cursor of the last page, get their
+     * next documents, paginating using the last favourite entry.
      * @param authUsername - the user who added the recipes as favourites.
-     * @param lastFavDate - the last favourite entry date from the list that the user actually has.
-     * @return result success with the list of favourites entries; result error if it fails.
+     * @param cursor - the cursor of the last page, it points to its last favourite entry.
+     * @param policy - the source used to read the entries.
+     * @return result success with the page of favourites entries; result error if it fails.
      */
-    public LiveData<Result<?>> getNextFavouritesByUser(String authUsername, Date lastFavDate) {
+    public LiveData<Result<?>> getNextFavouritesByUser(String authUsername, PageCursor cursor, ReadPolicy policy) {
         MutableLiveData<Result<?>> result = new MutableLiveData<>();
         Log.i(TAG, "getNextFavouritesByUser: obtaining next recipes");
-        
-        dbFirestore.collection(FirebaseContract.FavouritesEntry.COLLECTION_NAME)
-                .whereEqualTo(FirebaseContract.FavouritesEntry.USERNAME, authUsername)
-                .orderBy(FirebaseContract.FavouritesEntry.ADDITION_DATE, Query.Direction.DESCENDING)
-                .startAfter(lastFavDate)
-                .limit(LIMIT_QUERY)
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> result.setValue(new Result.Success<List<Favourite>>(queryDocumentSnapshots.toObjects(Favourite.class))))
-                .addOnFailureListener(failure -> {
+
+        Query query = orderedFavouritesByUser(authUsername)
+                .startAfter(cursor.getTimestamp(), cursor.getDocumentId())
+                .limit(LIMIT_QUERY);
+        policy.read(query::get, snapshot -> !snapshot.isEmpty(),
+                (queryDocumentSnapshots, fromCache) -> result.setValue(new Result.Success<Page<Favourite>>(toFavouritePage(queryDocumentSnapshots), fromCache)),
+                failure -> {
                     Log.e(TAG, "getNextFavouritesByUser: error obtaining next recipes", failure);
                     result.setValue(new Result.Error(failure));
                 });
@@ -104,7 +241,8 @@ public class FavouritesRepository {
     /**
      * Adds to the favourites collections an entry with the username who added it and the recipe's id
      * that it's marked as favourite.
-     * An id and the addition date will be assigned by a document reference and firebase.
+     * The document id is derived from the username and the recipe's id, so adding the same recipe
+     * twice writes the same document. The addition date will be assigned by firebase.
      *
      * @param authUsername - the user who added the recipe's to favourite.
      * @param recipeId - the recipe's id reference that was added to favourites.
@@ -112,31 +250,20 @@ public class FavouritesRepository {
      */
     public LiveData<Result<?>> addToFavourites(String authUsername, String recipeId) {
         MutableLiveData<Result<?>> result = new MutableLiveData<>();
-        
-        // Before being added to the favourites collection, it will check for a existent document
-        // with the same data, in case that there is a problem on the client side, so it won't be
-        // added twice.
-        dbFirestore.collection(FirebaseContract.FavouritesEntry.COLLECTION_NAME)
-                .whereEqualTo(FirebaseContract.FavouritesEntry.USERNAME, authUsername)
-                .whereEqualTo(FirebaseContract.FavouritesEntry.RECIPE_ID, recipeId)
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    // If there is no entry, then the document will be uploaded.
-                    Log.i(TAG, "addToFavourites: checking if favourite entry exists");
-                    if (queryDocumentSnapshots.isEmpty()) {
-                        Log.i(TAG, "addToFavourites: favourite entry doesn't exist, creating");
-                        DocumentReference documentReference = dbFirestore.collection(FirebaseContract.FavouritesEntry.COLLECTION_NAME).document();
-
-                        Favourite favourite = new Favourite(documentReference.getId(), authUsername, recipeId);
-
-                        documentReference.set(favourite)
-                                .addOnSuccessListener(success -> result.setValue(new Result.Success<Object>(null)))
-                                .addOnFailureListener(failure -> result.setValue(new Result.Error(failure)));
-                    } else {
-                        result.setValue(new Result.Success<Object>(null));
-                    }
+        Log.i(TAG, "addToFavourites: creating favourite entry");
+        String favouriteId = getFavouriteDocumentId(authUsername, recipeId);
+        Favourite favourite = new Favourite(favouriteId, authUsername, recipeId);
 
-                }).addOnFailureListener(failure -> result.setValue(new Result.Error(failure)));
+        dbFirestore.collection(FirebaseContract.FavouritesEntry.COLLECTION_NAME).document(favouriteId)
+                .set(favourite)
+                .addOnSuccessListener(success -> {
+                    localDataSource.saveFavourite(favourite);
+                    result.setValue(new Result.Success<Object>(null));
+                })
+                .addOnFailureListener(failure -> {
+                    Log.e(TAG, "addToFavourites: error creating favourite entry", failure);
+                    result.setValue(new Result.Error(failure));
+                });
 
         return result;
     }
@@ -150,32 +277,76 @@ public class FavouritesRepository {
      */
     public LiveData<Result<?>> removeFromFavourites(String authUsername, String recipeId) {
         MutableLiveData<Result<?>> result = new MutableLiveData<>();
-        Log.i(TAG, "removeFromFavourites: obtaining favourite entry to remove");
-        // First, for being able to deleted it's necessary to obtain the document reference with the id.
+        Log.i(TAG, "removeFromFavourites: removing favourite entry");
+        String favouriteId = getFavouriteDocumentId(authUsername, recipeId);
+        dbFirestore.collection(FirebaseContract.FavouritesEntry.COLLECTION_NAME)
+                .document(favouriteId)
+                .delete()
+                .addOnSuccessListener(success -> {
+                    Log.i(TAG, "removeFromFavourites: favourite entry removed");
+                    localDataSource.deleteFavourite(favouriteId);
+                    result.setValue(new Result.Success<Object>(null));
+                })
+                .addOnFailureListener(failure -> {
+                    Log.e(TAG, "removeFromFavourites: error removing recipe", failure);
+                    result.setValue(new Result.Error(failure));
+                });
+
+        return result;
+    }
+
+    /**
+     * One-time migration that moves the user's favourites entries created with an auto generated id
+     * to their deterministic document id. Every entry keeps its addition date.
+     * @param authUsername - the authenticated user's username.
+     * @return result success with the quantity of migrated entries; error if something goes wrong.
+     */
+    public LiveData<Result<?>> migrateFavouriteDocumentIds(String authUsername) {
+        MutableLiveData<Result<?>> result = new MutableLiveData<>();
+        Log.i(TAG, "migrateFavouriteDocumentIds: obtaining favourites entries");
         dbFirestore.collection(FirebaseContract.FavouritesEntry.COLLECTION_NAME)
                 .whereEqualTo(FirebaseContract.FavouritesEntry.USERNAME, authUsername)
-                .whereEqualTo(FirebaseContract.FavouritesEntry.RECIPE_ID, recipeId)
-                .get()
+                .get(Source.SERVER)
                 .addOnSuccessListener(queryDocumentSnapshots -> {
-                    if (!queryDocumentSnapshots.isEmpty()) {
-                        Favourite favourite = queryDocumentSnapshots.getDocuments().get(0).toObject(Favourite.class);
+                    List<Task<Void>> batchTasks = new ArrayList<>();
+                    WriteBatch batch = dbFirestore.batch();
+                    int operations = 0;
+                    int migrated = 0;
 
+                    for (DocumentSnapshot document : queryDocumentSnapshots) {
+                        Favourite favourite = document.toObject(Favourite.class);
                         assert favourite != null;
-                        dbFirestore.collection(FirebaseContract.FavouritesEntry.COLLECTION_NAME).document(favourite.getId()).delete()
-                                .addOnSuccessListener(success -> {
-                                    Log.i(TAG, "removeFromFavourites: favourite entry removed");
-                                    result.setValue(new Result.Success<Object>(null));
-                                })
-                                .addOnFailureListener(failure -> {
-                                    Log.e(TAG, "removeFromFavourites: error removing recipe", failure);
-                                    result.setValue(new Result.Error(failure));
-                                });
-                    } else {
-                        result.setValue(new Result.Success<Object>(null));
+                        String favouriteId = getFavouriteDocumentId(authUsername, favourite.getRecipeId());
+                        if (document.getId().equals(favouriteId)) {
+                            continue;
+                        }
+                        // Every entry needs two operations, so the batch is committed before it's full.
+                        if (operations + 2 > BATCH_LIMIT) {
+                            batchTasks.add(batch.commit());
+                            batch = dbFirestore.batch();
+                            operations = 0;
+                        }
+                        favourite.setId(favouriteId);
+                        batch.set(dbFirestore.collection(FirebaseContract.FavouritesEntry.COLLECTION_NAME).document(favouriteId), favourite);
+                        batch.delete(document.getReference());
+                        operations += 2;
+                        migrated++;
                     }
+                    batchTasks.add(batch.commit());
 
-                }).addOnFailureListener(failure -> {
-                    Log.e(TAG, "removeFromFavourites: couldn't retrieve favourite entry", failure);
+                    int migratedEntries = migrated;
+                    Tasks.whenAll(batchTasks)
+                            .addOnSuccessListener(success -> {
+                                Log.i(TAG, "migrateFavouriteDocumentIds: migrated " + migratedEntries + " entries");
+                                result.setValue(new Result.Success<Integer>(migratedEntries));
+                            })
+                            .addOnFailureListener(failure -> {
+                                Log.e(TAG, "migrateFavouriteDocumentIds: error migrating entries", failure);
+                                result.setValue(new Result.Error(failure));
+                            });
+                })
+                .addOnFailureListener(failure -> {
+                    Log.e(TAG, "migrateFavouriteDocumentIds: error obtaining entries", failure);
                     result.setValue(new Result.Error(failure));
                 });
 
@@ -192,7 +363,7 @@ public class FavouritesRepository {
         Log.i(TAG, "removeEveryEntryWithRecipe: obtaining favourites entries");
         dbFirestore.collection(FirebaseContract.FavouritesEntry.COLLECTION_NAME)
                 .whereEqualTo(FirebaseContract.FavouritesEntry.RECIPE_ID, recipeId)
-                .get()
+                .get(Source.SERVER)
                 .addOnSuccessListener(queryDocumentSnapshots -> {
                     result.setValue(new Result.Success<Object>(null));
                     Log.i(TAG, "removeEveryEntryWithRecipe: removing favourites entries");
@@ -209,25 +380,49 @@ public class FavouritesRepository {
     }
 
     /**
-     * Finds a favourite recipe with given user and recipe's id.
+     * Finds a favourite recipe with given user and recipe's id, getting its document directly.
      * Used to check if a recipe is a favourite one from the authenticated user.
      * @param authUsername - the authenticated username.
      * @param recipeId - the recipe's id.
+     * @param policy - the source used to read the entry.
      * @return result success with the result if the document is found or not; error if something wrong happens.
      */
-    public LiveData<Result<?>> findFavouriteRecipe(String authUsername, String recipeId) {
+    public LiveData<Result<?>> findFavouriteRecipe(String authUsername, String recipeId, ReadPolicy policy) {
         MutableLiveData<Result<?>> result = new MutableLiveData<>();
         Log.i(TAG, "findFavouriteRecipe: obtaining favourite entry");
-        dbFirestore.collection(FirebaseContract.FavouritesEntry.COLLECTION_NAME)
-                .whereEqualTo(FirebaseContract.FavouritesEntry.USERNAME, authUsername)
-                .whereEqualTo(FirebaseContract.FavouritesEntry.RECIPE_ID, recipeId)
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> result.setValue(new Result.Success<Boolean>(!queryDocumentSnapshots.isEmpty())))
-                .addOnFailureListener(failure -> {
+        DocumentReference favouriteReference = dbFirestore.collection(FirebaseContract.FavouritesEntry.COLLECTION_NAME)
+                .document(getFavouriteDocumentId(authUsername, recipeId));
+        policy.read(favouriteReference::get, DocumentSnapshot::exists,
+                (documentSnapshot, fromCache) -> result.setValue(new Result.Success<Boolean>(documentSnapshot.exists(), fromCache)),
+                failure -> {
                     Log.e(TAG, "findFavouriteRecipe: error obtaining the entry", failure);
                     result.setValue(new Result.Error(failure));
                 });
 
         return result;
     }
+
+    /**
+     * Query of the user's favourites entries from newest to oldest, entries with the same addition
+     * date are ordered by their document id, so every entry has a unique position for the page cursors.
+     * @param authUsername - the user who added the recipes as favourites.
+     * @return the ordered query.
+     */
+    private Query orderedFavouritesByUser(String authUsername) {
+        return dbFirestore.collection(FirebaseContract.FavouritesEntry.COLLECTION_NAME)
+                .whereEqualTo(FirebaseContract.FavouritesEntry.USERNAME, authUsername)
+                .orderBy(FirebaseContract.FavouritesEntry.ADDITION_DATE, Query.Direction.DESCENDING)
+                .orderBy(FieldPath.documentId(), Query.Direction.DESCENDING);
+    }
+
+    /**
+     * @param snapshot - the documents of a page of favourites entries.
+     * @return the page of entries, with the cursor of its last document.
+     */
+    private Page<Favourite> toFavouritePage(QuerySnapshot snapshot) {
+        List<DocumentSnapshot> documents = snapshot.getDocuments();
+        PageCursor cursor = documents.isEmpty() ? null
+                : PageCursor.fromSnapshot(documents.get(documents.size() - 1), FirebaseContract.FavouritesEntry.ADDITION_DATE);
+        return new Page<>(snapshot.toObjects(Favourite.class), cursor);
+    }
 }
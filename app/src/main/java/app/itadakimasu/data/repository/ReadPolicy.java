@@ -0,0 +1,83 @@
+package app.itadakimasu.data.repository;
+
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.Source;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+/**
+ * Source used by the repositories' reads to obtain firestore's data. Each call site chooses the
+ * policy that fits its screen.
+ */
+public enum ReadPolicy {
+    // Firestore's local cache first, if it has data, and then the server; it can be emitted twice.
+    CACHE_THEN_SERVER,
+    // Only the server, it fails without connection. Used when the data must be the current one.
+    SERVER_ONLY,
+    // The server, falling back to the local cache without connection. Used for pagination, where
+    // a page shouldn't be received twice.
+    DEFAULT;
+
+    /**
+     * Obtains data from firestore using a specific source.
+     * @param <T> - the type of the snapshot.
+     */
+    public interface SourceRead<T> {
+        Task<T> get(Source source);
+    }
+
+    /**
+     * Receives the data read with the policy.
+     * @param <T> - the type of the snapshot.
+     */
+    public interface OnReadListener<T> {
+        /**
+         * @param data - the data read.
+         * @param fromCache - true if the data comes from the local cache and the server's data will
+         *                  come next; false if it's the final data.
+         */
+        void onRead(T data, boolean fromCache);
+    }
+
+    /**
+     * Reads the data following the policy.
+     * On CACHE_THEN_SERVER, the cached data is only delivered if it has data and the server's data
+     * hasn't been received yet, and a cache miss is not considered a failure. A server failure is
+     * delivered once the cache has been read, so without connection the cached data is shown
+     * before the error.
+     * @param sourceRead - the read that will be done with the source of the policy.
+     * @param hasData - checks if the cached data can be shown.
+     * @param listener - receives the data.
+     * @param failureListener - receives the error if the read fails.
+     * @param <T> - the type of the snapshot.
+     */
+    public <T> void read(SourceRead<T> sourceRead, Predicate<T> hasData, OnReadListener<T> listener, OnFailureListener failureListener) {
+        switch (this) {
+            case SERVER_ONLY:
+                sourceRead.get(Source.SERVER)
+                        .addOnSuccessListener(data -> listener.onRead(data, false))
+                        .addOnFailureListener(failureListener);
+                break;
+            case CACHE_THEN_SERVER:
+                AtomicBoolean serverRead = new AtomicBoolean(false);
+                Task<T> cacheRead = sourceRead.get(Source.CACHE).addOnSuccessListener(data -> {
+                    if (!serverRead.get() && hasData.test(data)) {
+                        listener.onRead(data, true);
+                    }
+                });
+                sourceRead.get(Source.SERVER)
+                        .addOnSuccessListener(data -> {
+                            serverRead.set(true);
+                            listener.onRead(data, false);
+                        })
+                        .addOnFailureListener(failure -> cacheRead.addOnCompleteListener(cache -> failureListener.onFailure(failure)));
+                break;
+            default:
+                sourceRead.get(Source.DEFAULT)
+                        .addOnSuccessListener(data -> listener.onRead(data, false))
+                        .addOnFailureListener(failureListener);
+        }
+    }
+}
@@ -6,18 +6,36 @@ import android.util.Log;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
 import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
 import com.google.firebase.firestore.WriteBatch;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import app.itadakimasu.data.Result;
+import app.itadakimasu.data.local.LocalDataSource;
+import app.itadakimasu.data.model.DeletedRecipe;
 import app.itadakimasu.data.model.FirebaseContract;
 import app.itadakimasu.data.model.Ingredient;
+import app.itadakimasu.data.model.Page;
+import app.itadakimasu.data.model.PageCursor;
 import app.itadakimasu.data.model.Recipe;
+import app.itadakimasu.data.model.RecipeChanges;
+import app.itadakimasu.data.model.RecipeContent;
 import app.itadakimasu.data.model.Step;
 
 /**
@@ -29,8 +47,14 @@ public class RecipesRepository {
     public static volatile RecipesRepository INSTANCE;
     // Limit of how many documents will be fetched per query.
     public static int LIMIT_QUERY = 10;
+    // Maximum quantity of values that firestore accepts on a whereIn filter.
+    public static final int WHERE_IN_LIMIT = 10;
+    // Maximum quantity of changes obtained at once, with more changes the list is loaded again.
+    public static final int CHANGES_LIMIT = 50;
     // Data source of firestore database.
     private final FirebaseFirestore dbFirestore;
+    // Local copy of the recipes, shown while firestore answers.
+    private final LocalDataSource localDataSource;
 
     /**
      * @return the singleton of the repository.
@@ -51,6 +75,7 @@ public class RecipesRepository {
      */
     private RecipesRepository() {
         this.dbFirestore = FirebaseFirestore.getInstance();
+        this.localDataSource = LocalDataSource.getInstance();
     }
 
     /**
@@ -58,7 +83,8 @@ public class RecipesRepository {
      * The image reference of the recipe image will be added to the recipe and returned as a successful
      * result, that contains the constant of the recipes pictures path for storage and the document id.
      * The timestamp will be added as well to the recipe, so every recipe can be sorted by creation
-     * date.
+     * date. Besides the sub-collections, the lists are written on the recipe's content document, so
+     * the details can be read at once.
      * @param recipe - the recipe that contains the author name, author image, title and description.
      * @param ingredientList -  the list of ingredients of the recipe.
      * @param stepList - the list of steps.
@@ -90,6 +116,8 @@ public class RecipesRepository {
             batch.set(stepReference, s);
         }
 
+        batch.set(getContentReference(recipeReference.getId()), new RecipeContent(ingredientList, stepList));
+
         batch.commit().addOnSuccessListener(success -> result.setValue(new Result.Success<String>(recipe.getPhotoUrl())))
                 .addOnFailureListener(failure -> {
                     Log.e(TAG, "uploadRecipe: error uploading recipe's entry", failure);
@@ -119,6 +147,8 @@ public class RecipesRepository {
 
                     recipe.setId(recipeIdToEdit);
                     recipe.setCreationDate(recipeDateToEdit);
+                    // Firebase assigns the modification date, so the other clients find the edited recipe.
+                    recipe.setModificationDate(null);
                     recipe.setPhotoUrl(FirebaseContract.StoragePath.RECIPES_PICTURES + recipeIdToEdit);
                     batch.set(recipeReference, recipe);
 
@@ -133,15 +163,47 @@ public class RecipesRepository {
     }
 
     /**
-     * Deletes recipe with given id.
+     * Writes the version of the recipe's image once it's uploaded, with its smaller sizes. The image
+     * is replaced on the same path, so the clients use the version to not show their cached copy of
+     * the old image. It's written from the background upload, so it returns the task instead of a
+     * result.
+     * @param recipeId - the recipe's id.
+     * @param photoVersion - the version of the uploaded image.
+     * @param photoBlurHash - the blurhash of the uploaded image, shown while it loads.
+     * @return the task that writes the version.
+     */
+    public Task<Void> updateRecipePhotoVersion(String recipeId, String photoVersion, String photoBlurHash) {
+        Log.i(TAG, "updateRecipePhotoVersion: updating the version of the recipe's image");
+        Map<String, Object> update = new HashMap<>();
+        update.put(FirebaseContract.RecipeEntry.PHOTO_VERSION, photoVersion);
+        update.put(FirebaseContract.RecipeEntry.PHOTO_VARIANTS_UPLOADED, true);
+        update.put(FirebaseContract.RecipeEntry.PHOTO_BLUR_HASH, photoBlurHash);
+        // The recipe is changed, so the other clients receive it when refreshing.
+        update.put(FirebaseContract.RecipeEntry.MODIFICATION_DATE, FieldValue.serverTimestamp());
+        return dbFirestore.collection(FirebaseContract.RecipeEntry.COLLECTION_NAME).document(recipeId)
+                .update(update)
+                .addOnFailureListener(failure -> Log.e(TAG, "updateRecipePhotoVersion: error updating the version of the image", failure));
+    }
+
+    /**
+     * Deletes recipe with given id and its content document. The deletion is recorded on the deleted
+     * recipes collection, so the other clients can remove it from their lists.
      * @param recipeId - the recipe's id.
      * @return Result.Success if the recipe is deleted; Result.Error if it fails.
      */
     public LiveData<Result<?>> deleteRecipe(String recipeId) {
         MutableLiveData<Result<?>> result = new MutableLiveData<>();
         Log.i(TAG, "deleteRecipe: deleting recipe's entry");
-        dbFirestore.collection(FirebaseContract.RecipeEntry.COLLECTION_NAME).document(recipeId).delete()
-                .addOnSuccessListener(success -> result.setValue(new Result.Success<Object>(null)))
+        WriteBatch batch = dbFirestore.batch();
+        batch.delete(dbFirestore.collection(FirebaseContract.RecipeEntry.COLLECTION_NAME).document(recipeId));
+        batch.delete(getContentReference(recipeId));
+        batch.set(dbFirestore.collection(FirebaseContract.DeletedRecipeEntry.COLLECTION_NAME).document(recipeId),
+                new DeletedRecipe(recipeId));
+        batch.commit()
+                .addOnSuccessListener(success -> {
+                    localDataSource.deleteRecipe(recipeId);
+                    result.setValue(new Result.Success<Object>(null));
+                })
                 .addOnFailureListener(failure ->  {
                     Log.e(TAG, "deleteRecipe: error deleting recipe's entry", failure);
                     result.setValue(new Result.Error(failure));
@@ -153,19 +215,16 @@ public class RecipesRepository {
     /**
      * Obtains a recipe's data with given id.
      * @param recipeId - the recipe's id.
+     * @param policy - the source used to read the recipe.
      * @return Result.Success with the recipe's data; error if something goes wrong.
      */
-    public LiveData<Result<?>> getRecipeById(String recipeId) {
+    public LiveData<Result<?>> getRecipeById(String recipeId, ReadPolicy policy) {
         MutableLiveData<Result<?>> result = new MutableLiveData<>();
         Log.d(TAG, "getRecipeById: obtaining recipe entry");
-        dbFirestore.collection(FirebaseContract.RecipeEntry.COLLECTION_NAME)
-                .document(recipeId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    Recipe recipe = documentSnapshot.toObject(Recipe.class);
-                    result.setValue(new Result.Success<Recipe>(recipe));
-                })
-                .addOnFailureListener(failure -> {
+        DocumentReference recipeReference = dbFirestore.collection(FirebaseContract.RecipeEntry.COLLECTION_NAME).document(recipeId);
+        policy.read(recipeReference::get, DocumentSnapshot::exists,
+                (documentSnapshot, fromCache) -> result.setValue(new Result.Success<Recipe>(documentSnapshot.toObject(Recipe.class), fromCache)),
+                failure -> {
                     Log.e(TAG, "getRecipeById: error obtaining the document", failure);
                     result.setValue(new Result.Error(failure));
                 });
@@ -173,20 +232,86 @@ public class RecipesRepository {
         return result;
     }
 
+    /**
+     * Obtains the data of several recipes with the fewest reads possible.
+     * The ids are split in chunks of WHERE_IN_LIMIT, every chunk is fetched at the same time with a
+     * whereIn query on the document id and the results are joined when every chunk finishes.
+     * With CACHE_THEN_SERVER, the recipes stored on the local database are emitted first if
+     * firestore hasn't answered yet.
+     * @param recipeIds - the recipes' ids.
+     * @param policy - the source used to read the recipes.
+     * @return Result.Success with the recipes in the same order as the ids, recipes that don't exist
+     * are skipped; Result.Error if any chunk fails.
+     */
+    public LiveData<Result<?>> getRecipesByIds(List<String> recipeIds, ReadPolicy policy) {
+        MutableLiveData<Result<?>> result = new MutableLiveData<>();
+        Log.i(TAG, "getRecipesByIds: obtaining recipes documents by id");
+        if (recipeIds.isEmpty()) {
+            result.setValue(new Result.Success<List<Recipe>>(new ArrayList<>()));
+            return result;
+        }
+        AtomicBoolean firestoreAnswered = new AtomicBoolean(false);
+        if (policy == ReadPolicy.CACHE_THEN_SERVER) {
+            localDataSource.loadRecipesByIds(recipeIds, cachedRecipes -> emitCached(result, firestoreAnswered, cachedRecipes));
+        }
+
+        policy.read(source -> queryRecipesByIds(recipeIds, source), recipeList -> !recipeList.isEmpty(),
+                (recipeList, fromCache) -> {
+                    firestoreAnswered.set(true);
+                    result.setValue(new Result.Success<List<Recipe>>(recipeList, fromCache));
+                    if (!fromCache) {
+                        localDataSource.saveRecipes(recipeList);
+                    }
+                },
+                failure -> {
+                    Log.e(TAG, "getRecipesByIds: error obtaining the documents", failure);
+                    firestoreAnswered.set(true);
+                    result.setValue(new Result.Error(failure));
+                });
+
+        return result;
+    }
+
+    /**
+     * Obtains the stored recipes with given ids from the local database, without reading firestore.
+     * @param recipeIds - the recipes' ids.
+     * @return Result.Success with the stored recipes in the same order as the ids, marked as cached.
+     */
+    public LiveData<Result<?>> getCachedRecipesByIds(List<String> recipeIds) {
+        MutableLiveData<Result<?>> result = new MutableLiveData<>();
+        localDataSource.loadRecipesByIds(recipeIds, cachedRecipes -> result.setValue(new Result.Success<List<Recipe>>(cachedRecipes, true)));
+        return result;
+    }
+
     /**
      * Obtains the first newest recipes sorted by creation date.
-     * @return Result.Success with the list of recipes; error if something goes wrong.
+     * With CACHE_THEN_SERVER, the recipes stored on the local database are emitted first if
+     * firestore hasn't answered yet, and they are replaced with firestore's answer.
+     * @param policy - the source used to read the recipes.
+     * @return Result.Success with the page of recipes; error if something goes wrong.
      */
-    public LiveData<Result<?>> getNewestRecipes() {
+    public LiveData<Result<?>> getNewestRecipes(ReadPolicy policy) {
         MutableLiveData<Result<?>> result = new MutableLiveData<>();
         Log.i(TAG, "getNewestRecipes: obtaining newest recipes' documents");
-        dbFirestore.collection(FirebaseContract.RecipeEntry.COLLECTION_NAME)
-                .orderBy(FirebaseContract.RecipeEntry.CREATION_DATE, Query.Direction.DESCENDING)
-                .limit(LIMIT_QUERY)
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> result.setValue(new Result.Success<List<Recipe>>(queryDocumentSnapshots.toObjects(Recipe.class))))
-                .addOnFailureListener(failure -> {
+        AtomicBoolean firestoreAnswered = new AtomicBoolean(false);
+        if (policy == ReadPolicy.CACHE_THEN_SERVER) {
+            localDataSource.loadNewestRecipes(LIMIT_QUERY, cachedRecipes -> emitCachedPage(result, firestoreAnswered, cachedRecipes));
+        }
+
+        Query query = orderedRecipes(dbFirestore.collection(FirebaseContract.RecipeEntry.COLLECTION_NAME))
+                .limit(LIMIT_QUERY);
+        policy.read(query::get, snapshot -> !snapshot.isEmpty(),
+                (queryDocumentSnapshots, fromCache) -> {
+                    firestoreAnswered.set(true);
+                    Page<Recipe> page = toRecipePage(queryDocumentSnapshots);
+                    result.setValue(new Result.Success<Page<Recipe>>(page, fromCache));
+                    if (!fromCache) {
+                        localDataSource.saveNewestRecipes(page.getItems(), LIMIT_QUERY);
+                    }
+                },
+                failure -> {
                     Log.e(TAG, "getNewestRecipes: error obtaining the documents", failure);
+                    firestoreAnswered.set(true);
                     result.setValue(new Result.Error(failure));
                 });
 
@@ -194,25 +319,22 @@ public class RecipesRepository {
     }
 
     /**
-     * Given the last recipe's date from the user's recipe list loaded on memory, obtain the next recipes.
-     * @param lastRecipeDate - the last recipe's creation date on the user's list on loaded on memory.
-     * @return Result.Success with the list of recipes; Result.Error if something goes wrong.
+     * Given the cursor of the last page loaded on memory, obtain the next recipes.
+     * @param cursor - the cursor of the last page, it points to its last recipe.
+     * @param policy - the source used to read the recipes.
+     * @return Result.Success with the page of recipes; Result.Error if something goes wrong.
      */
-    public LiveData<Result<?>> getNextRecipes(Date lastRecipeDate) {
+    public LiveData<Result<?>> getNextRecipes(PageCursor cursor, ReadPolicy policy) {
         MutableLiveData<Result<?>> result = new MutableLiveData<>();
         Log.i(TAG, "getNextRecipes: obtaining next documents");
-        dbFirestore.collection(FirebaseContract.RecipeEntry.COLLECTION_NAME)
-                .orderBy(FirebaseContract.RecipeEntry.CREATION_DATE, Query.Direction.DESCENDING)
-                .startAfter(lastRecipeDate)
-                .limit(LIMIT_QUERY)
-                .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        result.setValue(new Result.Success<List<Recipe>>(task.getResult().toObjects(Recipe.class)));
-                    } else {
-                        Log.e(TAG, "getNextRecipes: error obtaining next recipes' documents", task.getException());
-                        result.setValue(new Result.Error(task.getException()));
-                    }
+        Query query = orderedRecipes(dbFirestore.collection(FirebaseContract.RecipeEntry.COLLECTION_NAME))
+                .startAfter(cursor.getTimestamp(), cursor.getDocumentId())
+                .limit(LIMIT_QUERY);
+        policy.read(query::get, snapshot -> !snapshot.isEmpty(),
+                (queryDocumentSnapshots, fromCache) -> result.setValue(new Result.Success<Page<Recipe>>(toRecipePage(queryDocumentSnapshots), fromCache)),
+                failure -> {
+                    Log.e(TAG, "getNextRecipes: error obtaining next recipes' documents", failure);
+                    result.setValue(new Result.Error(failure));
                 });
 
         return result;
@@ -223,20 +345,35 @@ public class RecipesRepository {
     /**
      * Obtains the first recipes of given username. The list is ordered by creation date and
      * the quantity of Recipes returned are limited with the constant LIMIT_QUERY.
+     * With CACHE_THEN_SERVER, the recipes stored on the local database are emitted first if
+     * firestore hasn't answered yet.
      * @param username - the username from which their recipes will be retrieve.
-     * @return Result.Success with the list if is successful; Result.Error if it fails to load.
+     * @param policy - the source used to read the recipes.
+     * @return Result.Success with the page if is successful; Result.Error if it fails to load.
      */
-    public LiveData<Result<?>> getRecipesByUser(String username) {
+    public LiveData<Result<?>> getRecipesByUser(String username, ReadPolicy policy) {
         MutableLiveData<Result<?>> result = new MutableLiveData<>();
         Log.i(TAG, "getRecipesByUser: obtaining recipes documents by user");
-        dbFirestore.collection(FirebaseContract.RecipeEntry.COLLECTION_NAME)
-                .whereEqualTo(FirebaseContract.RecipeEntry.AUTHOR, username)
-                .orderBy(FirebaseContract.RecipeEntry.CREATION_DATE, Query.Direction.DESCENDING)
-                .limit(LIMIT_QUERY)
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> result.setValue(new Result.Success<List<Recipe>>(queryDocumentSnapshots.toObjects(Recipe.class))))
-                .addOnFailureListener(failure -> {
+        AtomicBoolean firestoreAnswered = new AtomicBoolean(false);
+        if (policy == ReadPolicy.CACHE_THEN_SERVER) {
+            localDataSource.loadNewestRecipesByAuthor(username, LIMIT_QUERY, cachedRecipes -> emitCachedPage(result, firestoreAnswered, cachedRecipes));
+        }
+
+        Query query = orderedRecipes(dbFirestore.collection(FirebaseContract.RecipeEntry.COLLECTION_NAME)
+                .whereEqualTo(FirebaseContract.RecipeEntry.AUTHOR, username))
+                .limit(LIMIT_QUERY);
+        policy.read(query::get, snapshot -> !snapshot.isEmpty(),
+                (queryDocumentSnapshots, fromCache) -> {
+                    firestoreAnswered.set(true);
+                    Page<Recipe> page = toRecipePage(queryDocumentSnapshots);
+                    result.setValue(new Result.Success<Page<Recipe>>(page, fromCache));
+                    if (!fromCache) {
+                        localDataSource.saveNewestRecipesByAuthor(username, page.getItems(), LIMIT_QUERY);
+                    }
+                },
+                failure -> {
                     Log.e(TAG, "getRecipesByUser: error obtaining the documents", failure);
+                    firestoreAnswered.set(true);
                     result.setValue(new Result.Error(failure));
                 });
 
@@ -245,47 +382,91 @@ public class RecipesRepository {
 
 
     /**
-     * Paginates the next recipes from a user given their username and the las recipe's date of their list
+     * Paginates the next recipes from a user given their username and the cursor of the last page
      * loaded in memory. The query limits the quantity returned with LIMIT_QUERY.
      * @param profileUsername - the username which their recipes will be retrieved.
-     * @param lastRecipeDate - the last recipe's date, will be used as a cursor for the pagination.
-     * @return Result.Success with the list if is successful; Result.Error if it fails.
+     * @param cursor - the cursor of the last page, it points to its last recipe.
+     * @param policy - the source used to read the recipes.
+     * @return Result.Success with the page if is successful; Result.Error if it fails.
      */
-    public LiveData<Result<?>> getNextRecipesByUser(String profileUsername, Date lastRecipeDate) {
+    public LiveData<Result<?>> getNextRecipesByUser(String profileUsername, PageCursor cursor, ReadPolicy policy) {
         MutableLiveData<Result<?>> result = new MutableLiveData<>();
         Log.i(TAG, "getNextRecipesByUser: obtaining documents references");
-        dbFirestore.collection(FirebaseContract.RecipeEntry.COLLECTION_NAME)
-                .whereEqualTo(FirebaseContract.RecipeEntry.AUTHOR, profileUsername)
-                .orderBy(FirebaseContract.RecipeEntry.CREATION_DATE, Query.Direction.DESCENDING)
-                .startAfter(lastRecipeDate)
-                .limit(LIMIT_QUERY)
-                .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        result.setValue(new Result.Success<List<Recipe>>(task.getResult().toObjects(Recipe.class)));
-                    } else {
-                        Log.e(TAG, "getNextRecipesByUser: error obtaining the references", task.getException());
-                        result.setValue(new Result.Error(task.getException()));
+        Query query = orderedRecipes(dbFirestore.collection(FirebaseContract.RecipeEntry.COLLECTION_NAME)
+                .whereEqualTo(FirebaseContract.RecipeEntry.AUTHOR, profileUsername))
+                .startAfter(cursor.getTimestamp(), cursor.getDocumentId())
+                .limit(LIMIT_QUERY);
+        policy.read(query::get, snapshot -> !snapshot.isEmpty(),
+                (queryDocumentSnapshots, fromCache) -> result.setValue(new Result.Success<Page<Recipe>>(toRecipePage(queryDocumentSnapshots), fromCache)),
+                failure -> {
+                    Log.e(TAG, "getNextRecipesByUser: error obtaining the references", failure);
+                    result.setValue(new Result.Error(failure));
+                });
+
+        return result;
+    }
+
+    /**
+     * Obtains the recipes created, edited or deleted after given moment. When nothing changed, it
+     * costs one read per query, instead of reading the list again.
+     * @param since - the newest change already received.
+     * @param policy - the source used to read the changes.
+     * @return Result.Success with the changes; Result.Error if something goes wrong.
+     */
+    public LiveData<Result<?>> getRecipeChanges(Timestamp since, ReadPolicy policy) {
+        MutableLiveData<Result<?>> result = new MutableLiveData<>();
+        Log.i(TAG, "getRecipeChanges: obtaining recipes changed since " + since.toDate());
+        policy.read(source -> queryRecipeChanges(since, source), changes -> !changes.isEmpty(),
+                (changes, fromCache) -> {
+                    result.setValue(new Result.Success<RecipeChanges>(changes, fromCache));
+                    if (!fromCache) {
+                        localDataSource.saveRecipes(changes.getModifiedRecipes());
+                        for (String recipeId : changes.getDeletedRecipeIds()) {
+                            localDataSource.deleteRecipe(recipeId);
+                        }
                     }
+                },
+                failure -> {
+                    Log.e(TAG, "getRecipeChanges: error obtaining the changes", failure);
+                    result.setValue(new Result.Error(failure));
                 });
 
         return result;
     }
 
     /**
-     * Obtains the ingredients of a recipe, ordered by its position.
-     * @param recipeId - the recipe's id, used to identify the document.
-     * @return a success result with the list if it loads correctly; a result error if it doesn't.
+     * Obtains the ingredients and steps of a recipe reading its content document.
+     * If the recipe was created before the content document existed, the lists are obtained from
+     * the sub-collections at the same time. With CACHE_THEN_SERVER, the content stored on the local
+     * database is emitted first if firestore hasn't answered yet.
+     * @param recipeId - the recipe's id.
+     * @param policy - the source used to read the content.
+     * @return a success result with the recipe's content; a result error if it fails.
      */
-    public LiveData<Result<?>> getIngredientsFromRecipe(String recipeId) {
+    public LiveData<Result<?>> getRecipeContent(String recipeId, ReadPolicy policy) {
         MutableLiveData<Result<?>> result = new MutableLiveData<>();
-        Log.i(TAG, "getIngredientsFromRecipe: obtaining ingredients collection from recipe entry");
-        dbFirestore.collection(FirebaseContract.RecipeEntry.COLLECTION_NAME).document(recipeId)
-                .collection(FirebaseContract.RecipeEntry.IngredientEntry.COLLECTION_NAME)
-                .orderBy(FirebaseContract.RecipeEntry.IngredientEntry.POSITION).get()
-                .addOnSuccessListener(queryDocumentSnapshots -> result.setValue(new Result.Success<List<Ingredient>>(queryDocumentSnapshots.toObjects(Ingredient.class))))
-                .addOnFailureListener(failure -> {
-                    Log.e(TAG, "getIngredientsFromRecipe: error obtaining collection", failure);
+        Log.i(TAG, "getRecipeContent: obtaining recipe's content document");
+        AtomicBoolean firestoreAnswered = new AtomicBoolean(false);
+        if (policy == ReadPolicy.CACHE_THEN_SERVER) {
+            localDataSource.loadRecipeContent(recipeId, cachedContent -> {
+                if (cachedContent != null && !firestoreAnswered.get()) {
+                    result.setValue(new Result.Success<RecipeContent>(cachedContent, true));
+                }
+            });
+        }
+
+        policy.read(source -> getContent(recipeId, source),
+                content -> !content.getIngredients().isEmpty() || !content.getSteps().isEmpty(),
+                (content, fromCache) -> {
+                    firestoreAnswered.set(true);
+                    result.setValue(new Result.Success<RecipeContent>(content, fromCache));
+                    if (!fromCache) {
+                        localDataSource.saveRecipeContent(recipeId, content);
+                    }
+                },
+                failure -> {
+                    Log.e(TAG, "getRecipeContent: error obtaining recipe's content", failure);
+                    firestoreAnswered.set(true);
                     result.setValue(new Result.Error(failure));
                 });
 
@@ -293,22 +474,239 @@ public class RecipesRepository {
     }
 
     /**
-     * Obtains the steps of a recipe, ordered by its position.
-     * @param recipeId - the recipe's id, used to identify the document.
-     * @return a success result with the list if it loads correctly; a result error if it doesn't.
+     * Writes the content document of every recipe from given author that doesn't have it yet,
+     * using the ingredients and steps from its sub-collections. Everything is read from the server,
+     * so the local cache can't hide a missing document.
+     * @param author - the author whose recipes will be updated.
+     * @return a success result with the quantity of recipes updated; a result error if it fails.
      */
-    public LiveData<Result<?>> getStepsFromRecipe(String recipeId) {
+    public LiveData<Result<?>> backfillRecipesContent(String author) {
         MutableLiveData<Result<?>> result = new MutableLiveData<>();
-        Log.i(TAG, "getStepsFromRecipe: obtaining steps collection from recipe entry");
-        dbFirestore.collection(FirebaseContract.RecipeEntry.COLLECTION_NAME).document(recipeId)
-                .collection(FirebaseContract.RecipeEntry.StepEntry.COLLECTION_NAME)
-                .orderBy(FirebaseContract.RecipeEntry.StepEntry.POSITION).get()
-                .addOnSuccessListener(queryDocumentSnapshots -> result.setValue(new Result.Success<List<Step>>(queryDocumentSnapshots.toObjects(Step.class))))
+        Log.i(TAG, "backfillRecipesContent: obtaining author's recipes");
+        dbFirestore.collection(FirebaseContract.RecipeEntry.COLLECTION_NAME)
+                .whereEqualTo(FirebaseContract.RecipeEntry.AUTHOR, author)
+                .get(Source.SERVER)
+                .continueWithTask(task -> {
+                    List<Task<Boolean>> recipeTasks = new ArrayList<>();
+                    for (DocumentSnapshot recipeDocument : task.getResult()) {
+                        String recipeId = recipeDocument.getId();
+                        DocumentReference contentReference = getContentReference(recipeId);
+                        recipeTasks.add(contentReference.get(Source.SERVER).continueWithTask(contentTask -> {
+                            if (contentTask.getResult().exists()) {
+                                return Tasks.forResult(false);
+                            }
+                            return getContentFromSubcollections(recipeId, Source.SERVER)
+                                    .onSuccessTask(content -> contentReference.set(content))
+                                    .onSuccessTask(written -> Tasks.forResult(true));
+                        }));
+                    }
+                    return Tasks.<Boolean>whenAllSuccess(recipeTasks);
+                })
+                .addOnSuccessListener(backfilled -> {
+                    int count = 0;
+                    for (Boolean written : backfilled) {
+                        if (written) {
+                            count++;
+                        }
+                    }
+                    Log.i(TAG, "backfillRecipesContent: " + count + " content documents written");
+                    result.setValue(new Result.Success<Integer>(count));
+                })
                 .addOnFailureListener(failure -> {
-                    Log.e(TAG, "getStepsFromRecipe: error obtaining collection", failure);
+                    Log.e(TAG, "backfillRecipesContent: error writing content documents", failure);
                     result.setValue(new Result.Error(failure));
                 });
 
         return result;
     }
+
+    /**
+     * Obtains the content document of a recipe, or its sub-collections if it doesn't exist.
+     * @param recipeId - the recipe's id.
+     * @param source - the source used for the reads.
+     * @return task with the recipe's content.
+     */
+    private Task<RecipeContent> getContent(String recipeId, Source source) {
+        return getContentReference(recipeId).get(source)
+                .continueWithTask(task -> {
+                    DocumentSnapshot document = task.getResult();
+                    if (document.exists()) {
+                        return Tasks.forResult(document.toObject(RecipeContent.class));
+                    }
+                    Log.i(TAG, "getContent: content document not found, obtaining sub-collections");
+                    return getContentFromSubcollections(recipeId, source);
+                });
+    }
+
+    /**
+     * Obtains the ingredients and steps sub-collections of a recipe at the same time.
+     * @param recipeId - the recipe's id.
+     * @param source - the source used for the reads.
+     * @return task with the recipe's content built from both sub-collections.
+     */
+    private Task<RecipeContent> getContentFromSubcollections(String recipeId, Source source) {
+        DocumentReference recipeReference = dbFirestore.collection(FirebaseContract.RecipeEntry.COLLECTION_NAME).document(recipeId);
+        Task<QuerySnapshot> ingredientsTask = recipeReference.collection(FirebaseContract.RecipeEntry.IngredientEntry.COLLECTION_NAME)
+                .orderBy(FirebaseContract.RecipeEntry.IngredientEntry.POSITION).get(source);
+        Task<QuerySnapshot> stepsTask = recipeReference.collection(FirebaseContract.RecipeEntry.StepEntry.COLLECTION_NAME)
+                .orderBy(FirebaseContract.RecipeEntry.StepEntry.POSITION).get(source);
+
+        return Tasks.whenAllSuccess(ingredientsTask, stepsTask)
+                .onSuccessTask(snapshots -> Tasks.forResult(new RecipeContent(
+                        ingredientsTask.getResult().toObjects(Ingredient.class),
+                        stepsTask.getResult().toObjects(Step.class))));
+    }
+
+    /**
+     * Obtains the recipes with given ids, with a whereIn query for each chunk of WHERE_IN_LIMIT ids.
+     * @param recipeIds - the recipes' ids.
+     * @param source - the source used for the reads.
+     * @return task with the recipes in the same order as the ids, the ones that don't exist are skipped.
+     */
+    private Task<List<Recipe>> queryRecipesByIds(List<String> recipeIds, Source source) {
+        List<Task<QuerySnapshot>> chunkTasks = new ArrayList<>();
+        for (int i = 0; i < recipeIds.size(); i += WHERE_IN_LIMIT) {
+            List<String> chunk = recipeIds.subList(i, Math.min(i + WHERE_IN_LIMIT, recipeIds.size()));
+            chunkTasks.add(dbFirestore.collection(FirebaseContract.RecipeEntry.COLLECTION_NAME)
+                    .whereIn(FieldPath.documentId(), new ArrayList<>(chunk))
+                    .get(source));
+        }
+
+        return Tasks.whenAllSuccess(chunkTasks)
+                .onSuccessTask(snapshots -> {
+                    Map<String, Recipe> recipesById = new HashMap<>();
+                    for (Object snapshot : snapshots) {
+                        for (DocumentSnapshot document : ((QuerySnapshot) snapshot).getDocuments()) {
+                            recipesById.put(document.getId(), document.toObject(Recipe.class));
+                        }
+                    }
+                    // Keeps the order of the given ids.
+                    List<Recipe> recipeList = new ArrayList<>();
+                    for (String recipeId : recipeIds) {
+                        Recipe recipe = recipesById.get(recipeId);
+                        if (recipe != null) {
+                            recipeList.add(recipe);
+                        }
+                    }
+                    return Tasks.forResult(recipeList);
+                });
+    }
+
+    /**
+     * Reads the modified recipes and the deleted recipes after given moment at the same time.
+     * @param since - the newest change already received.
+     * @param source - the source of the documents.
+     * @return a task with the changes, the newest change received is the next moment to read from.
+     */
+    private Task<RecipeChanges> queryRecipeChanges(Timestamp since, Source source) {
+        Task<QuerySnapshot> modifiedTask = dbFirestore.collection(FirebaseContract.RecipeEntry.COLLECTION_NAME)
+                .whereGreaterThan(FirebaseContract.RecipeEntry.MODIFICATION_DATE, since)
+                .orderBy(FirebaseContract.RecipeEntry.MODIFICATION_DATE)
+                .limit(CHANGES_LIMIT)
+                .get(source);
+        Task<QuerySnapshot> deletedTask = dbFirestore.collection(FirebaseContract.DeletedRecipeEntry.COLLECTION_NAME)
+                .whereGreaterThan(FirebaseContract.DeletedRecipeEntry.DELETION_DATE, since)
+                .orderBy(FirebaseContract.DeletedRecipeEntry.DELETION_DATE)
+                .limit(CHANGES_LIMIT)
+                .get(source);
+
+        return Tasks.whenAllSuccess(modifiedTask, deletedTask)
+                .onSuccessTask(snapshots -> {
+                    QuerySnapshot modifiedSnapshot = (QuerySnapshot) snapshots.get(0);
+                    QuerySnapshot deletedSnapshot = (QuerySnapshot) snapshots.get(1);
+                    Timestamp syncedUntil = since;
+
+                    List<Recipe> modifiedRecipes = new ArrayList<>();
+                    for (DocumentSnapshot document : modifiedSnapshot.getDocuments()) {
+                        modifiedRecipes.add(document.toObject(Recipe.class));
+                        syncedUntil = newest(syncedUntil, document.getTimestamp(FirebaseContract.RecipeEntry.MODIFICATION_DATE));
+                    }
+                    List<String> deletedRecipeIds = new ArrayList<>();
+                    for (DocumentSnapshot document : deletedSnapshot.getDocuments()) {
+                        deletedRecipeIds.add(document.getId());
+                        syncedUntil = newest(syncedUntil, document.getTimestamp(FirebaseContract.DeletedRecipeEntry.DELETION_DATE));
+                    }
+
+                    boolean complete = modifiedSnapshot.size() < CHANGES_LIMIT && deletedSnapshot.size() < CHANGES_LIMIT;
+                    return Tasks.forResult(new RecipeChanges(modifiedRecipes, deletedRecipeIds, syncedUntil, complete));
+                });
+    }
+
+    /**
+     * @param current - the newest timestamp found.
+     * @param candidate - a timestamp, may be null.
+     * @return the newest of both timestamps.
+     */
+    private static Timestamp newest(Timestamp current, Timestamp candidate) {
+        return candidate != null && candidate.compareTo(current) > 0 ? candidate : current;
+    }
+
+    /**
+     * Orders the recipes from newest to oldest, recipes with the same creation date are ordered by
+     * their document id, so every recipe has a unique position for the page cursors.
+     * @param query - the query of recipes.
+     * @return the ordered query.
+     */
+    private Query orderedRecipes(Query query) {
+        return query.orderBy(FirebaseContract.RecipeEntry.CREATION_DATE, Query.Direction.DESCENDING)
+                .orderBy(FieldPath.documentId(), Query.Direction.DESCENDING);
+    }
+
+    /**
+     * @param snapshot - the documents of a page of recipes.
+     * @return the page of recipes, with the cursor of its last document and the server timestamp of
+     * its newest change, so the changes after it can be read without receiving it again.
+     */
+    private Page<Recipe> toRecipePage(QuerySnapshot snapshot) {
+        List<DocumentSnapshot> documents = snapshot.getDocuments();
+        PageCursor cursor = documents.isEmpty() ? null
+                : PageCursor.fromSnapshot(documents.get(documents.size() - 1), FirebaseContract.RecipeEntry.CREATION_DATE);
+        Timestamp newestChange = null;
+        for (DocumentSnapshot document : documents) {
+            Timestamp changeDate = document.getTimestamp(FirebaseContract.RecipeEntry.MODIFICATION_DATE);
+            if (changeDate == null) {
+                changeDate = document.getTimestamp(FirebaseContract.RecipeEntry.CREATION_DATE);
+            }
+            if (changeDate != null) {
+                newestChange = newestChange == null ? changeDate : newest(newestChange, changeDate);
+            }
+        }
+        return new Page<>(snapshot.toObjects(Recipe.class), cursor, newestChange);
+    }
+
+    /**
+     * Emits the stored first page as a cached result, unless there are none or firestore already answered.
+     * @param result - the observable result of the read.
+     * @param firestoreAnswered - true when firestore's answer has been emitted.
+     * @param cachedRecipes - the recipes read from the local database.
+     */
+    private void emitCachedPage(MutableLiveData<Result<?>> result, AtomicBoolean firestoreAnswered, List<Recipe> cachedRecipes) {
+        if (!cachedRecipes.isEmpty() && !firestoreAnswered.get()) {
+            Recipe lastRecipe = cachedRecipes.get(cachedRecipes.size() - 1);
+            PageCursor cursor = PageCursor.fromDate(lastRecipe.getCreationDate(), lastRecipe.getId());
+            result.setValue(new Result.Success<Page<Recipe>>(new Page<>(cachedRecipes, cursor), true));
+        }
+    }
+
+    /**
+     * Emits the stored recipes as a cached result, unless there are none or firestore already answered.
+     * @param result - the observable result of the read.
+     * @param firestoreAnswered - true when firestore's answer has been emitted.
+     * @param cachedRecipes - the recipes read from the local database.
+     */
+    private void emitCached(MutableLiveData<Result<?>> result, AtomicBoolean firestoreAnswered, List<Recipe> cachedRecipes) {
+        if (!cachedRecipes.isEmpty() && !firestoreAnswered.get()) {
+            result.setValue(new Result.Success<List<Recipe>>(cachedRecipes, true));
+        }
+    }
+
+    /**
+     * @param recipeId - the recipe's id.
+     * @return the reference of the recipe's content document.
+     */
+    private DocumentReference getContentReference(String recipeId) {
+        return dbFirestore.collection(FirebaseContract.RecipeEntry.COLLECTION_NAME).document(recipeId)
+                .collection(FirebaseContract.RecipeEntry.ContentEntry.COLLECTION_NAME)
+                .document(FirebaseContract.RecipeEntry.ContentEntry.AGGREGATE_ID);
+    }
 }
@@ -13,6 +13,9 @@ public class SharedPrefRepository {
     public static final String PREFERENCE_FILE_KEY = "Shared_User_Data";
     public final static String SAVED_USERNAME_KEY = "Saved_Username";
     public final static String SAVED_PHOTO_URL_KEY = "Saved_Photo_Url";
+    public final static String SAVED_PHOTO_VERSION_KEY = "Saved_Photo_Version";
+    public final static String FAVOURITES_MIGRATED_KEY = "Favourites_Migrated_";
+    public final static String RECIPES_CONTENT_BACKFILLED_KEY = "Recipes_Content_Backfilled_";
 
     // Repository's singleton
     private static volatile SharedPrefRepository INSTANCE;
@@ -63,6 +66,15 @@ public class SharedPrefRepository {
         editor.apply();
     }
 
+    /**
+     * Writes the version of the user's photo, it changes every time the photo is replaced.
+     * @param photoVersion - the version of the user's photo, null if it has none.
+     */
+    public void setAuthUserPhotoVersion(String photoVersion) {
+        editor.putString(SAVED_PHOTO_VERSION_KEY, photoVersion);
+        editor.apply();
+    }
+
     /**
      * @return the authenticated user's username stored on the file.
      */
@@ -76,4 +88,45 @@ public class SharedPrefRepository {
     public String getAuthUserPhotoUrl() {
         return sharedPreferences.getString(SAVED_PHOTO_URL_KEY, "");
     }
+
+    /**
+     * @return the version of the authenticated user's photo stored on the file, null if it has none.
+     */
+    public String getAuthUserPhotoVersion() {
+        return sharedPreferences.getString(SAVED_PHOTO_VERSION_KEY, null);
+    }
+
+    /**
+     * Marks the favourites entries of given user as migrated to deterministic document ids.
+     * @param username - the user whose entries have been migrated.
+     */
+    public void setFavouritesMigrated(String username) {
+        editor.putBoolean(FAVOURITES_MIGRATED_KEY + username, true);
+        editor.apply();
+    }
+
+    /**
+     * @param username - the user to check.
+     * @return true if the user's favourites entries have already been migrated; false if not.
+     */
+    public boolean areFavouritesMigrated(String username) {
+        return sharedPreferences.getBoolean(FAVOURITES_MIGRATED_KEY + username, false);
+    }
+
+    /**
+     * Marks the recipes of given user as backfilled with their content document.
+     * @param username - the author whose recipes have been backfilled.
+     */
+    public void setRecipesContentBackfilled(String username) {
+        editor.putBoolean(RECIPES_CONTENT_BACKFILLED_KEY + username, true);
+        editor.apply();
+    }
+
+    /**
+     * @param username - the author to check.
+     * @return true if the author's recipes already have their content document; false if not.
+     */
+    public boolean areRecipesContentBackfilled(String username) {
+        return sharedPreferences.getBoolean(RECIPES_CONTENT_BACKFILLED_KEY + username, false);
+    }
 }
@@ -7,6 +7,8 @@ import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
 
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.FirebaseException;
 import com.google.firebase.firestore.FirebaseFirestoreException;
 import com.google.firebase.storage.FirebaseStorage;
@@ -14,17 +16,30 @@ import com.google.firebase.storage.StorageException;
 import com.google.firebase.storage.StorageReference;
 
 import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
 
 import app.itadakimasu.data.Result;
+import app.itadakimasu.data.model.ImageVariant;
 
 /**
- * Repository used to add files on firebase storage.
+ * Repository used to access the files on firebase storage, the images are uploaded in the
+ * background by the ImageUploadManager and loaded into the views from their references.
  */
 @SuppressWarnings("unchecked")
 public class StorageRepository {
     private static final String TAG = "StorageRepository";
     // Repository's singleton
     public static volatile StorageRepository INSTANCE;
+    // Bytes of the content's hash used as the version of an uploaded image.
+    private static final int VERSION_BYTES = 8;
+    // Custom metadata of the uploaded images, with the size and quality they were encoded with,
+    // written by the background uploads.
+    public static final String METADATA_WIDTH = "width";
+    public static final String METADATA_HEIGHT = "height";
+    public static final String METADATA_QUALITY = "quality";
     private final FirebaseStorage dbStorage;
 
     public static StorageRepository getInstance() {
@@ -44,62 +59,27 @@ public class StorageRepository {
 
 
     /**
-     * Given the resized image data, obtains the current user's id and uploads on the Storage
-     * a file on the child "users/", this file with have the as name the user's id.
-     *
-     * It will return a result, successful with the image's path if it's uploaded; error if it fails.
-     *
-     * @param authUserPhotoUrl - the authenticated user's photo path.
-     * @param imageData - the resized image in bytes.
-     * @return a result with the image's path on the storage or an error if it fails.
-     */
-    public LiveData<Result<?>> updateUserImage(String authUserPhotoUrl, byte[] imageData) {
-        MutableLiveData<Result<?>> result = new MutableLiveData<>();
-        Log.i(TAG, "updateUserImage: updating the user's image");
-        StorageReference userImage = dbStorage.getReference().child(authUserPhotoUrl);
-
-        userImage.putBytes(imageData)
-                .addOnSuccessListener(success -> result.setValue(new Result.Success<String>(userImage.getPath())))
-                .addOnFailureListener(failure -> {
-                    Log.e(TAG, "updateUserImage: error updating the image data", failure);
-                    result.setValue(new Result.Error(failure));
-                });
-        return result;
-    }
-
-    /**
-     * Updates an image data on the photo url path on the firebase storage.
-     *
-     * @param photoUrlReference - the photo url path where it will be updated to firebase storage.
-     * @param imageData - the image's data in bytes.
-     * @return result success with the recipe's path; result error if something wrongs happen.
-     */
-    public LiveData<Result<?>> updateRecipeImage(String photoUrlReference, byte[] imageData) {
-        MutableLiveData<Result<?>> result = new MutableLiveData<>();
-        Log.i(TAG, "updateRecipeImage: updating recipe's image data");
-        StorageReference recipeImage = dbStorage.getReference().child(photoUrlReference);
-
-        recipeImage.putBytes(imageData)
-                .addOnSuccessListener(success -> result.setValue(new Result.Success<String>(recipeImage.getPath())))
-                .addOnFailureListener(failure -> {
-                    Log.e(TAG, "updateRecipeImage: error updating recipe's image data", failure);
-                    result.setValue(new Result.Error(failure));
-                });
-        return result;
-
-    }
-
-    /**
-     * Deletes a recipe's image from the firebase storage.
+     * Deletes a recipe's image and its smaller sizes from the firebase storage.
      * @param photoUrlReference - the image url path to remove.
      * @return result success if its deleted; result error if something wrongs happen.
      */
     public LiveData<Result<?>> deleteRecipeImage(String photoUrlReference) {
         MutableLiveData<Result<?>> result = new MutableLiveData<>();
         Log.i(TAG, "deleteRecipeImage: removing recipe url reference");
-        StorageReference reference = dbStorage.getReference().child(photoUrlReference);
+        List<Task<Void>> deleteTasks = new ArrayList<>();
+        for (ImageVariant variant : ImageVariant.values()) {
+            StorageReference reference = dbStorage.getReference().child(variant.getPath(photoUrlReference));
+            deleteTasks.add(reference.delete()
+                    .continueWithTask(task -> {
+                        // The images uploaded before the sizes existed only have the full size.
+                        if (!task.isSuccessful() && variant != ImageVariant.FULL && isNotFound(task.getException())) {
+                            return Tasks.<Void>forResult(null);
+                        }
+                        return task;
+                    }));
+        }
 
-        reference.delete().addOnSuccessListener(success -> result.setValue(new Result.Success<Object>(null)))
+        Tasks.whenAll(deleteTasks).addOnSuccessListener(success -> result.setValue(new Result.Success<Object>(null)))
                 .addOnFailureListener(failure -> {
                     Log.e(TAG, "deleteRecipeImage: error removing the image reference", failure);
                     result.setValue(new Result.Error(failure));
@@ -109,7 +89,8 @@ public class StorageRepository {
     }
 
     /**
-     * Obtains the StorageReference of firebase storage from a given image url path.
+     * Obtains the StorageReference of firebase storage from a given image url path. The images are
+     * loaded into the views from their reference, Glide downloads them without a download url.
      * @param imageUrl - the image url path that will be used to obtain the StorageReference.
      * @return the Storage Reference.
      */
@@ -118,17 +99,18 @@ public class StorageRepository {
     }
 
     /**
-     * Downloads the image data from the firebase Storage, obtaining an image uri.
+     * Obtains the download uri of an image. Only used where the image's uri is needed, like the
+     * photo being edited.
      * @param imageUrl - the image url that will be used to obtain the uri.
-     * @return Result.Success with the image's uri; Result.Error if it fails.
+     * @return Result.Success with the image's uri, null if the image doesn't exist; Result.Error if it fails.
      */
     public LiveData<Result<?>> getImageUri(String imageUrl) {
         MutableLiveData<Result<?>> result = new MutableLiveData<>();
         Log.i(TAG, "getImageUri: obtaining image's data as uri");
-        dbStorage.getReference(imageUrl).getDownloadUrl().addOnSuccessListener(uri -> result.setValue(new Result.Success(uri)))
+        dbStorage.getReference(imageUrl).getDownloadUrl().addOnSuccessListener(uri -> result.setValue(new Result.Success<Uri>(uri)))
                 .addOnFailureListener(failure -> {
                     Log.e(TAG, "getImageUri: error downloading image's data", failure);
-                    if ( ((StorageException) failure).getErrorCode() == StorageException.ERROR_OBJECT_NOT_FOUND) {
+                    if (isNotFound(failure)) {
                         result.setValue(new Result.Success<Uri>(null));
                     } else {
                         result.setValue(new Result.Error(failure));
@@ -137,4 +119,32 @@ public class StorageRepository {
 
         return result;
     }
+
+    /**
+     * The images are replaced on the same path, so the hash of their content tells the versions apart.
+     * @param imageData - the uploaded image's data.
+     * @return the version of the image's content.
+     */
+    public static String getContentVersion(byte[] imageData) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(imageData);
+            StringBuilder version = new StringBuilder();
+            for (int i = 0; i < VERSION_BYTES; i++) {
+                version.append(String.format("%02x", hash[i]));
+            }
+            return version.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every android version provides SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param exception - the exception of a failed storage operation.
+     * @return true if it failed because the file doesn't exist; false if not.
+     */
+    private static boolean isNotFound(Exception exception) {
+        return exception instanceof StorageException
+                && ((StorageException) exception).getErrorCode() == StorageException.ERROR_OBJECT_NOT_FOUND;
+    }
 }
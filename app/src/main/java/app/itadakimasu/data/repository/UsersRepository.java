@@ -6,8 +6,18 @@ import android.util.Log;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import app.itadakimasu.data.Result;
 import app.itadakimasu.data.model.FirebaseContract;
@@ -20,6 +30,8 @@ public class UsersRepository {
     private static final String TAG = "UsersRepository";
     // Repository's singleton
     public static volatile UsersRepository INSTANCE;
+    // Maximum quantity of operations that firestore accepts on a write batch.
+    private static final int BATCH_LIMIT = 500;
     // Instances of data sources
     private final FirebaseFirestore dbFirestore;
     private final FirebaseAuth firebaseAuth;
@@ -76,25 +88,20 @@ public class UsersRepository {
      * and an error if it fails because something different happened.
      *
      * @param username - the username that will be searched.
+     * @param policy - the source used to read the users, it should be the server, because a cached
+     *               result could allow a repeated username.
      * @return a result (successful) if the user is found (true) or not (false); and error if a failure happens.
      */
-    public LiveData<Result<?>> isUsernameChosen(String username) {
+    public LiveData<Result<?>> isUsernameChosen(String username, ReadPolicy policy) {
         MutableLiveData<Result<?>> usernameResult = new MutableLiveData<>();
         Log.i(TAG, "isUsernameChosen: obtaining user document");
-        dbFirestore.collection(FirebaseContract.UserEntry.COLLECTION_NAME)
-                .whereEqualTo(FirebaseContract.UserEntry.USERNAME, username)
-                .get().addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        if (task.getResult().isEmpty()) {
-                            usernameResult.setValue(new Result.Success<Boolean>(false));
-                        } else {
-                            usernameResult.setValue(new Result.Success<Boolean>(true));
-                        }
-
-                    } else {
-                        Log.e(TAG, "isUsernameChosen: error obtaining document", task.getException());
-                        usernameResult.setValue(new Result.Error(task.getException()));
-                    }
+        Query query = dbFirestore.collection(FirebaseContract.UserEntry.COLLECTION_NAME)
+                .whereEqualTo(FirebaseContract.UserEntry.USERNAME, username);
+        policy.read(query::get, snapshot -> !snapshot.isEmpty(),
+                (queryDocumentSnapshots, fromCache) -> usernameResult.setValue(new Result.Success<Boolean>(!queryDocumentSnapshots.isEmpty(), fromCache)),
+                failure -> {
+                    Log.e(TAG, "isUsernameChosen: error obtaining document", failure);
+                    usernameResult.setValue(new Result.Error(failure));
                 });
         return usernameResult;
     }
@@ -116,4 +123,48 @@ public class UsersRepository {
 
         return result;
     }
+
+    /**
+     * Writes the version of the authenticated user's photo once it's uploaded, on their document and
+     * on every recipe they created. The photo is replaced on the same path, so the clients use the
+     * version to not show their cached copy of the old photo. It's written from the background
+     * upload, so it returns the task instead of a result.
+     * @param username - the authenticated user's username.
+     * @param photoVersion - the version of the uploaded photo.
+     * @param photoBlurHash - the blurhash of the uploaded photo, written on the user's document.
+     * @return the task that writes the version.
+     */
+    public Task<Void> updateUserPhotoVersion(String username, String photoVersion, String photoBlurHash) {
+        if (firebaseAuth.getCurrentUser() == null) {
+            return Tasks.forException(new IllegalStateException("There is no authenticated user"));
+        }
+        String userId = firebaseAuth.getCurrentUser().getUid();
+        Log.i(TAG, "updateUserPhotoVersion: obtaining the user's recipes");
+        return dbFirestore.collection(FirebaseContract.RecipeEntry.COLLECTION_NAME)
+                .whereEqualTo(FirebaseContract.RecipeEntry.AUTHOR, username)
+                .get(Source.SERVER)
+                .continueWithTask(query -> {
+                    List<Task<Void>> batchTasks = new ArrayList<>();
+                    WriteBatch batch = dbFirestore.batch();
+                    batch.update(dbFirestore.collection(FirebaseContract.UserEntry.COLLECTION_NAME).document(userId),
+                            FirebaseContract.UserEntry.PHOTO_VERSION, photoVersion,
+                            FirebaseContract.UserEntry.PHOTO_BLUR_HASH, photoBlurHash);
+                    int operations = 1;
+
+                    for (DocumentSnapshot document : query.getResult()) {
+                        if (operations == BATCH_LIMIT) {
+                            batchTasks.add(batch.commit());
+                            batch = dbFirestore.batch();
+                            operations = 0;
+                        }
+                        // The recipes are changed, so the other clients receive them when refreshing.
+                        batch.update(document.getReference(), FirebaseContract.RecipeEntry.AUTHOR_PHOTO_VERSION, photoVersion,
+                                FirebaseContract.RecipeEntry.MODIFICATION_DATE, FieldValue.serverTimestamp());
+                        operations++;
+                    }
+                    batchTasks.add(batch.commit());
+                    return Tasks.whenAll(batchTasks);
+                })
+                .addOnFailureListener(failure -> Log.e(TAG, "updateUserPhotoVersion: error updating the photo's version", failure));
+    }
 }
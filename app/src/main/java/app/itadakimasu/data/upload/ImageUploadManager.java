@@ -0,0 +1,276 @@
+package app.itadakimasu.data.upload;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import app.itadakimasu.data.model.EncodedImage;
+import app.itadakimasu.data.model.ImageVariant;
+import app.itadakimasu.data.repository.StorageRepository;
+
+/**
+ * Uploads the images with WorkManager, so the uploads go on when the user leaves the screen and
+ * after the process dies. The encoded images are written on the app's storage, every file is
+ * uploaded by an ImageUploadWorker and, once all of them are uploaded, a PhotoVersionWorker writes
+ * the image's version. A new upload of the same recipe or user replaces the pending one.
+ * The files are removed once they are uploaded, when their upload fails for good or when it's cancelled.
+ */
+public class ImageUploadManager {
+    private static final String TAG = "ImageUploadManager";
+    // Directory of the app's storage where the images are kept until they are uploaded.
+    private static final String UPLOADS_DIRECTORY = "image_uploads";
+    // Prefixes of the unique work names, followed by the recipe's id or the username.
+    private static final String RECIPE_WORK_PREFIX = "recipe_image_";
+    private static final String USER_WORK_PREFIX = "user_image_";
+    private static final long BACKOFF_SECONDS = 10;
+    // Manager's singleton
+    private static volatile ImageUploadManager INSTANCE;
+    private final WorkManager workManager;
+    private final File uploadsDirectory;
+    // Executor where the files are written.
+    private final ExecutorService fileExecutor;
+    private final Handler mainHandler;
+
+    /**
+     * @param context - app's context required to obtain the work manager and the app's storage.
+     * @return the manager's singleton.
+     */
+    public static ImageUploadManager getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (ImageUploadManager.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new ImageUploadManager(context.getApplicationContext());
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    private ImageUploadManager(Context context) {
+        this.workManager = WorkManager.getInstance(context);
+        this.uploadsDirectory = new File(context.getFilesDir(), UPLOADS_DIRECTORY);
+        this.fileExecutor = Executors.newSingleThreadExecutor();
+        this.mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * Uploads every size of a recipe's image next to its photo url and writes its version on the recipe.
+     * @param recipeId - the recipe's id.
+     * @param photoUrl - the recipe's photo url path, where the full size is uploaded.
+     * @param images - the encoded image of every size, it must contain the full size.
+     * @return the observable state of the upload, delivered on the main thread.
+     */
+    public LiveData<ImageUploadState> uploadRecipeImage(String recipeId, String photoUrl, Map<ImageVariant, EncodedImage> images) {
+        // The smaller sizes are made from the full size, so its content tells the version.
+        String photoVersion = StorageRepository.getContentVersion(images.get(ImageVariant.FULL).getData());
+        Map<String, EncodedImage> files = new LinkedHashMap<>();
+        for (Map.Entry<ImageVariant, EncodedImage> image : images.entrySet()) {
+            files.put(image.getKey().getPath(photoUrl), image.getValue());
+        }
+        Data versionData = new Data.Builder()
+                .putString(PhotoVersionWorker.KEY_RECIPE_ID, recipeId)
+                .putString(PhotoVersionWorker.KEY_PHOTO_VERSION, photoVersion)
+                .putString(PhotoVersionWorker.KEY_BLUR_HASH, images.get(ImageVariant.FULL).getBlurHash())
+                .build();
+        return enqueue(RECIPE_WORK_PREFIX + recipeId, photoVersion, files, versionData);
+    }
+
+    /**
+     * Uploads the authenticated user's photo and writes its version on their document and recipes.
+     * @param username - the authenticated user's username.
+     * @param photoUrl - the user's photo url path.
+     * @param image - the encoded photo.
+     * @return the observable state of the upload, delivered on the main thread.
+     */
+    public LiveData<ImageUploadState> uploadUserImage(String username, String photoUrl, EncodedImage image) {
+        String photoVersion = StorageRepository.getContentVersion(image.getData());
+        Map<String, EncodedImage> files = new LinkedHashMap<>();
+        files.put(photoUrl, image);
+        Data versionData = new Data.Builder()
+                .putString(PhotoVersionWorker.KEY_USERNAME, username)
+                .putString(PhotoVersionWorker.KEY_PHOTO_VERSION, photoVersion)
+                .putString(PhotoVersionWorker.KEY_BLUR_HASH, image.getBlurHash())
+                .build();
+        return enqueue(USER_WORK_PREFIX + username, photoVersion, files, versionData);
+    }
+
+    /**
+     * Writes the files and enqueues their uploads, followed by the version's write.
+     * @param workName - the unique name of the work, a pending work with the same name is replaced.
+     * @param photoVersion - the version of the image.
+     * @param images - the encoded images by the storage path where they are uploaded.
+     * @param versionData - the input of the worker that writes the version.
+     */
+    private LiveData<ImageUploadState> enqueue(String workName, String photoVersion, Map<String, EncodedImage> images, Data versionData) {
+        MediatorLiveData<ImageUploadState> state = new MediatorLiveData<>();
+        state.setValue(new ImageUploadState(ImageUploadState.Status.PENDING, 0, null));
+        // Tags the requests of this upload, so the ones of a replaced upload aren't observed.
+        String uploadTag = UUID.randomUUID().toString();
+
+        fileExecutor.execute(() -> {
+            Constraints constraints = new Constraints.Builder().setRequiredNetworkType(NetworkType.CONNECTED).build();
+            List<OneTimeWorkRequest> uploads = new ArrayList<>();
+            try {
+                String filePrefix = workName + "_" + photoVersion + "_";
+                removeStaleFiles(workName + "_", filePrefix);
+                int index = 0;
+                for (Map.Entry<String, EncodedImage> image : images.entrySet()) {
+                    File file = writeFile(filePrefix + index++, image.getValue());
+                    uploads.add(new OneTimeWorkRequest.Builder(ImageUploadWorker.class)
+                            .setInputData(new Data.Builder()
+                                    .putString(ImageUploadWorker.KEY_STORAGE_PATH, image.getKey())
+                                    .putString(ImageUploadWorker.KEY_FILE_PATH, file.getPath())
+                                    .putString(ImageUploadWorker.KEY_CONTENT_TYPE, image.getValue().getMimeType())
+                                    .putInt(ImageUploadWorker.KEY_WIDTH, image.getValue().getWidth())
+                                    .putInt(ImageUploadWorker.KEY_HEIGHT, image.getValue().getHeight())
+                                    .putInt(ImageUploadWorker.KEY_QUALITY, image.getValue().getQuality())
+                                    .build())
+                            .setConstraints(constraints)
+                            .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_SECONDS, TimeUnit.SECONDS)
+                            .addTag(uploadTag)
+                            .build());
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "enqueue: error writing the images to upload", e);
+                mainHandler.post(() -> state.setValue(new ImageUploadState(ImageUploadState.Status.FAILED, 0, null)));
+                return;
+            }
+
+            OneTimeWorkRequest versionRequest = new OneTimeWorkRequest.Builder(PhotoVersionWorker.class)
+                    .setInputData(versionData)
+                    .setConstraints(constraints)
+                    .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_SECONDS, TimeUnit.SECONDS)
+                    .addTag(uploadTag)
+                    .build();
+            try {
+                workManager.beginUniqueWork(workName, ExistingWorkPolicy.REPLACE, uploads)
+                        .then(versionRequest)
+                        .enqueue().getResult().get();
+            } catch (ExecutionException | InterruptedException e) {
+                Log.e(TAG, "enqueue: error enqueuing the upload", e);
+                mainHandler.post(() -> state.setValue(new ImageUploadState(ImageUploadState.Status.FAILED, 0, null)));
+                return;
+            }
+            Log.i(TAG, "enqueue: uploading " + uploads.size() + " images of " + workName);
+
+            int totalRequests = uploads.size() + 1;
+            mainHandler.post(() -> state.addSource(workManager.getWorkInfosByTagLiveData(uploadTag),
+                    workInfos -> state.setValue(getUploadState(workInfos, totalRequests, photoVersion))));
+        });
+        return state;
+    }
+
+    /**
+     * Cancels the pending upload of a recipe's image and removes its files, used when the recipe is
+     * deleted so its image isn't uploaded afterwards.
+     * @param recipeId - the deleted recipe's id.
+     */
+    public void cancelRecipeImageUpload(String recipeId) {
+        String workName = RECIPE_WORK_PREFIX + recipeId;
+        workManager.cancelUniqueWork(workName);
+        fileExecutor.execute(() -> removeStaleFiles(workName + "_", null));
+    }
+
+    /**
+     * Joins the states of every request of an upload. Every request weights the same on the progress,
+     * the running uploads by the bytes they transferred.
+     */
+    private static ImageUploadState getUploadState(List<WorkInfo> workInfos, int totalRequests, String photoVersion) {
+        int succeeded = 0;
+        float progress = 0;
+        boolean running = false;
+        for (WorkInfo workInfo : workInfos) {
+            switch (workInfo.getState()) {
+                case SUCCEEDED:
+                    succeeded++;
+                    progress += 1;
+                    break;
+                case FAILED:
+                case CANCELLED:
+                    return new ImageUploadState(ImageUploadState.Status.FAILED, 0, null);
+                case RUNNING:
+                    running = true;
+                    long totalBytes = workInfo.getProgress().getLong(ImageUploadWorker.KEY_TOTAL_BYTES, 0);
+                    if (totalBytes > 0) {
+                        progress += (float) workInfo.getProgress().getLong(ImageUploadWorker.KEY_BYTES_TRANSFERRED, 0) / totalBytes;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        if (succeeded == totalRequests) {
+            return new ImageUploadState(ImageUploadState.Status.SUCCEEDED, 100, photoVersion);
+        }
+        ImageUploadState.Status status = running || succeeded > 0 ? ImageUploadState.Status.RUNNING : ImageUploadState.Status.PENDING;
+        return new ImageUploadState(status, Math.round(progress * 100 / totalRequests), null);
+    }
+
+    /**
+     * Writes an encoded image on the uploads directory. If it's already written, by an upload that is
+     * retried, it isn't written again.
+     * @param fileName - the name of the file, without extension.
+     * @param image - the encoded image.
+     * @return the written file.
+     */
+    private File writeFile(String fileName, EncodedImage image) throws IOException {
+        String extension = EncodedImage.MIME_TYPE_WEBP.equals(image.getMimeType()) ? ".webp" : ".jpg";
+        File file = new File(uploadsDirectory, fileName + extension);
+        if (file.exists() && file.length() == image.getData().length) {
+            return file;
+        }
+        if (!uploadsDirectory.exists() && !uploadsDirectory.mkdirs()) {
+            throw new IOException("The uploads directory can't be created");
+        }
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+            outputStream.write(image.getData());
+        }
+        return file;
+    }
+
+    /**
+     * Removes the files of an older upload of the same recipe or user, which is replaced or cancelled.
+     * @param workPrefix - the prefix of every file of the recipe or user.
+     * @param filePrefix - the prefix of the files of the current upload, which are kept; null to
+     *                   remove every file.
+     */
+    private void removeStaleFiles(String workPrefix, @Nullable String filePrefix) {
+        File[] files = uploadsDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (name.startsWith(workPrefix) && (filePrefix == null || !name.startsWith(filePrefix)) && !file.delete()) {
+                Log.w(TAG, "removeStaleFiles: the file couldn't be removed " + name);
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package app.itadakimasu.data.upload;
+
+import androidx.annotation.Nullable;
+
+/**
+ * State of an image being uploaded in the background: whether it's still running, its progress and,
+ * once it's done, the version of the uploaded image.
+ */
+public class ImageUploadState {
+    public enum Status {
+        // The files are being written or the upload is waiting for the network.
+        PENDING,
+        RUNNING,
+        SUCCEEDED,
+        FAILED
+    }
+
+    private final Status status;
+    // Progress from 0 to 100.
+    private final int progress;
+    @Nullable
+    private final String photoVersion;
+
+    ImageUploadState(Status status, int progress, @Nullable String photoVersion) {
+        this.status = status;
+        this.progress = progress;
+        this.photoVersion = photoVersion;
+    }
+
+    /**
+     * @param photoVersion - the version of the image.
+     * @return the state of an image that is already uploaded, so it doesn't need to be uploaded again.
+     */
+    public static ImageUploadState alreadyUploaded(String photoVersion) {
+        return new ImageUploadState(Status.SUCCEEDED, 100, photoVersion);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public int getProgress() {
+        return progress;
+    }
+
+    /**
+     * @return the version of the uploaded image, only when the upload succeeded.
+     */
+    @Nullable
+    public String getPhotoVersion() {
+        return photoVersion;
+    }
+}
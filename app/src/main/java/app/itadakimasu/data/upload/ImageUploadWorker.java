@@ -0,0 +1,160 @@
+package app.itadakimasu.data.upload;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.work.Data;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageException;
+import com.google.firebase.storage.StorageMetadata;
+import com.google.firebase.storage.StorageReference;
+import com.google.firebase.storage.UploadTask;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+
+import app.itadakimasu.data.repository.StorageRepository;
+
+/**
+ * Worker that uploads an encoded image, written on the app's storage, to firebase storage.
+ * The upload is resumable: the session uri is saved while it runs, so if the worker is stopped or
+ * the process dies, the next attempt continues where it was left instead of starting again.
+ * The file is removed once it's uploaded or its upload fails for good.
+ */
+public class ImageUploadWorker extends Worker {
+    private static final String TAG = "ImageUploadWorker";
+    // Input data keys.
+    static final String KEY_STORAGE_PATH = "storage_path";
+    static final String KEY_FILE_PATH = "file_path";
+    static final String KEY_CONTENT_TYPE = "content_type";
+    static final String KEY_WIDTH = "width";
+    static final String KEY_HEIGHT = "height";
+    static final String KEY_QUALITY = "quality";
+    // Progress data keys.
+    static final String KEY_BYTES_TRANSFERRED = "bytes_transferred";
+    static final String KEY_TOTAL_BYTES = "total_bytes";
+    // File that keeps the session uri of every upload in progress, by storage path.
+    private static final String SESSIONS_FILE_KEY = "Image_Upload_Sessions";
+    // Attempts before the upload is reported as failed.
+    private static final int MAX_ATTEMPTS = 5;
+    private final SharedPreferences sessions;
+    private volatile UploadTask uploadTask;
+    // Released when the upload completes or the worker is stopped, a paused upload never completes.
+    private final CountDownLatch uploadFinished = new CountDownLatch(1);
+
+    public ImageUploadWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+        this.sessions = context.getSharedPreferences(SESSIONS_FILE_KEY, Context.MODE_PRIVATE);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        String storagePath = getInputData().getString(KEY_STORAGE_PATH);
+        File file = new File(getInputData().getString(KEY_FILE_PATH));
+        if (!file.exists()) {
+            Log.e(TAG, "doWork: the image to upload doesn't exist " + file.getPath());
+            sessions.edit().remove(storagePath).apply();
+            return Result.failure();
+        }
+
+        StorageReference reference = FirebaseStorage.getInstance().getReference(storagePath);
+        StorageMetadata metadata = new StorageMetadata.Builder()
+                .setContentType(getInputData().getString(KEY_CONTENT_TYPE))
+                .setCustomMetadata(StorageRepository.METADATA_WIDTH, String.valueOf(getInputData().getInt(KEY_WIDTH, 0)))
+                .setCustomMetadata(StorageRepository.METADATA_HEIGHT, String.valueOf(getInputData().getInt(KEY_HEIGHT, 0)))
+                .setCustomMetadata(StorageRepository.METADATA_QUALITY, String.valueOf(getInputData().getInt(KEY_QUALITY, 0)))
+                .build();
+
+        String sessionUri = sessions.getString(storagePath, null);
+        if (sessionUri != null) {
+            Log.i(TAG, "doWork: resuming the upload of " + storagePath);
+            uploadTask = reference.putFile(Uri.fromFile(file), metadata, Uri.parse(sessionUri));
+        } else {
+            Log.i(TAG, "doWork: uploading " + storagePath);
+            uploadTask = reference.putFile(Uri.fromFile(file), metadata);
+        }
+        uploadTask.addOnProgressListener(getBackgroundExecutor(), snapshot -> {
+            Uri uploadSessionUri = snapshot.getUploadSessionUri();
+            if (uploadSessionUri != null && sessionUri == null) {
+                sessions.edit().putString(storagePath, uploadSessionUri.toString()).apply();
+            }
+            setProgressAsync(new Data.Builder()
+                    .putLong(KEY_BYTES_TRANSFERRED, snapshot.getBytesTransferred())
+                    .putLong(KEY_TOTAL_BYTES, snapshot.getTotalByteCount())
+                    .build());
+        });
+
+        uploadTask.addOnCompleteListener(Runnable::run, task -> uploadFinished.countDown());
+
+        try {
+            uploadFinished.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            uploadTask.pause();
+            return Result.retry();
+        }
+        // The saved session is kept, so the next attempt resumes the paused upload.
+        if (isStopped()) {
+            return Result.retry();
+        }
+        if (!uploadTask.isSuccessful()) {
+            Result result = onUploadFailed(storagePath, sessionUri != null, uploadTask.getException());
+            // A failure isn't retried, so the file would never be removed.
+            if (result instanceof Result.Failure) {
+                removeFile(file);
+            }
+            return result;
+        }
+
+        sessions.edit().remove(storagePath).apply();
+        removeFile(file);
+        return Result.success();
+    }
+
+    private static void removeFile(File file) {
+        if (!file.delete()) {
+            Log.w(TAG, "removeFile: the image couldn't be removed " + file.getPath());
+        }
+    }
+
+    /**
+     * The upload is paused when the worker is stopped, so its session can be resumed on the next
+     * attempt, and the worker's thread stops waiting for it.
+     */
+    @Override
+    public void onStopped() {
+        super.onStopped();
+        UploadTask task = uploadTask;
+        if (task != null) {
+            task.pause();
+        }
+        uploadFinished.countDown();
+    }
+
+    /**
+     * Decides whether a failed upload is tried again. A resumed session that fails is dropped, so the
+     * next attempt starts a new one in case the session expired.
+     */
+    private Result onUploadFailed(String storagePath, boolean resumed, @Nullable Exception e) {
+        Log.e(TAG, "onUploadFailed: error uploading " + storagePath, e);
+        boolean recoverable = resumed
+                || !(e instanceof StorageException)
+                || ((StorageException) e).getIsRecoverableException();
+        if (resumed) {
+            sessions.edit().remove(storagePath).apply();
+        }
+        if (recoverable && getRunAttemptCount() < MAX_ATTEMPTS) {
+            return Result.retry();
+        }
+        sessions.edit().remove(storagePath).apply();
+        return Result.failure();
+    }
+}
@@ -0,0 +1,63 @@
+package app.itadakimasu.data.upload;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.android.gms.tasks.Tasks;
+
+import java.util.concurrent.ExecutionException;
+
+import app.itadakimasu.data.repository.RecipesRepository;
+import app.itadakimasu.data.repository.SharedPrefRepository;
+import app.itadakimasu.data.repository.UsersRepository;
+
+/**
+ * Worker that writes the version and blurhash of an image once every file of it is uploaded, on the recipe's
+ * document or on the user's document and recipes, so the clients stop showing the old image.
+ */
+public class PhotoVersionWorker extends Worker {
+    private static final String TAG = "PhotoVersionWorker";
+    // Input data keys, the recipe's id is set for recipe images and the username for user photos.
+    static final String KEY_RECIPE_ID = "recipe_id";
+    static final String KEY_USERNAME = "username";
+    static final String KEY_PHOTO_VERSION = "photo_version";
+    static final String KEY_BLUR_HASH = "blur_hash";
+    // Attempts before the version is reported as not written.
+    private static final int MAX_ATTEMPTS = 5;
+
+    public PhotoVersionWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        String recipeId = getInputData().getString(KEY_RECIPE_ID);
+        String username = getInputData().getString(KEY_USERNAME);
+        String photoVersion = getInputData().getString(KEY_PHOTO_VERSION);
+        String blurHash = getInputData().getString(KEY_BLUR_HASH);
+
+        try {
+            if (recipeId != null) {
+                Tasks.await(RecipesRepository.getInstance().updateRecipePhotoVersion(recipeId, photoVersion, blurHash));
+            } else {
+                Tasks.await(UsersRepository.getInstance().updateUserPhotoVersion(username, photoVersion, blurHash));
+                // The version is saved locally too, unless the user logged out meanwhile.
+                SharedPrefRepository sharedPrefRepository = SharedPrefRepository.getInstance(getApplicationContext());
+                if (username.equals(sharedPrefRepository.getAuthUsername())) {
+                    sharedPrefRepository.setAuthUserPhotoVersion(photoVersion);
+                }
+            }
+        } catch (ExecutionException | InterruptedException e) {
+            Log.e(TAG, "doWork: error writing the photo's version", e);
+            return getRunAttemptCount() < MAX_ATTEMPTS ? Result.retry() : Result.failure();
+        }
+
+        return Result.success(new Data.Builder().putString(KEY_PHOTO_VERSION, photoVersion).build());
+    }
+}
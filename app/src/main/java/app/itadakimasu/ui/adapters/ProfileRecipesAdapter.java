@@ -1,7 +1,7 @@
 package app.itadakimasu.ui.adapters;
 
 import android.content.Context;
-import android.net.Uri;
+import android.graphics.drawable.Drawable;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -11,27 +11,28 @@ import android.widget.PopupMenu;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
-import androidx.lifecycle.LifecycleOwner;
 import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
+import com.bumptech.glide.util.ViewPreloadSizeProvider;
+
+import java.util.Objects;
 
 import app.itadakimasu.R;
-import app.itadakimasu.data.Result;
+import app.itadakimasu.data.model.ImageVariant;
 import app.itadakimasu.data.model.Recipe;
 import app.itadakimasu.data.repository.SharedPrefRepository;
-import app.itadakimasu.data.repository.StorageRepository;
 import app.itadakimasu.databinding.ItemMyRecipePreviewBinding;
 import app.itadakimasu.interfaces.OnItemClickDisplayListener;
 import app.itadakimasu.interfaces.OnItemClickEditListener;
 import app.itadakimasu.interfaces.OnItemClickRemoveListener;
+import app.itadakimasu.utils.AppGlideModuleUtils;
+import app.itadakimasu.utils.BlurHashUtils;
 
 /**
  * Adapter used on the profile's RecyclerView with the item "my recipe preview"
  */
-@SuppressWarnings("unchecked")
 public class ProfileRecipesAdapter extends ListAdapter<Recipe, ProfileRecipesViewHolder> {
 
     // Diff callback to check the difference between recipes.
@@ -48,17 +49,18 @@ public class ProfileRecipesAdapter extends ListAdapter<Recipe, ProfileRecipesVie
 
             boolean sameTitle = oldItem.getTitle().equals(newItem.getTitle());
             boolean sameDesc = oldItem.getDescription().equals(newItem.getDescription());
-            boolean samePhoto = oldItem.getPhotoUrl().equals(newItem.getPhotoUrl());
+            boolean samePhoto = oldItem.getPhotoUrl().equals(newItem.getPhotoUrl())
+                    && oldItem.isPhotoVariantsUploaded() == newItem.isPhotoVariantsUploaded();
+            boolean samePhotoVersion = Objects.equals(oldItem.getPhotoVersion(), newItem.getPhotoVersion())
+                    && Objects.equals(oldItem.getPhotoBlurHash(), newItem.getPhotoBlurHash());
 
-            return sameAuthor && sameAuthorPhoto && sameTitle && sameDesc && samePhoto;
+            return sameAuthor && sameAuthorPhoto && sameTitle && sameDesc && samePhoto && samePhotoVersion;
         }
     };
     // Shared repository to remove 'more' buttons if  the username is the same as the authenticated user.
     private final SharedPrefRepository sharedPrefRepository;
-    // Storage repository to load the image.
-    private final StorageRepository storageRepository;
-    // Lifecycle to download image's data.
-    private final LifecycleOwner lifecycleOwner;
+    // Size of the recipe's image view, used to preload the images of the next rows.
+    private final ViewPreloadSizeProvider<Recipe> preloadSizeProvider;
     // Interfaces from display, edit and remove  a recipe implementation.
     private OnItemClickDisplayListener displayListener;
     private OnItemClickEditListener editListener;
@@ -68,13 +70,11 @@ public class ProfileRecipesAdapter extends ListAdapter<Recipe, ProfileRecipesVie
     /**
      * Constructor of the adapter.
      * @param context - the context of the app for loading the SharedPref repository.
-     * @param viewLifecycleOwner - the lifecycler owner of the fragment
      */
-    public ProfileRecipesAdapter(Context context, LifecycleOwner viewLifecycleOwner) {
+    public ProfileRecipesAdapter(Context context) {
         super(DIFF_CALLBACK);
-        this.lifecycleOwner = viewLifecycleOwner;
+        this.preloadSizeProvider = new ViewPreloadSizeProvider<>();
         this.sharedPrefRepository = SharedPrefRepository.getInstance(context);
-        this.storageRepository = StorageRepository.getInstance();
     }
 
     /**
@@ -84,6 +84,7 @@ public class ProfileRecipesAdapter extends ListAdapter<Recipe, ProfileRecipesVie
     @Override
     public ProfileRecipesViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         ItemMyRecipePreviewBinding binding = ItemMyRecipePreviewBinding.inflate(LayoutInflater.from(parent.getContext()), parent, false);
+        preloadSizeProvider.setView(binding.ivRecipeImage);
         return new ProfileRecipesViewHolder(binding, editListener, removeListener, displayListener);
     }
 
@@ -96,13 +97,8 @@ public class ProfileRecipesAdapter extends ListAdapter<Recipe, ProfileRecipesVie
     public void onBindViewHolder(@NonNull ProfileRecipesViewHolder holder, int position) {
         final Recipe recipe = getItem(position);
 
-        // Downloads the image's data
-        storageRepository.getImageUri(recipe.getPhotoUrl()).observe(lifecycleOwner, result -> {
-            if (result instanceof Result.Success) {
-                Uri uriImage = ((Result.Success<Uri>) result).getData();
-                holder.setRecipeImage(uriImage);
-            }
-        });
+        // Downloads the image's data, in the size that fits the row.
+        holder.bindRecipeImage(recipe.getPhotoUrl(ImageVariant.THUMBNAIL), recipe.getPhotoVersion(), recipe.getPhotoBlurHash());
 
 
         holder.setTitle(recipe.getTitle());
@@ -114,6 +110,22 @@ public class ProfileRecipesAdapter extends ListAdapter<Recipe, ProfileRecipesVie
 
     }
 
+    /**
+     * Cancels the load of the recycled row's image, so it isn't shown on its next recipe.
+     */
+    @Override
+    public void onViewRecycled(@NonNull ProfileRecipesViewHolder holder) {
+        super.onViewRecycled(holder);
+        holder.clearImage();
+    }
+
+    /**
+     * @return the size of the rows' recipe image, used to preload the images of the next rows.
+     */
+    public ViewPreloadSizeProvider<Recipe> getPreloadSizeProvider() {
+        return preloadSizeProvider;
+    }
+
     /**
      * Establish the display listener for this adapter.
      * @param listener - the implementation of this listener.
@@ -147,6 +159,8 @@ class ProfileRecipesViewHolder extends RecyclerView.ViewHolder {
     private final TextView tvTitle;
     private final TextView tvDescription;
     private final ImageButton ibMore;
+    // Binder of the recipe's image, it cancels the previous load on every bind.
+    private final RowImageBinder recipeImageBinder;
 
     /**
      * Given a binding of a layout and the implementation of the interfaces, set all the views
@@ -163,6 +177,7 @@ class ProfileRecipesViewHolder extends RecyclerView.ViewHolder {
         this.tvTitle = binding.tvTitle;
         this.tvDescription = binding.tvDescription;
         this.ibMore = binding.ibMore;
+        this.recipeImageBinder = new RowImageBinder(ivRecipeImage);
         this.ibMore.setOnClickListener(v -> {
             // Creates a pop menu, this will display to the user the menu for edit or delete options.
             PopupMenu popupMenu = new PopupMenu(binding.getRoot().getContext(), v);
@@ -199,11 +214,25 @@ class ProfileRecipesViewHolder extends RecyclerView.ViewHolder {
     }
 
     /**
-     * Sets the image using glide and the image reference on the recipe's image view.
-     * @param uriImage - the downloaded image's uri.
+     * Shows the recipe's blurhash right away, then downloads the image and sets it using glide on the
+     * recipe's image view.
+     * @param photoUrl - the recipe's image url path.
+     * @param version - the version of the recipe's image.
+     * @param blurHash - the blurhash shown until the image is loaded.
+     */
+    public void bindRecipeImage(String photoUrl, String version, String blurHash) {
+        Drawable placeholder = BlurHashUtils.getPlaceholder(ivRecipeImage.getResources(), blurHash);
+        ivRecipeImage.setScaleType(ImageView.ScaleType.CENTER_CROP);
+        recipeImageBinder.bind(photoUrl, placeholder, (requestManager, imageReference) ->
+                AppGlideModuleUtils.loadListImage(requestManager, imageReference, version)
+                        .error(R.drawable.ic_baseline_image_not_supported_24));
+    }
+
+    /**
+     * Cancels the load of the recipe's image.
      */
-    public void setRecipeImage(Uri uriImage) {
-        Glide.with(ivRecipeImage.getContext()).load(uriImage).error(R.drawable.ic_baseline_image_not_supported_24).centerCrop().into(ivRecipeImage);
+    public void clearImage() {
+        recipeImageBinder.clear();
     }
 
     /**
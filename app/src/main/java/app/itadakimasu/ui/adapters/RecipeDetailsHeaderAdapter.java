@@ -0,0 +1,280 @@
+package app.itadakimasu.ui.adapters;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.CheckBox;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.Target;
+
+import java.util.List;
+
+import app.itadakimasu.R;
+import app.itadakimasu.data.model.ImageVariant;
+import app.itadakimasu.data.model.Recipe;
+import app.itadakimasu.databinding.ItemRecipeDetailsHeaderBinding;
+import app.itadakimasu.utils.AppGlideModuleUtils;
+import app.itadakimasu.utils.BlurHashUtils;
+
+/**
+ * Adapter of the first row of the details fragment's list: the author, the recipe's image, title,
+ * description and its favourite state. It has no rows until the recipe is set. The data is kept by
+ * the adapter, so the row can be recycled when it's scrolled away and bound again.
+ */
+public class RecipeDetailsHeaderAdapter extends RecyclerView.Adapter<DetailsHeaderViewHolder> {
+    // Payload used to update the favourite checkbox without loading the images again.
+    private static final Object PAYLOAD_FAVOURITE = new Object();
+
+    private final Context context;
+    private Recipe recipe;
+    private boolean favourite;
+    private View.OnClickListener onAuthorClickListener;
+    private View.OnClickListener onFavouriteClickListener;
+    private OnImageLoadFailedListener onImageLoadFailedListener;
+
+    /**
+     * Listener called when an image of the row can't be loaded.
+     */
+    public interface OnImageLoadFailedListener {
+        /**
+         * @param retry - binds the row again, loading its images.
+         */
+        void onImageLoadFailed(Runnable retry);
+    }
+
+    /**
+     * Constructor to create an instance of this adapter.
+     * @param context - the context of the fragment.
+     */
+    public RecipeDetailsHeaderAdapter(Context context) {
+        this.context = context;
+    }
+
+    /**
+     * Sets the recipe shown on the row, adding the row if it's the first one.
+     * @param recipe - the selected recipe.
+     */
+    public void setRecipe(@NonNull Recipe recipe) {
+        boolean added = this.recipe == null;
+        this.recipe = recipe;
+        if (added) {
+            notifyItemInserted(0);
+        } else {
+            notifyItemChanged(0);
+        }
+    }
+
+    /**
+     * Checks or unchecks the favourite checkbox.
+     * @param favourite - true if the recipe is one of the user's favourites.
+     */
+    public void setFavourite(boolean favourite) {
+        this.favourite = favourite;
+        if (recipe != null) {
+            notifyItemChanged(0, PAYLOAD_FAVOURITE);
+        }
+    }
+
+    public void setOnAuthorClickListener(View.OnClickListener onAuthorClickListener) {
+        this.onAuthorClickListener = onAuthorClickListener;
+    }
+
+    public void setOnFavouriteClickListener(View.OnClickListener onFavouriteClickListener) {
+        this.onFavouriteClickListener = onFavouriteClickListener;
+    }
+
+    public void setOnImageLoadFailedListener(OnImageLoadFailedListener onImageLoadFailedListener) {
+        this.onImageLoadFailedListener = onImageLoadFailedListener;
+    }
+
+    /**
+     * Creates an instance of the view holder, an inflation of item_recipe_details_header layout.
+     * @return an instance of DetailsHeaderViewHolder.
+     */
+    @NonNull
+    @Override
+    public DetailsHeaderViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        ItemRecipeDetailsHeaderBinding binding = ItemRecipeDetailsHeaderBinding.inflate(LayoutInflater.from(parent.getContext()), parent, false);
+        DetailsHeaderViewHolder holder = new DetailsHeaderViewHolder(binding);
+        binding.ivUserImage.setOnClickListener(this::onAuthorClick);
+        binding.tvAuthor.setOnClickListener(this::onAuthorClick);
+        binding.cbFavourite.setOnClickListener(v -> {
+            if (onFavouriteClickListener != null) {
+                onFavouriteClickListener.onClick(v);
+            }
+        });
+        return holder;
+    }
+
+    /**
+     * Displays the recipe's data, when only the favourite state changed the images are kept.
+     * @param holder - the layout of the row.
+     * @param position - always 0, the adapter has a single row.
+     * @param payloads - PAYLOAD_FAVOURITE if only the favourite state changed.
+     */
+    @Override
+    public void onBindViewHolder(@NonNull DetailsHeaderViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (!payloads.isEmpty() && payloads.stream().allMatch(payload -> payload == PAYLOAD_FAVOURITE)) {
+            holder.setFavourite(favourite);
+        } else {
+            onBindViewHolder(holder, position);
+        }
+    }
+
+    /**
+     * Displays the recipe's data and loads its images.
+     * @param holder - the layout of the row.
+     * @param position - always 0, the adapter has a single row.
+     */
+    @Override
+    public void onBindViewHolder(@NonNull DetailsHeaderViewHolder holder, int position) {
+        holder.setTvAuthor(context.getString(R.string.created_by, recipe.getAuthor()));
+        holder.setTvTitle(recipe.getTitle());
+        holder.setTvDescription(recipe.getDescription());
+        holder.setFavourite(favourite);
+
+        RequestListener<Drawable> retryListener = showRetryOnFailure(holder);
+        holder.bindAuthorImage(recipe.getPhotoAuthorUrl(), recipe.getPhotoAuthorVersion(), retryListener);
+        holder.bindRecipeImage(recipe.getPhotoUrl(ImageVariant.HERO), recipe.getPhotoVersion(), recipe.getPhotoBlurHash(), retryListener);
+    }
+
+    /**
+     * Cancels the image loads of the row when it's recycled.
+     * @param holder - the recycled row.
+     */
+    @Override
+    public void onViewRecycled(@NonNull DetailsHeaderViewHolder holder) {
+        super.onViewRecycled(holder);
+        holder.clearImages();
+    }
+
+    @Override
+    public int getItemCount() {
+        return recipe == null ? 0 : 1;
+    }
+
+    private void onAuthorClick(View view) {
+        if (onAuthorClickListener != null) {
+            onAuthorClickListener.onClick(view);
+        }
+    }
+
+    /**
+     * @param holder - the row whose images are loaded.
+     * @return the listener that lets the user retry the loads of the row's images when one fails.
+     * It's shared by the images of a bind and reports its first failure only, the retry loads both.
+     * Images that were never uploaded aren't reported.
+     */
+    private RequestListener<Drawable> showRetryOnFailure(DetailsHeaderViewHolder holder) {
+        return new RequestListener<>() {
+            private boolean reported;
+
+            @Override
+            public boolean onLoadFailed(@Nullable GlideException e, Object model, Target<Drawable> target, boolean isFirstResource) {
+                if (!reported && onImageLoadFailedListener != null && !AppGlideModuleUtils.isImageMissing(e)
+                        && holder.getBindingAdapterPosition() != RecyclerView.NO_POSITION) {
+                    reported = true;
+                    onImageLoadFailedListener.onImageLoadFailed(() -> notifyItemChanged(0));
+                }
+                return false;
+            }
+
+            @Override
+            public boolean onResourceReady(Drawable resource, Object model, Target<Drawable> target, DataSource dataSource, boolean isFirstResource) {
+                return false;
+            }
+        };
+    }
+}
+
+/**
+ * ViewHolder class that loads the item_recipe_details_header layout.
+ */
+class DetailsHeaderViewHolder extends RecyclerView.ViewHolder {
+    private final ImageView ivRecipeImage;
+    private final TextView tvAuthor;
+    private final TextView tvTitle;
+    private final TextView tvDescription;
+    private final CheckBox cbFavourite;
+    private final RowImageBinder authorImageBinder;
+    private final RowImageBinder recipeImageBinder;
+
+    /**
+     * Establish the references to the views.
+     * @param binding - the inflated layout of item_recipe_details_header.
+     */
+    public DetailsHeaderViewHolder(ItemRecipeDetailsHeaderBinding binding) {
+        super(binding.getRoot());
+        this.ivRecipeImage = binding.ivRecipeImage;
+        this.tvAuthor = binding.tvAuthor;
+        this.tvTitle = binding.tvRecipeTitle;
+        this.tvDescription = binding.tvRecipeDescription;
+        this.cbFavourite = binding.cbFavourite;
+        this.authorImageBinder = new RowImageBinder(binding.ivUserImage);
+        this.recipeImageBinder = new RowImageBinder(binding.ivRecipeImage);
+    }
+
+    public void setTvAuthor(String author) {
+        tvAuthor.setText(author);
+    }
+
+    public void setTvTitle(String title) {
+        tvTitle.setText(title);
+    }
+
+    public void setTvDescription(String description) {
+        tvDescription.setText(description);
+    }
+
+    public void setFavourite(boolean favourite) {
+        cbFavourite.setChecked(favourite);
+    }
+
+    /**
+     * Loads the author's photo.
+     * @param photoUrl - the author's photo url path.
+     * @param version - the version of the photo.
+     * @param listener - called when the load finishes.
+     */
+    public void bindAuthorImage(String photoUrl, String version, RequestListener<Drawable> listener) {
+        authorImageBinder.bind(photoUrl, null, (requestManager, imageReference) -> requestManager.load(imageReference)
+                .signature(AppGlideModuleUtils.getVersionSignature(version))
+                .error(R.drawable.ic_default_user_profile).circleCrop()
+                .listener(listener));
+    }
+
+    /**
+     * Shows the blurhash of the recipe's image right away and loads the image.
+     * @param photoUrl - the recipe's image url path.
+     * @param version - the version of the image.
+     * @param blurHash - the blurhash of the image, may be null.
+     * @param listener - called when the load finishes.
+     */
+    public void bindRecipeImage(String photoUrl, String version, String blurHash, RequestListener<Drawable> listener) {
+        Drawable placeholder = BlurHashUtils.getPlaceholder(ivRecipeImage.getResources(), blurHash);
+        ivRecipeImage.setScaleType(ImageView.ScaleType.CENTER_CROP);
+        recipeImageBinder.bind(photoUrl, placeholder, (requestManager, imageReference) -> requestManager.load(imageReference)
+                .signature(AppGlideModuleUtils.getVersionSignature(version))
+                .error(R.drawable.ic_baseline_image_not_supported_24).centerCrop()
+                .listener(listener));
+    }
+
+    /**
+     * Cancels the loads of the row's images.
+     */
+    public void clearImages() {
+        authorImageBinder.clear();
+        recipeImageBinder.clear();
+    }
+}
@@ -0,0 +1,86 @@
+package app.itadakimasu.ui.adapters;
+
+import android.view.LayoutInflater;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.StringRes;
+import androidx.recyclerview.widget.RecyclerView;
+
+import app.itadakimasu.databinding.ItemRecipeDetailsSectionTitleBinding;
+
+/**
+ * Adapter with the title of a section of the details fragment's list, a single row that is only
+ * shown once the section has content.
+ */
+public class RecipeDetailsSectionTitleAdapter extends RecyclerView.Adapter<DetailsSectionTitleViewHolder> {
+    @StringRes
+    private final int title;
+    private boolean shown;
+
+    /**
+     * Constructor to create an instance of this adapter.
+     * @param title - the string resource of the section's title.
+     */
+    public RecipeDetailsSectionTitleAdapter(@StringRes int title) {
+        this.title = title;
+    }
+
+    /**
+     * Shows or hides the title.
+     * @param shown - true if the section has content.
+     */
+    public void setShown(boolean shown) {
+        if (this.shown == shown) {
+            return;
+        }
+        this.shown = shown;
+        if (shown) {
+            notifyItemInserted(0);
+        } else {
+            notifyItemRemoved(0);
+        }
+    }
+
+    /**
+     * Creates an instance of the view holder, an inflation of item_recipe_details_section_title layout.
+     * @return an instance of DetailsSectionTitleViewHolder.
+     */
+    @NonNull
+    @Override
+    public DetailsSectionTitleViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        ItemRecipeDetailsSectionTitleBinding binding = ItemRecipeDetailsSectionTitleBinding.inflate(LayoutInflater.from(parent.getContext()), parent, false);
+        return new DetailsSectionTitleViewHolder(binding);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull DetailsSectionTitleViewHolder holder, int position) {
+        holder.setTvTitle(title);
+    }
+
+    @Override
+    public int getItemCount() {
+        return shown ? 1 : 0;
+    }
+}
+
+/**
+ * ViewHolder class that loads the item_recipe_details_section_title layout.
+ */
+class DetailsSectionTitleViewHolder extends RecyclerView.ViewHolder {
+    private final TextView tvTitle;
+
+    /**
+     * Establish the references to the views.
+     * @param binding - the inflated layout of item_recipe_details_section_title.
+     */
+    public DetailsSectionTitleViewHolder(ItemRecipeDetailsSectionTitleBinding binding) {
+        super(binding.getRoot());
+        this.tvTitle = binding.tvSectionTitle;
+    }
+
+    public void setTvTitle(@StringRes int title) {
+        tvTitle.setText(title);
+    }
+}
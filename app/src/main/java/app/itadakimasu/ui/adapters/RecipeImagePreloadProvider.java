@@ -0,0 +1,72 @@
+package app.itadakimasu.ui.adapters;
+
+import android.graphics.drawable.Drawable;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.ListAdapter;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
+import com.bumptech.glide.util.ViewPreloadSizeProvider;
+import com.google.firebase.storage.StorageReference;
+
+import java.util.Collections;
+import java.util.List;
+
+import app.itadakimasu.R;
+import app.itadakimasu.data.model.ImageVariant;
+import app.itadakimasu.data.model.Recipe;
+import app.itadakimasu.data.repository.StorageRepository;
+import app.itadakimasu.utils.AppGlideModuleUtils;
+
+/**
+ * Loads the images of the next rows of a recipe list ahead of the scroll, in the exact size of the
+ * rows' image view, so fast scrolls don't show empty images.
+ */
+public class RecipeImagePreloadProvider implements ListPreloader.PreloadModelProvider<Recipe> {
+    private final ListAdapter<Recipe, ?> adapter;
+    private final RequestManager requestManager;
+    private final StorageRepository storageRepository;
+
+    private RecipeImagePreloadProvider(ListAdapter<Recipe, ?> adapter, RequestManager requestManager) {
+        this.adapter = adapter;
+        this.requestManager = requestManager;
+        this.storageRepository = StorageRepository.getInstance();
+    }
+
+    /**
+     * Creates the scroll listener that preloads the images of a recipe list.
+     * @param fragment - the fragment with the list, the preloads are stopped with it.
+     * @param adapter - the list's adapter.
+     * @param sizeProvider - the size of the rows' image view, set by the adapter.
+     * @return the scroll listener to add to the recycler view.
+     */
+    public static RecyclerViewPreloader<Recipe> createPreloader(Fragment fragment, ListAdapter<Recipe, ?> adapter,
+                                                                ViewPreloadSizeProvider<Recipe> sizeProvider) {
+        RecipeImagePreloadProvider modelProvider = new RecipeImagePreloadProvider(adapter, Glide.with(fragment));
+        int preloadRows = fragment.getResources().getInteger(R.integer.recipe_image_preload_rows);
+        return new RecyclerViewPreloader<>(fragment, modelProvider, sizeProvider, preloadRows);
+    }
+
+    @NonNull
+    @Override
+    public List<Recipe> getPreloadItems(int position) {
+        List<Recipe> recipes = adapter.getCurrentList();
+        if (position < 0 || position >= recipes.size()) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(recipes.get(position));
+    }
+
+    @Nullable
+    @Override
+    public RequestBuilder<Drawable> getPreloadRequestBuilder(@NonNull Recipe recipe) {
+        StorageReference imageReference = storageRepository.getImageReference(recipe.getPhotoUrl(ImageVariant.THUMBNAIL));
+        return AppGlideModuleUtils.loadListImage(requestManager, imageReference, recipe.getPhotoVersion());
+    }
+}
@@ -1,7 +1,7 @@
 package app.itadakimasu.ui.adapters;
 
 import android.content.Context;
-import android.net.Uri;
+import android.graphics.drawable.Drawable;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -10,28 +10,28 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
-import androidx.lifecycle.LifecycleOwner;
 import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
-import com.google.firebase.storage.StorageReference;
+import com.bumptech.glide.util.ViewPreloadSizeProvider;
+
+import java.util.Objects;
 
 import app.itadakimasu.R;
-import app.itadakimasu.data.Result;
+import app.itadakimasu.data.model.ImageVariant;
 import app.itadakimasu.data.model.Recipe;
 import app.itadakimasu.data.repository.SharedPrefRepository;
-import app.itadakimasu.data.repository.StorageRepository;
 import app.itadakimasu.databinding.ItemRecipePreviewBinding;
 import app.itadakimasu.interfaces.OnItemClickAddFavListener;
 import app.itadakimasu.interfaces.OnItemClickDisplayListener;
 import app.itadakimasu.interfaces.OnItemClickShowProfileListener;
+import app.itadakimasu.utils.AppGlideModuleUtils;
+import app.itadakimasu.utils.BlurHashUtils;
 
 /**
  * Adapter used on the home fragment and favourites fragment's recycler view.
  */
-@SuppressWarnings("unchecked")
 public class RecipePreviewAdapter extends ListAdapter<Recipe, RecipePreviewViewHolder> {
 
     // Diff callback to check the difference between recipes.
@@ -48,18 +48,19 @@ public class RecipePreviewAdapter extends ListAdapter<Recipe, RecipePreviewViewH
 
             boolean sameTitle = oldItem.getTitle().equals(newItem.getTitle());
             boolean sameDesc = oldItem.getDescription().equals(newItem.getDescription());
-            boolean samePhoto = oldItem.getPhotoUrl().equals(newItem.getPhotoUrl());
+            boolean samePhoto = oldItem.getPhotoUrl().equals(newItem.getPhotoUrl())
+                    && oldItem.isPhotoVariantsUploaded() == newItem.isPhotoVariantsUploaded();
+            boolean sameVersions = Objects.equals(oldItem.getPhotoVersion(), newItem.getPhotoVersion())
+                    && Objects.equals(oldItem.getPhotoAuthorVersion(), newItem.getPhotoAuthorVersion());
             boolean isSameFav = oldItem.isFavourite().equals(newItem.isFavourite());
-            return sameAuthor && sameAuthorPhoto && sameTitle && sameDesc && samePhoto && isSameFav;
+            return sameAuthor && sameAuthorPhoto && sameTitle && sameDesc && samePhoto && sameVersions && isSameFav;
         }
     };
 
     // Used to get the authenticated user's  username.
     private final SharedPrefRepository sharedPrefRepository;
-    // Used to load the images on their respective view using storage references.
-    private final StorageRepository storageRepository;
-    // Lifecycle to download images' data.
-    private final LifecycleOwner lifecycleOwner;
+    // Size of the recipe's image view, used to preload the images of the next rows.
+    private final ViewPreloadSizeProvider<Recipe> preloadSizeProvider;
 
     // Implementations of interfaces in order to display, add to favourites a recipe and to visit
     // the author's profile.
@@ -67,11 +68,10 @@ public class RecipePreviewAdapter extends ListAdapter<Recipe, RecipePreviewViewH
     private OnItemClickAddFavListener favListener;
     private OnItemClickShowProfileListener showProfileListener;
 
-    public RecipePreviewAdapter(Context context, LifecycleOwner viewLifecycleOwner) {
+    public RecipePreviewAdapter(Context context) {
         super(DIFF_CALLBACK);
-        this.lifecycleOwner = viewLifecycleOwner;
+        this.preloadSizeProvider = new ViewPreloadSizeProvider<>();
         this.sharedPrefRepository = SharedPrefRepository.getInstance(context);
-        this.storageRepository = StorageRepository.getInstance();
     }
 
     /**
@@ -81,6 +81,7 @@ public class RecipePreviewAdapter extends ListAdapter<Recipe, RecipePreviewViewH
     @Override
     public RecipePreviewViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         ItemRecipePreviewBinding binding = ItemRecipePreviewBinding.inflate(LayoutInflater.from(parent.getContext()), parent, false);
+        preloadSizeProvider.setView(binding.ivRecipeImage);
         return new RecipePreviewViewHolder(binding, displayListener, favListener, showProfileListener);
     }
 
@@ -92,21 +93,9 @@ public class RecipePreviewAdapter extends ListAdapter<Recipe, RecipePreviewViewH
     public void onBindViewHolder(@NonNull RecipePreviewViewHolder holder, int position) {
         final Recipe recipe = getItem(position);
 
-        // Downloads and sets the recipe image.
-        storageRepository.getImageUri(recipe.getPhotoUrl()).observe(lifecycleOwner, result -> {
-            if (result instanceof Result.Success) {
-                Uri uriImage = ((Result.Success<Uri>) result).getData();
-                holder.setRecipeImage(uriImage);
-            }
-        });
-
-        // Downloads and sets the author's image.
-        storageRepository.getImageUri(recipe.getPhotoAuthorUrl()).observe(lifecycleOwner, result -> {
-            if (result instanceof Result.Success) {
-                Uri uriImage = ((Result.Success<Uri>) result).getData();
-                holder.setUserImage(uriImage);
-            }
-        });
+        // Downloads and sets the recipe image, in the size that fits the row, and the author's image.
+        holder.bindRecipeImage(recipe.getPhotoUrl(ImageVariant.THUMBNAIL), recipe.getPhotoVersion(), recipe.getPhotoBlurHash());
+        holder.bindUserImage(recipe.getPhotoAuthorUrl(), recipe.getPhotoAuthorVersion());
 
         holder.setCheckedFavourite(recipe.isFavourite());
         holder.setTitle(recipe.getTitle());
@@ -114,6 +103,22 @@ public class RecipePreviewAdapter extends ListAdapter<Recipe, RecipePreviewViewH
         holder.setDescription(recipe.getDescription());
     }
 
+    /**
+     * Cancels the loads of the recycled row's images, so they aren't shown on its next recipe.
+     */
+    @Override
+    public void onViewRecycled(@NonNull RecipePreviewViewHolder holder) {
+        super.onViewRecycled(holder);
+        holder.clearImages();
+    }
+
+    /**
+     * @return the size of the rows' recipe image, used to preload the images of the next rows.
+     */
+    public ViewPreloadSizeProvider<Recipe> getPreloadSizeProvider() {
+        return preloadSizeProvider;
+    }
+
     /**
      * Establish the click listener for this adapter.
      * @param listener - the implementation of this listener.
@@ -146,6 +151,9 @@ class RecipePreviewViewHolder extends RecyclerView.ViewHolder {
     private final TextView tvTitle;
     private final TextView tvUsername;
     private final TextView tvDescription;
+    // Binders of the recipe's and author's images, they cancel the previous load on every bind.
+    private final RowImageBinder recipeImageBinder;
+    private final RowImageBinder userImageBinder;
 
     /**
      *  Given an inflation of the layout and the implementation of the interfaces, set all the views
@@ -164,6 +172,8 @@ class RecipePreviewViewHolder extends RecyclerView.ViewHolder {
         this.tvTitle = binding.tvTitle;
         this.tvUsername = binding.tvUsername;
         this.tvDescription = binding.tvDescription;
+        this.recipeImageBinder = new RowImageBinder(ivRecipeImage);
+        this.userImageBinder = new RowImageBinder(ivUserImage);
 
         // Sets the method of the interface that will be implemented on the fragment to add or remove the recipe from
         // favourites
@@ -196,19 +206,17 @@ class RecipePreviewViewHolder extends RecyclerView.ViewHolder {
     }
 
     /**
-     * Loads the recipe's image.
-     * @param storageReference - the reference where the recipe's image path is stored.
-     */
-    public void setRecipeImage(StorageReference storageReference) {
-        Glide.with(ivRecipeImage.getContext()).load(storageReference).centerCrop().into(ivRecipeImage);
-    }
-
-    /**
-     * Loads the recipe's image.
-     * @param uriImage - the downloaded image's uri.
+     * Shows the recipe's blurhash right away, then downloads and loads the recipe's image.
+     * @param photoUrl - the recipe's image url path.
+     * @param version - the version of the recipe's image.
+     * @param blurHash - the blurhash shown until the image is loaded.
      */
-    public void setRecipeImage(Uri uriImage) {
-        Glide.with(ivRecipeImage.getContext()).load(uriImage).error(R.drawable.ic_baseline_image_not_supported_24).centerCrop().into(ivRecipeImage);
+    public void bindRecipeImage(String photoUrl, String version, String blurHash) {
+        Drawable placeholder = BlurHashUtils.getPlaceholder(ivRecipeImage.getResources(), blurHash);
+        ivRecipeImage.setScaleType(ImageView.ScaleType.CENTER_CROP);
+        recipeImageBinder.bind(photoUrl, placeholder, (requestManager, imageReference) ->
+                AppGlideModuleUtils.loadListImage(requestManager, imageReference, version)
+                        .error(R.drawable.ic_baseline_image_not_supported_24));
     }
 
     /**
@@ -220,19 +228,22 @@ class RecipePreviewViewHolder extends RecyclerView.ViewHolder {
     }
 
     /**
-     * Loads the user that uploaded the recipe image.
-     * @param storageReference - the reference where the user's photo path is stored.
+     * Downloads and loads the photo of the user that uploaded the recipe.
+     * @param photoUrl - the user's photo url path.
+     * @param version - the version of the user's photo.
      */
-    public void setUserImage(StorageReference storageReference) {
-        Glide.with(ivUserImage.getContext()).load(storageReference).circleCrop().into(ivUserImage);
+    public void bindUserImage(String photoUrl, String version) {
+        userImageBinder.bind(photoUrl, null, (requestManager, imageReference) ->
+                requestManager.load(imageReference).signature(AppGlideModuleUtils.getVersionSignature(version))
+                        .error(R.drawable.ic_default_user_profile).circleCrop());
     }
 
     /**
-     * Loads the user that uploaded the recipe image.
-     * @param uriImage - the downloaded image's uri.
+     * Cancels the loads of the row's images.
      */
-    public void setUserImage(Uri uriImage) {
-        Glide.with(ivUserImage.getContext()).load(uriImage).error(R.drawable.ic_default_user_profile).circleCrop().into(ivUserImage);
+    public void clearImages() {
+        recipeImageBinder.clear();
+        userImageBinder.clear();
     }
 
     /**
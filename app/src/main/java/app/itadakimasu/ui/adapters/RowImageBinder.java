@@ -0,0 +1,57 @@
+package app.itadakimasu.ui.adapters;
+
+import android.graphics.drawable.Drawable;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.google.firebase.storage.StorageReference;
+
+import app.itadakimasu.data.repository.StorageRepository;
+
+/**
+ * Binds an image of a list's row. It belongs to the row's holder, so every bind replaces the
+ * previous one and its Glide load is cleared. The image is loaded straight from its storage
+ * reference and nothing observes a lifecycle, so the callbacks don't pile up while the list is
+ * scrolled. The loads belong to the fragment that shows the list, so they are paused and cleared
+ * with its lifecycle.
+ */
+class RowImageBinder {
+    private final ImageView imageView;
+    private final StorageRepository storageRepository;
+
+    /**
+     * Builds the load of the image's reference, with the options of the view.
+     */
+    interface ImageLoad {
+        RequestBuilder<Drawable> build(RequestManager requestManager, StorageReference imageReference);
+    }
+
+    RowImageBinder(ImageView imageView) {
+        this.imageView = imageView;
+        this.storageRepository = StorageRepository.getInstance();
+    }
+
+    /**
+     * Shows the placeholder right away and loads the image into the view.
+     * @param imageUrl - the image url path.
+     * @param placeholder - the drawable shown until the image is loaded, may be null.
+     * @param imageLoad - builds the load of the image's reference.
+     */
+    void bind(@NonNull String imageUrl, @Nullable Drawable placeholder, @NonNull ImageLoad imageLoad) {
+        RequestManager requestManager = Glide.with(imageView);
+        imageLoad.build(requestManager, storageRepository.getImageReference(imageUrl))
+                .placeholder(placeholder).into(imageView);
+    }
+
+    /**
+     * Cancels the image's load, used when the row is recycled.
+     */
+    void clear() {
+        Glide.with(imageView).clear(imageView);
+    }
+}
@@ -138,6 +138,7 @@ public class LoginFragment extends Fragment implements FirebaseAuth.AuthStateLis
                     // Obtains the user's data and saves it on an app file with Shared preferences.
                     loginViewModel.setAuthUsername(((Result.Success<User>) result).getData().getUsername());
                     loginViewModel.setAuthUserPhotoUrl(((Result.Success<User>) result).getData().getPhotoUrl());
+                    loginViewModel.setAuthUserPhotoVersion(((Result.Success<User>) result).getData().getPhotoVersion());
                     NavHostFragment.findNavController(this).navigate(R.id.action_auth_navigation_to_navigation_home);
                 } else {
                     Snackbar.make(binding.getRoot(), R.string.user_data_retrieve_error, Snackbar.LENGTH_LONG).show();
@@ -107,6 +107,14 @@ public class LoginViewModel extends AndroidViewModel {
         sharedPrefRepository.setAuthUserPhotoUrl(photoUrl);
     }
 
+    /**
+     * Sets the version of the authenticated user's photo on the app's SharedPreferences file.
+     * @param photoVersion - the photo's version, null if it has none.
+     */
+    public void setAuthUserPhotoVersion(String photoVersion) {
+        sharedPrefRepository.setAuthUserPhotoVersion(photoVersion);
+    }
+
     /**
      * Checks that the email is valid.
      * @param userEmail - the user's email.
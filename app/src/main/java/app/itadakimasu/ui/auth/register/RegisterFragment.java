@@ -185,6 +185,7 @@ public class RegisterFragment extends Fragment {
 
                 registerViewModel.setAuthUsername(user.getUsername());
                 registerViewModel.setAuthUserPhotoUrl(user.getPhotoUrl());
+                registerViewModel.setAuthUserPhotoVersion(user.getPhotoVersion());
 
 
                 NavHostFragment.findNavController(requireParentFragment()).navigate(R.id.action_navigation_register_to_addPhotoFragment);
@@ -15,6 +15,7 @@ import app.itadakimasu.R;
 import app.itadakimasu.data.Result;
 import app.itadakimasu.data.model.User;
 import app.itadakimasu.data.repository.AppAuthRepository;
+import app.itadakimasu.data.repository.ReadPolicy;
 import app.itadakimasu.data.repository.SharedPrefRepository;
 import app.itadakimasu.data.repository.UsersRepository;
 
@@ -165,7 +166,7 @@ public class RegisterViewModel extends AndroidViewModel {
      * @return a result, a boolean true if username exists, exception if is not found
      */
     public LiveData<Result<?>> isUsernameChosen(String username) {
-        return usersRepository.isUsernameChosen(username);
+        return usersRepository.isUsernameChosen(username, ReadPolicy.SERVER_ONLY);
     }
 
     /**
@@ -223,4 +224,12 @@ public class RegisterViewModel extends AndroidViewModel {
     public void setAuthUserPhotoUrl(String photoUrl) {
         sharedPrefRepository.setAuthUserPhotoUrl(photoUrl);
     }
+
+    /**
+     * Sets the version of the authenticated user's photo on the app's SharedPreferences file.
+     * @param photoVersion - the photo's version, null if it has none.
+     */
+    public void setAuthUserPhotoVersion(String photoVersion) {
+        sharedPrefRepository.setAuthUserPhotoVersion(photoVersion);
+    }
 }
\ No newline at end of file
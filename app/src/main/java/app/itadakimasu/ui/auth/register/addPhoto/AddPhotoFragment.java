@@ -27,11 +27,13 @@ import com.canhub.cropper.CropImageView;
 import com.google.android.material.snackbar.Snackbar;
 
 import app.itadakimasu.R;
-import app.itadakimasu.data.Result;
+import app.itadakimasu.data.model.EncodedImage;
+import app.itadakimasu.data.upload.ImageUploadState;
 import app.itadakimasu.databinding.FragmentAddPhotoBinding;
 import app.itadakimasu.utils.dialogs.SelectMediaDialogFragment;
-import app.itadakimasu.utils.ImageCompressorUtils;
+import app.itadakimasu.utils.imageProcessing.ImageProcessingState;
 import app.itadakimasu.utils.ImageCropUtils;
+import app.itadakimasu.utils.ImageProgressUtils;
 
 /**
  * Fragment that prompts when the user registers, asking them to set their profile's image.
@@ -161,18 +163,37 @@ public class AddPhotoFragment extends Fragment {
      * If it fails, it will set an upload photo error on the result state.
      */
     private void uploadPhotoStorage() {
-        String imagePath = addPhotoViewModel.getPhotoPathState().getValue();
-        byte[] imageData = ImageCompressorUtils.compressImage(imagePath, ImageCompressorUtils.PROFILE_MAX_HEIGHT, ImageCompressorUtils.PROFILE_MAX_WIDTH);
+        // The photo is compressed on the background, the upload starts as soon as it's ready.
+        addPhotoViewModel.compressPhoto().observe(getViewLifecycleOwner(), state -> {
+            if (state.getStage() == ImageProcessingState.Stage.DONE) {
+                ImageProgressUtils.showProcessingProgress(binding.pbAddPhoto, state);
+                uploadImage(state.getResult());
+            } else if (state.getStage() == ImageProcessingState.Stage.FAILED) {
+                addPhotoViewModel.setUploadPhotoErrorResult(R.string.image_upload_error);
+            } else {
+                ImageProgressUtils.showProcessingProgress(binding.pbAddPhoto, state);
+            }
+        });
+    }
 
-        addPhotoViewModel.uploadPhotoStorage(imageData).observe(getViewLifecycleOwner(), result -> {
-            if (result instanceof Result.Success) {
+    /**
+     * Uploads the compressed photo to the storage, the upload goes on in the background if the user
+     * leaves the screen. Once it's uploaded and its version is written, the user is redirected to
+     * the home section.
+     * @param image - the compressed photo.
+     */
+    private void uploadImage(EncodedImage image) {
+        addPhotoViewModel.uploadPhotoStorage(image).observe(getViewLifecycleOwner(), state -> {
+            if (state.getStatus() == ImageUploadState.Status.SUCCEEDED) {
+                addPhotoViewModel.setAuthUserPhotoVersion(state.getPhotoVersion());
                 binding.pbAddPhoto.setVisibility(View.GONE);
                 NavHostFragment.findNavController(this).navigate(R.id.action_auth_navigation_to_navigation_home);
-            } else {
+            } else if (state.getStatus() == ImageUploadState.Status.FAILED) {
                 addPhotoViewModel.setUploadPhotoErrorResult(R.string.image_upload_error);
+            } else {
+                ImageProgressUtils.showUploadProgress(binding.pbAddPhoto, state);
             }
         });
-
     }
 
     /**
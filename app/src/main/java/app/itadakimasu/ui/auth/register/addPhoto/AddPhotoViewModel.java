@@ -8,15 +8,25 @@ import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
-import app.itadakimasu.data.Result;
+import app.itadakimasu.data.model.EncodedImage;
 import app.itadakimasu.data.repository.SharedPrefRepository;
-import app.itadakimasu.data.repository.StorageRepository;
+import app.itadakimasu.data.upload.ImageUploadManager;
+import app.itadakimasu.data.upload.ImageUploadState;
+import app.itadakimasu.utils.ImageCompressorUtils;
+import app.itadakimasu.utils.imageProcessing.ImageProcessingJob;
+import app.itadakimasu.utils.imageProcessing.ImageProcessingService;
+import app.itadakimasu.utils.imageProcessing.ImageProcessingState;
 
 /**
  * ViewModel of AddPhotoFragment, stores the data that is necessary to use and result states.
  */
 public class AddPhotoViewModel extends AndroidViewModel {
-    private final StorageRepository storageRepository;
+    // Manager that uploads the photo on the background.
+    private final ImageUploadManager imageUploadManager;
+    // Service that compresses the photo on the background.
+    private final ImageProcessingService imageProcessingService;
+    // Compression of the photo that is being uploaded, cancelled if the view model is cleared.
+    private ImageProcessingJob<?> photoCompressionJob;
     private final SharedPrefRepository sharedPrefRepository;
     private final MutableLiveData<String> usernameDisplayState;
     private final MutableLiveData<PhotoResultState> photoResultState;  
@@ -25,7 +35,8 @@ public class AddPhotoViewModel extends AndroidViewModel {
 
     public AddPhotoViewModel(@NonNull Application application) {
         super(application);
-        this.storageRepository = StorageRepository.getInstance();
+        this.imageUploadManager = ImageUploadManager.getInstance(application.getApplicationContext());
+        this.imageProcessingService = ImageProcessingService.getInstance();
         this.sharedPrefRepository = SharedPrefRepository.getInstance(application.getApplicationContext());
         this.usernameDisplayState = new MutableLiveData<>();
         this.photoUriState = new MutableLiveData<>();
@@ -63,13 +74,35 @@ public class AddPhotoViewModel extends AndroidViewModel {
     }
 
     /**
-     * Uses the storage repository to upload the image, this method is used with an observer in order
-     * to be able to handle the result.
-     * @param imageData - the resized image in bytes.
-     * @return a result that could be successful if the image is uploaded or not.
+     * Compresses the cropped photo on the background, cancelling the previous compression.
+     * @return observable state of the compression, with the photo's data when it's done.
      */
-    public LiveData<Result<?>> uploadPhotoStorage(byte[] imageData) {
-        return storageRepository.updateUserImage(getAuthUserPhotoUrl(), imageData);
+    public LiveData<ImageProcessingState<EncodedImage>> compressPhoto() {
+        if (photoCompressionJob != null) {
+            photoCompressionJob.cancel();
+        }
+        ImageProcessingJob<EncodedImage> job = imageProcessingService.compressImage(photoPathState.getValue(),
+                ImageCompressorUtils.PROFILE_MAX_HEIGHT, ImageCompressorUtils.PROFILE_MAX_WIDTH, ImageCompressorUtils.PROFILE_MAX_BYTES);
+        photoCompressionJob = job;
+        return job.getState();
+    }
+
+    /**
+     * Uploads the image on the background, this method is used with an observer in order to be able
+     * to handle the result. Its version is written on the user's document once it's uploaded.
+     * @param image - the resized and compressed image.
+     * @return the observable state of the upload.
+     */
+    public LiveData<ImageUploadState> uploadPhotoStorage(EncodedImage image) {
+        return imageUploadManager.uploadUserImage(getAuthUsername(), getAuthUserPhotoUrl(), image);
+    }
+
+    /**
+     * Stores the version of the authenticated user's photo, so the new recipes are created with it.
+     * @param photoVersion - the version of the uploaded photo.
+     */
+    public void setAuthUserPhotoVersion(String photoVersion) {
+        sharedPrefRepository.setAuthUserPhotoVersion(photoVersion);
     }
 
 
@@ -118,4 +151,15 @@ public class AddPhotoViewModel extends AndroidViewModel {
     public String getAuthUserPhotoUrl() {
         return sharedPrefRepository.getAuthUserPhotoUrl();
     }
+
+    /**
+     * The photo is no longer needed when the view model is cleared, so its compression is cancelled.
+     */
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        if (photoCompressionJob != null) {
+            photoCompressionJob.cancel();
+        }
+    }
 }
@@ -11,24 +11,25 @@ import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.navigation.fragment.NavHostFragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
-import androidx.recyclerview.widget.RecyclerView;
 
 
 import com.google.android.material.snackbar.Snackbar;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 import app.itadakimasu.R;
 import app.itadakimasu.data.Result;
 import app.itadakimasu.data.model.Favourite;
+import app.itadakimasu.data.model.Page;
 import app.itadakimasu.data.model.Recipe;
-import app.itadakimasu.data.repository.FavouritesRepository;
 import app.itadakimasu.databinding.FragmentFavouritesBinding;
+import app.itadakimasu.ui.adapters.RecipeImagePreloadProvider;
 import app.itadakimasu.ui.adapters.RecipePreviewAdapter;
 import app.itadakimasu.ui.recipeDetails.RecipeDetailsFragment;
 import app.itadakimasu.ui.userProfile.UserProfileFragment;
+import app.itadakimasu.utils.pagination.PaginationState;
+import app.itadakimasu.utils.pagination.PrefetchScrollListener;
 
 /**
  * Fragment where the authenticated user can search through the recipes that they added to favourites.
@@ -77,20 +78,11 @@ public class FavouritesFragment extends Fragment {
 
         // Listener for the refresh layout, when refreshed, it fetches the newest recipes.
         binding.srlRefresh.setOnRefreshListener(this::loadNewestFavourites);
-        // Scroll listener that enables pagination on the fragment.
-        binding.rvRecipeList.addOnScrollListener(new RecyclerView.OnScrollListener() {
-            @Override
-            public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
-                super.onScrollStateChanged(recyclerView, newState);
-                // If the user reached to the end of the list, there is no data loading and the user can paginate data
-                // then it'll load the next favourites if the list is not empty.
-                if ((!recyclerView.canScrollVertically(1)) && !favouritesViewModel.isLoadingData() && !favouritesViewModel.reachedEndPagination()) {
-                    if (!favouritesViewModel.isListEmpty()) {
-                        loadNextFavourites();
-                    }
-                }
-            }
-        });
+        // Scroll listener that loads the next favourites before the user reaches the end of the list.
+        binding.rvRecipeList.addOnScrollListener(new PrefetchScrollListener((LinearLayoutManager) binding.rvRecipeList.getLayoutManager(),
+                favouritesViewModel.getPagination(), this::loadNextFavourites));
+        // Scroll listener that loads the images of the next rows before they are shown.
+        binding.rvRecipeList.addOnScrollListener(RecipeImagePreloadProvider.createPreloader(this, adapter, adapter.getPreloadSizeProvider()));
     }
 
     /**
@@ -130,6 +122,7 @@ public class FavouritesFragment extends Fragment {
         Recipe userRecipe = favouritesViewModel.getRecipeAt(recipePosition);
         result.putString(UserProfileFragment.RESULT_USERNAME, userRecipe.getAuthor());
         result.putString(UserProfileFragment.RESULT_USER_PHOTO, userRecipe.getPhotoAuthorUrl());
+        result.putString(UserProfileFragment.RESULT_USER_PHOTO_VERSION, userRecipe.getPhotoAuthorVersion());
 
         getParentFragmentManager().setFragmentResult(UserProfileFragment.REQUEST, result);
         NavHostFragment.findNavController(this).navigate(R.id.action_navigation_favourites_to_navigation_user_profile);
@@ -142,29 +135,38 @@ public class FavouritesFragment extends Fragment {
     private void loadNewestFavourites() {
         // Clears the recipe list.
         favouritesViewModel.clearRecipeList();
+        // Any page still loading belongs to the old list, so its answer will be ignored.
+        int generation = favouritesViewModel.getPagination().startFirstPage();
         setDataIsLoading();
 
         // Observes for the data returned by the repository, if is successful, loads the recipe data;
         // if it fails, then an error message will be showed to the user.
         favouritesViewModel.loadNewestFavourites().observe(getViewLifecycleOwner(), result -> {
+            if (!favouritesViewModel.getPagination().isCurrent(generation)) {
+                return;
+            }
+
             if (result instanceof Result.Success) {
-                List<Favourite> favouriteList = ((Result.Success<List<Favourite>>) result).getData();
-                // If the list's size is less than the quantity of documents that should have retrieved,
-                // then there wont be more documents to retrieve, so the user won't be able to paginate.
-                favouritesViewModel.setReachedEndPagination(favouriteList.size() < FavouritesRepository.LIMIT_QUERY);
+                Page<Favourite> page = ((Result.Success<Page<Favourite>>) result).getData();
+                List<Favourite> favouriteList = page.getItems();
+                // Moves the cursor to the last entry, and the pagination ends if the page isn't full.
+                favouritesViewModel.updatePagination(page);
 
-                // If the list is not empty, sets the las fav date that will be used to paginate
-                // and loads the recipes' data.
                 if (!favouriteList.isEmpty()) {
-                    favouritesViewModel.setLastFavDate(favouriteList.get(favouriteList.size() - 1).getAdditionDate());
-                    loadRecipesData(favouriteList);
+                    // The stored entries only show the stored recipes until firebase sends the current entries.
+                    if (result.isFromCache()) {
+                        loadCachedRecipesData(favouriteList, generation);
+                    } else {
+                        loadRecipesData(favouriteList, true, generation);
+                    }
                 } else {
+                    favouritesViewModel.setRecipes(new ArrayList<>());
                     binding.srlRefresh.setRefreshing(false);
-                    setDataIsRetrieved();
+                    setPageIsRetrieved();
                 }
             } else {
                 Snackbar.make(binding.getRoot(), R.string.list_retrieve_error, Snackbar.LENGTH_LONG).show();
-                setDataIsRetrieved();
+                setPageIsRetrieved();
             }
         });
     }
@@ -174,25 +176,32 @@ public class FavouritesFragment extends Fragment {
      * The data will stop loading when it fails of after loading the recipe's data.
      */
     private void loadNextFavourites() {
+        PaginationState<?> pagination = favouritesViewModel.getPagination();
+        // Only one page is loaded at a time.
+        if (!pagination.startNextPage()) {
+            return;
+        }
+        int generation = pagination.getGeneration();
         setDataIsLoading();
         favouritesViewModel.loadNextFavourites().observe(getViewLifecycleOwner(), result -> {
+            if (!pagination.isCurrent(generation)) {
+                return;
+            }
 
             if (result instanceof Result.Success) {
                 // Obtains the favourite entries.
-                List<Favourite> favouriteList = ((Result.Success<List<Favourite>>) result).getData();
-                // The user won't be able to paginate if the list is smaller than the quantity of favourites
-                // entries the repository is supposed to send.
-                favouritesViewModel.setReachedEndPagination(favouriteList.size() < FavouritesRepository.LIMIT_QUERY);
-                // Sets the last favourite entry date for pagination and loads the recipes data.
+                Page<Favourite> page = ((Result.Success<Page<Favourite>>) result).getData();
+                List<Favourite> favouriteList = page.getItems();
+                // Moves the cursor to the last entry, and the pagination ends if the page isn't full.
+                favouritesViewModel.updatePagination(page);
                 if (!favouriteList.isEmpty()) {
-                    favouritesViewModel.setLastFavDate(favouriteList.get(favouriteList.size() - 1).getAdditionDate());
-                    loadRecipesData(favouriteList);
+                    loadRecipesData(favouriteList, false, generation);
                 } else {
                     binding.srlRefresh.setRefreshing(false);
-                    setDataIsRetrieved();
+                    setPageIsRetrieved();
                 }
             } else {
-                setDataIsRetrieved();
+                setPageIsRetrieved();
                 Snackbar.make(binding.getRoot(), R.string.list_retrieve_error, Snackbar.LENGTH_LONG).show();
             }
         });
@@ -200,69 +209,90 @@ public class FavouritesFragment extends Fragment {
     }
 
     /**
-     * Using the list of favourites entries, load their respective recipe data with the recipeId
-     * that each entry has.
+     * Using the list of favourites entries, load their respective recipes' data with one batched
+     * fetch of the recipeId that each entry has.
+     * The first page replaces the list, so it can be received from the cache and from firebase;
+     * the next pages are only received once, with firebase's answer.
      * @param favouriteList - the list of favourite entries.
+     * @param firstPage - true if the entries are the newest ones; false if they are paginated.
+     * @param generation - the generation of the load, the answer is ignored if the list was reloaded.
      */
-    private void loadRecipesData(List<Favourite> favouriteList) {
-        // Sets the quantity of recipes that must be processed to set add the entries to the recipe list.
-        favouritesViewModel.setRecipesToProcess(favouriteList.size());
-        List<Recipe> recipeListToAdd = new ArrayList<>();
-        // For each entry, its recipe's data will be loaded and settled on each respective position.
-        for (int i = 0; i < favouriteList.size(); i++) {
-            // Creates an empty place on the list, the recipe will be settled there when the data is retrieved.
-            recipeListToAdd.add(null);
-            int position = i;
-
-            String recipeIdToLoad = favouriteList.get(position).getRecipeId();
-            favouritesViewModel.loadRecipeData(recipeIdToLoad).observe(getViewLifecycleOwner(), result -> {
-                if (result instanceof Result.Success) {
-                    Recipe recipe = ((Result.Success<Recipe>) result).getData();
+    private void loadRecipesData(List<Favourite> favouriteList, boolean firstPage, int generation) {
+        favouritesViewModel.loadRecipesData(favouriteList, firstPage).observe(getViewLifecycleOwner(), result -> {
+            if (!favouritesViewModel.getPagination().isCurrent(generation)) {
+                return;
+            }
+            if (!result.isFromCache()) {
+                setPageIsRetrieved();
+                binding.srlRefresh.setRefreshing(false);
+            }
+
+            if (result instanceof Result.Success) {
+                List<Recipe> recipeList = ((Result.Success<List<Recipe>>) result).getData();
+                for (Recipe recipe : recipeList) {
                     recipe.setFavourite(true);
-                    synchronized (this) {
-                        recipeListToAdd.set(position, recipe);
-                    }
                 }
-
-                if (favouritesViewModel.recipeProcessed() == 0) {
-                    setDataIsRetrieved();
-                    binding.srlRefresh.setRefreshing(false);
-
-                    // Removes the null fields on the list.
-                    recipeListToAdd.removeAll(Collections.singleton(null));
-                    favouritesViewModel.addRecipes(recipeListToAdd);
+                if (firstPage) {
+                    favouritesViewModel.setRecipes(recipeList);
+                } else {
+                    favouritesViewModel.addRecipes(recipeList);
                 }
-            });
-        }
+            } else {
+                Snackbar.make(binding.getRoot(), R.string.load_recipe_data_fav_error, Snackbar.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    /**
+     * Shows the stored recipes of the stored favourites entries, the loading continues until
+     * firebase answers.
+     * @param favouriteList - the stored favourite entries.
+     * @param generation - the generation of the load, the answer is ignored if the list was reloaded.
+     */
+    private void loadCachedRecipesData(List<Favourite> favouriteList, int generation) {
+        favouritesViewModel.loadCachedRecipesData(favouriteList).observe(getViewLifecycleOwner(), result -> {
+            // Firebase could have answered before the stored recipes were read.
+            if (!favouritesViewModel.getPagination().isCurrent(generation) || !favouritesViewModel.getPagination().isLoading()) {
+                return;
+            }
+            List<Recipe> recipeList = ((Result.Success<List<Recipe>>) result).getData();
+            for (Recipe recipe : recipeList) {
+                recipe.setFavourite(true);
+            }
+            favouritesViewModel.setRecipes(recipeList);
+        });
     }
 
     /**
      * Settles the adapter and recycler view.
      */
     private void setAdapterRecyclerView() {
-        adapter = new RecipePreviewAdapter(requireContext(), getViewLifecycleOwner());
+        adapter = new RecipePreviewAdapter(requireContext());
         binding.rvRecipeList.setLayoutManager(new LinearLayoutManager(requireContext()));
         binding.rvRecipeList.setAdapter(adapter);
     }
 
     /**
-     * Sets the loading data state as true, so the user won't be able to fetch more data while it's
-     * getting data already from the database, and shows the progress bar as visible in order to let
-     * the user watch the progress.
+     * Shows the progress bar as visible in order to let the user watch the progress.
      */
     private void setDataIsLoading() {
-        favouritesViewModel.setLoadingData(true);
         binding.pbProgress.setVisibility(View.VISIBLE);
     }
 
     /**
-     * Sets the loading data state as false, the data is fetched so the user will be able to get more
-     * data, and the progress bar visibility will be hid.
+     * The data is fetched, so the progress bar visibility will be hid.
      */
     private void setDataIsRetrieved() {
-        favouritesViewModel.setLoadingData(false);
         binding.pbProgress.setVisibility(View.GONE);
     }
+
+    /**
+     * The page is fetched, so the next page can be loaded, and the progress bar visibility will be hid.
+     */
+    private void setPageIsRetrieved() {
+        favouritesViewModel.getPagination().finishLoading();
+        setDataIsRetrieved();
+    }
     @Override
     public void onDestroyView() {
         super.onDestroyView();
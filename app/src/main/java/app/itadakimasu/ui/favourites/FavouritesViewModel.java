@@ -8,14 +8,18 @@ import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 
 import app.itadakimasu.data.Result;
+import app.itadakimasu.data.model.Favourite;
+import app.itadakimasu.data.model.Page;
+import app.itadakimasu.data.model.PageCursor;
 import app.itadakimasu.data.model.Recipe;
 import app.itadakimasu.data.repository.FavouritesRepository;
+import app.itadakimasu.data.repository.ReadPolicy;
 import app.itadakimasu.data.repository.RecipesRepository;
 import app.itadakimasu.data.repository.SharedPrefRepository;
+import app.itadakimasu.utils.pagination.PaginationState;
 
 /**
  * View model that stores the data that uses favourites fragment.
@@ -28,14 +32,8 @@ public class FavouritesViewModel extends AndroidViewModel {
 
     // Mutable and observable list of recipes.
     private final MutableLiveData<List<Recipe>> recipeList;
-    // Last favourite entry date used for pagination.
-    private Date lastFavDate;
-    // State to check if data is being loaded or not.
-    private boolean loadingData;
-    // State used to know if there are no more data to paginate.
-    private boolean reachedEndPagination;
-    // Quantity of recipes that have to be loaded, after receiving the favourites entries.
-    private int recipesToProcess;
+    // Pagination state, the cursor points to the last favourite entry loaded.
+    private final PaginationState<PageCursor> pagination;
 
     public FavouritesViewModel(@NonNull Application application) {
         super(application);
@@ -43,6 +41,7 @@ public class FavouritesViewModel extends AndroidViewModel {
         this.favouritesRepository = FavouritesRepository.getInstance();
         this.sharedPrefRepository = SharedPrefRepository.getInstance(application.getApplicationContext());
         this.recipeList = new MutableLiveData<>(new ArrayList<>());
+        this.pagination = new PaginationState<>();
     }
 
 
@@ -57,7 +56,7 @@ public class FavouritesViewModel extends AndroidViewModel {
      * @return the first newest favourites entries from the authenticated user.
      */
     public LiveData<Result<?>> loadNewestFavourites() {
-        return favouritesRepository.getNewestFavouritesByUser(getAuthUsername());
+        return favouritesRepository.getNewestFavouritesByUser(getAuthUsername(), ReadPolicy.CACHE_THEN_SERVER);
     }
 
     /**
@@ -65,7 +64,7 @@ public class FavouritesViewModel extends AndroidViewModel {
      * entry date as the point for pagination.
      */
     public LiveData<Result<?>> loadNextFavourites() {
-        return favouritesRepository.getNextFavouritesByUser(getAuthUsername(), lastFavDate);
+        return favouritesRepository.getNextFavouritesByUser(getAuthUsername(), pagination.getCursor(), ReadPolicy.DEFAULT);
     }
 
     /**
@@ -79,50 +78,58 @@ public class FavouritesViewModel extends AndroidViewModel {
     }
 
     /**
-     * Obtains the data of a recipe.
-     * @param recipeId - the recipe's id from which the data will be fetched.
-     * @return an observable result with the recipe's data or an error.
+     * Obtains the data of the recipes referenced by the favourites entries with a batched fetch.
+     * The first page receives the cached recipes first, the next pages only the final ones.
+     * @param favouriteList - the favourites entries from which the recipes' data will be fetched.
+     * @param firstPage - true if the entries are the newest ones; false if they are paginated.
+     * @return an observable result with the recipes' data, in the same order as the entries, or an error.
      */
-    public LiveData<Result<?>> loadRecipeData(String recipeId) {
-        return recipesRepository.getRecipeById(recipeId);
+    public LiveData<Result<?>> loadRecipesData(List<Favourite> favouriteList, boolean firstPage) {
+        return recipesRepository.getRecipesByIds(getRecipeIds(favouriteList), firstPage ? ReadPolicy.CACHE_THEN_SERVER : ReadPolicy.DEFAULT);
     }
 
     /**
-     * @return true if the list is empty; false if not.
+     * Obtains the stored data of the recipes referenced by the favourites entries, without waiting
+     * for firebase. Used with the stored entries, until firebase sends the current ones.
+     * @param favouriteList - the stored favourites entries.
+     * @return an observable result with the stored recipes' data, in the same order as the entries.
      */
-    public boolean isListEmpty() {
-        return recipeList.getValue().isEmpty();
+    public LiveData<Result<?>> loadCachedRecipesData(List<Favourite> favouriteList) {
+        return recipesRepository.getCachedRecipesByIds(getRecipeIds(favouriteList));
     }
 
     /**
-     * @param itemPosition - the position of the recipe we want to get on the list.
-     * @return the recipe's data from the list.
+     * @param favouriteList - the favourites entries.
+     * @return the ids of the recipes referenced by the entries.
      */
-    public Recipe getRecipeAt(int itemPosition) {
-        return recipeList.getValue().get(itemPosition);
+    private List<String> getRecipeIds(List<Favourite> favouriteList) {
+        List<String> recipeIds = new ArrayList<>();
+        for (Favourite favourite : favouriteList) {
+            recipeIds.add(favourite.getRecipeId());
+        }
+        return recipeIds;
     }
 
     /**
-     * @return true if data is loading (ie: obtaining data from the database, or removing); false if not.
+     * @return true if the list is empty; false if not.
      */
-    public boolean isLoadingData() {
-        return loadingData;
+    public boolean isListEmpty() {
+        return recipeList.getValue().isEmpty();
     }
 
     /**
-     * @return true if there is no more entries to fetch; false if else.
+     * @param itemPosition - the position of the recipe we want to get on the list.
+     * @return the recipe's data from the list.
      */
-    public boolean reachedEndPagination() {
-        return reachedEndPagination;
+    public Recipe getRecipeAt(int itemPosition) {
+        return recipeList.getValue().get(itemPosition);
     }
 
     /**
-     * Synchronized method to decrease by 1 the quantity of recipes remaining to load.
-     * @return - the quantity of recipes to be loaded after being decreased.
+     * @return the pagination state of the list, shared with the scroll listener.
      */
-    public synchronized int recipeProcessed() {
-        recipesToProcess -= 1;
-        return recipesToProcess;
+    public PaginationState<PageCursor> getPagination() {
+        return pagination;
     }
 
     /**
@@ -139,6 +146,14 @@ public class FavouritesViewModel extends AndroidViewModel {
         }
     }
 
+    /**
+     * Replaces the list with the first page of recipes.
+     * @param retrievedList - the list of the recipes with their data loaded.
+     */
+    public void setRecipes(List<Recipe> retrievedList) {
+        recipeList.setValue(new ArrayList<>(retrievedList));
+    }
+
     /**
      * Clears the recipe list.
      */
@@ -159,35 +174,11 @@ public class FavouritesViewModel extends AndroidViewModel {
     }
 
     /**
-     * Sets data loading state.
-     * @param state true if there is data loading (ie: fetching data from the database or removing); false if not.
-     */
-    public void setLoadingData(boolean state) {
-        loadingData = state;
-    }
-
-    /**
-     * Sets reached end pagination state.
-     * @param state - true if there are no more entries to fetch; false if else.
-     */
-    public void setReachedEndPagination(boolean state) {
-        reachedEndPagination = state;
-    }
-
-    /**
-     * Sets the last favourite date to use it as pagination point.
-     * @param lastFavDate - the last favourite entry's date.
-     */
-    public void setLastFavDate(Date lastFavDate) {
-        this.lastFavDate = lastFavDate;
-    }
-
-    /**
-     * Sets the quantity of recipes to load.
-     * @param quantity - the size of how many recipes must be loaded.
+     * Moves the pagination cursor to the last favourite entry of the page received.
+     * @param page - the page of favourites entries received.
      */
-    public void setRecipesToProcess(int quantity) {
-        recipesToProcess = quantity;
+    public void updatePagination(Page<Favourite> page) {
+        pagination.onPageLoaded(page.getNextCursor(), page.size(), FavouritesRepository.LIMIT_QUERY);
     }
 
     /**
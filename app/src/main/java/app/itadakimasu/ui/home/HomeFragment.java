@@ -11,22 +11,24 @@ import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.navigation.fragment.NavHostFragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
-import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.snackbar.BaseTransientBottomBar;
 import com.google.android.material.snackbar.Snackbar;
 
 import java.util.ArrayList;
-import java.util.List;
 
 import app.itadakimasu.R;
 import app.itadakimasu.data.Result;
+import app.itadakimasu.data.model.Page;
 import app.itadakimasu.data.model.Recipe;
-import app.itadakimasu.data.repository.RecipesRepository;
+import app.itadakimasu.data.model.RecipeChanges;
 import app.itadakimasu.databinding.FragmentHomeBinding;
+import app.itadakimasu.ui.adapters.RecipeImagePreloadProvider;
 import app.itadakimasu.ui.adapters.RecipePreviewAdapter;
 import app.itadakimasu.ui.recipeDetails.RecipeDetailsFragment;
 import app.itadakimasu.ui.userProfile.UserProfileFragment;
+import app.itadakimasu.utils.pagination.PaginationState;
+import app.itadakimasu.utils.pagination.PrefetchScrollListener;
 
 /**
  * Main section fragment of the app, loads the newest recipes from every user.
@@ -62,9 +64,18 @@ public class HomeFragment extends Fragment {
         if (homeViewModel.isListEmpty()) {
             loadFirstRecipes();
         }
+        if (homeViewModel.needsFavouritesMigration()) {
+            migrateFavourites();
+        }
 
         // Observable that submit the list on the adapter when the list changes.
         homeViewModel.getRecipeList().observe(getViewLifecycleOwner(), recipeList -> adapter.submitList(new ArrayList<>(recipeList)));
+        // When the favourites index changes, the recipes' favourite state is updated on the list.
+        homeViewModel.getFavouriteRecipeIds().observe(getViewLifecycleOwner(), favouriteIds -> {
+            if (homeViewModel.syncFavouriteStates()) {
+                adapter.notifyItemRangeChanged(0, adapter.getItemCount());
+            }
+        });
 
         // Shows the user profile from the author of selected recipe.
         adapter.setOnClickShowProfileListener(this::showUserProfileOfRecipe);
@@ -73,21 +84,23 @@ public class HomeFragment extends Fragment {
         // Add a selected recipes to favourites.
         adapter.setOnClickAddFavListener(this::addRemoveFavourite);
 
-        // Listener for the refresh layout, when refreshed, it fetches the newest recipes.
-        binding.srlRefresh.setOnRefreshListener(this::loadFirstRecipes);
-        // Scroll listener to paginate data.
-        binding.rvRecipeList.addOnScrollListener(new RecyclerView.OnScrollListener() {
-            @Override
-            public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
-                super.onScrollStateChanged(recyclerView, newState);
-                // When the users reaches the end of the recycler view and there is no data loading and the user can paginate data
-                // then it will load the next favourites if the list is not empty.
-                if ((!recyclerView.canScrollVertically(1)) && !homeViewModel.isLoadingData() && !homeViewModel.reachedEndPagination()) {
-                    if (!homeViewModel.isListEmpty()) {
-                        loadNextRecipes();
-                    }
+        // Listener for the refresh layout, when refreshed, it fetches the changes since the last load.
+        binding.srlRefresh.setOnRefreshListener(this::refreshRecipes);
+        // Scroll listener that loads the next recipes before the user reaches the end of the list.
+        binding.rvRecipeList.addOnScrollListener(new PrefetchScrollListener((LinearLayoutManager) binding.rvRecipeList.getLayoutManager(),
+                homeViewModel.getPagination(), this::loadNextRecipes));
+        // Scroll listener that loads the images of the next rows before they are shown.
+        binding.rvRecipeList.addOnScrollListener(RecipeImagePreloadProvider.createPreloader(this, adapter, adapter.getPreloadSizeProvider()));
+    }
 
-                }
+    /**
+     * Moves the user's old favourites entries to their deterministic document ids, it's only done
+     * once per user. If it fails, it will be tried again the next time.
+     */
+    private void migrateFavourites() {
+        homeViewModel.migrateFavourites().observe(getViewLifecycleOwner(), result -> {
+            if (result instanceof Result.Success) {
+                homeViewModel.setFavouritesMigrated();
             }
         });
     }
@@ -113,6 +126,7 @@ public class HomeFragment extends Fragment {
         Recipe userRecipe = homeViewModel.getRecipeAt(recipePosition);
         result.putString(UserProfileFragment.RESULT_USERNAME, userRecipe.getAuthor());
         result.putString(UserProfileFragment.RESULT_USER_PHOTO, userRecipe.getPhotoAuthorUrl());
+        result.putString(UserProfileFragment.RESULT_USER_PHOTO_VERSION, userRecipe.getPhotoAuthorVersion());
 
         getParentFragmentManager().setFragmentResult(UserProfileFragment.REQUEST, result);
         NavHostFragment.findNavController(this).navigate(R.id.action_navigation_home_to_navigation_user_profile);
@@ -174,24 +188,62 @@ public class HomeFragment extends Fragment {
 
 
     /**
-     * Loads the first newest recipes on the list, when the list is fetched, then every recipe inside
-     * the list will be checked if its a favourite one from the user.
+     * Loads the first newest recipes on the list, when the list is fetched, every recipe inside
+     * the list is checked on the local favourites index before being added.
      */
     private void loadFirstRecipes() {
-        // Clears the recipe first, so if there is data, it's cleared before fetching the new one.
-        homeViewModel.clearRecipeList();
+        // Any page still loading belongs to the old list, so its answer will be ignored.
+        int generation = homeViewModel.getPagination().startFirstPage();
         setDataIsLoading();
 
+        // The stored recipes can be received first, they are replaced when firebase answers, which
+        // is when the loading ends.
         homeViewModel.loadFirstRecipes().observe(getViewLifecycleOwner(), result -> {
-            setDataIsRetrieved();
-            binding.srlRefresh.setRefreshing(false);
+            if (!homeViewModel.getPagination().isCurrent(generation)) {
+                return;
+            }
+            if (!result.isFromCache()) {
+                setPageIsRetrieved();
+                binding.srlRefresh.setRefreshing(false);
+            }
 
             if (result instanceof Result.Success) {
-                List<Recipe> recipeList = ((Result.Success<List<Recipe>>) result).getData();
-                homeViewModel.setReachedEndPaginationState(recipeList.size() < RecipesRepository.LIMIT_QUERY);
-                checkForFavouriteRecipes(recipeList);
+                Page<Recipe> page = ((Result.Success<Page<Recipe>>) result).getData();
+                // Also moves the cursor to the last recipe, and the pagination ends if the page isn't full.
+                homeViewModel.setRetrievedRecipes(page);
+
+            } else {
+                Snackbar.make(binding.getRoot(), R.string.list_retrieve_error, Snackbar.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    /**
+     * Refreshes the list with the recipes created, edited or deleted since it was loaded, keeping the
+     * pages that are already loaded. If the list can't be refreshed or there are too many changes,
+     * the first recipes are loaded again.
+     */
+    private void refreshRecipes() {
+        if (!homeViewModel.canRefreshChanges() || homeViewModel.getPagination().isLoading()) {
+            loadFirstRecipes();
+            return;
+        }
+        int generation = homeViewModel.getPagination().getGeneration();
+        homeViewModel.loadRecipeChanges().observe(getViewLifecycleOwner(), result -> {
+            if (!homeViewModel.getPagination().isCurrent(generation)) {
+                return;
+            }
 
+            if (result instanceof Result.Success) {
+                RecipeChanges changes = ((Result.Success<RecipeChanges>) result).getData();
+                if (changes.isComplete()) {
+                    binding.srlRefresh.setRefreshing(false);
+                    homeViewModel.applyRecipeChanges(changes);
+                } else {
+                    loadFirstRecipes();
+                }
             } else {
+                binding.srlRefresh.setRefreshing(false);
                 Snackbar.make(binding.getRoot(), R.string.list_retrieve_error, Snackbar.LENGTH_LONG).show();
             }
         });
@@ -203,14 +255,23 @@ public class HomeFragment extends Fragment {
      * it should fetch.
      */
     private void loadNextRecipes() {
+        PaginationState<?> pagination = homeViewModel.getPagination();
+        // Only one page is loaded at a time.
+        if (!pagination.startNextPage()) {
+            return;
+        }
+        int generation = pagination.getGeneration();
         setDataIsLoading();
         homeViewModel.loadNextRecipes().observe(getViewLifecycleOwner(), result -> {
-            setDataIsRetrieved();
+            if (!pagination.isCurrent(generation)) {
+                return;
+            }
+            setPageIsRetrieved();
 
             if (result instanceof Result.Success) {
-                List<Recipe> recipeList = ((Result.Success<List<Recipe>>) result).getData();
-                homeViewModel.setReachedEndPaginationState(recipeList.size() < RecipesRepository.LIMIT_QUERY);
-                checkForFavouriteRecipes(recipeList);
+                Page<Recipe> page = ((Result.Success<Page<Recipe>>) result).getData();
+                // Also moves the cursor to the last recipe, and the pagination ends if the page isn't full.
+                homeViewModel.addRetrievedRecipes(page);
             } else {
                 Snackbar.make(binding.getRoot(), R.string.list_retrieve_error, BaseTransientBottomBar.LENGTH_LONG).show();
             }
@@ -218,59 +279,32 @@ public class HomeFragment extends Fragment {
     }
 
     /**
-     * This method overrides the value of the list with this recipes after being checked if the recipes are checked as favourite.
-     *
-     * Iterates the list of recipes, and for each one checks if the authenticated user added it as favourite.
-     *
-     * This uses an synchronous method from the view model, is an integer flag that sets the quantity of
-     * recipes to process, when the number reach to 0, then the list is added.
-     * @param recipeList - list of recipes.
-     */
-    private void checkForFavouriteRecipes(List<Recipe> recipeList) {
-        // Sets the quantity of recipes to process
-        homeViewModel.setRecipesToProcess(recipeList.size());
-        for (Recipe recipe : recipeList) {
-            // If the recipe is from the same user as the authenticated, then it will just mark it as processed.
-            homeViewModel.isRecipeFavourite(recipe).observe(getViewLifecycleOwner(), favouriteResult -> {
-                // If the repository returns a successful value sets true if it has found the entry
-                // on favourites; false if not.
-                if (favouriteResult instanceof Result.Success) {
-                    recipe.setFavourite(((Result.Success<Boolean>) favouriteResult).getData());
-                }
-                // Its necessary to do this twice because the asynchronous methods could spend
-                // more time than expected.
-                if (homeViewModel.recipeIsProcessed() == 0) {
-                    homeViewModel.addRetrievedRecipes(recipeList);
-                }
-
-            });
-        }
-    }
-
-    /**
-     * Sets the loading data state as true, so the user won't be able to fetch more data while it's
-     * getting data already from the database, and shows the progress bar as visible in order to let
-     * the user watch the progress.
+     * Shows the progress bar as visible in order to let the user watch the progress.
      */
     private void setDataIsLoading() {
-        homeViewModel.setLoadingDataState(true);
         binding.pbProgress.setVisibility(View.VISIBLE);
     }
 
     /**
-     * Sets the loading data state as false, the data is fetched so the user will be able to get more
-     * data, and the progress bar visibility will be hid.
+     * The data is fetched, so the progress bar visibility will be hid.
      */
     private void setDataIsRetrieved() {
-        homeViewModel.setLoadingDataState(false);
         binding.pbProgress.setVisibility(View.GONE);
     }
 
+    /**
+     * The page is fetched, so the next page can be loaded, and the progress bar visibility will be hid.
+     */
+    private void setPageIsRetrieved() {
+        homeViewModel.getPagination().finishLoading();
+        setDataIsRetrieved();
+    }
+
     /**
      * Sets the recycler view and adapter.
      */
     private void setAdapterRecyclerView() {
-        adapter = new RecipePreviewAdapter(requireContext(), getViewLifecycleOwner());
+        adapter = new RecipePreviewAdapter(requireContext());
         binding.rvRecipeList.setLayoutManager(new LinearLayoutManager(requireContext()));
         binding.rvRecipeList.setAdapter(adapter);
     }
@@ -7,15 +7,24 @@ import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
+import com.google.firebase.Timestamp;
+
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import app.itadakimasu.data.Result;
+import app.itadakimasu.data.model.Page;
+import app.itadakimasu.data.model.PageCursor;
 import app.itadakimasu.data.model.Recipe;
+import app.itadakimasu.data.model.RecipeChanges;
 import app.itadakimasu.data.repository.FavouritesRepository;
+import app.itadakimasu.data.repository.ReadPolicy;
 import app.itadakimasu.data.repository.RecipesRepository;
 import app.itadakimasu.data.repository.SharedPrefRepository;
+import app.itadakimasu.utils.pagination.PaginationState;
 
 /**
  * Sate holder for the HomeFragment.
@@ -28,13 +37,10 @@ public class HomeViewModel extends AndroidViewModel {
 
     private final MutableLiveData<List<Recipe>> recipeList;
 
-    private boolean loadingData;
-    // Boolean used to check when the user's retrieve a list when paginating and it returns nothing.
-    // This one should be checked to false when the list is reloaded.
-    private boolean reachedEndPagination;
-    // Synchronized flag that is used to add the list retrieved when every recipe has been checked
-    // if its marked as favourite
-    private int recipesToProcessFlag;
+    // Pagination state, the cursor points to the last recipe loaded.
+    private final PaginationState<PageCursor> pagination;
+    // Newest change received, refreshing the list obtains the changes after it.
+    private Timestamp syncedUntil;
 
 
     public HomeViewModel(@NonNull Application application) {
@@ -43,6 +49,9 @@ public class HomeViewModel extends AndroidViewModel {
         this.favouritesRepository = FavouritesRepository.getInstance();
         this.sharedPrefRepository = SharedPrefRepository.getInstance(application.getApplicationContext());
         this.recipeList = new MutableLiveData<>(new ArrayList<>());
+        this.pagination = new PaginationState<>();
+        // Builds the local index of favourites, so the recipes can be checked without querying them.
+        this.favouritesRepository.startFavouritesIndex(getAuthUsername());
     }
 
 
@@ -54,10 +63,25 @@ public class HomeViewModel extends AndroidViewModel {
     }
 
     /**
-     * @return the newest recipes fetched from the database.
+     * @return the newest recipes fetched from the database, the cached ones are received first.
      */
     public LiveData<Result<?>> loadFirstRecipes() {
-        return recipesRepository.getNewestRecipes();
+        return recipesRepository.getNewestRecipes(ReadPolicy.CACHE_THEN_SERVER);
+    }
+
+    /**
+     * @return the recipes created, edited or deleted since the list was loaded or refreshed.
+     */
+    public LiveData<Result<?>> loadRecipeChanges() {
+        return recipesRepository.getRecipeChanges(syncedUntil, ReadPolicy.SERVER_ONLY);
+    }
+
+    /**
+     * @return true if the list can be refreshed with the changes since it was loaded; false if it
+     * has to be loaded again.
+     */
+    public boolean canRefreshChanges() {
+        return syncedUntil != null && !isListEmpty();
     }
 
     /**
@@ -65,17 +89,46 @@ public class HomeViewModel extends AndroidViewModel {
      * @return more recipes starting from the last recipe fetched previously.
      */
     public LiveData<Result<?>> loadNextRecipes() {
-        Date lastRecipeDate = getRecipeAt(getListSize() - 1).getCreationDate();
-        return recipesRepository.getNextRecipes(lastRecipeDate);
+        return recipesRepository.getNextRecipes(pagination.getCursor(), ReadPolicy.DEFAULT);
+    }
+
+    /**
+     * @return observable set with the ids of the user's favourite recipes, it changes when the
+     * favourites entries are added or removed.
+     */
+    public LiveData<Set<String>> getFavouriteRecipeIds() {
+        return favouritesRepository.getFavouriteRecipeIds();
     }
 
     /**
-     * Checks if a document with the user's authenticated username and the recipe's id exists in favourites collection.
+     * Checks on the local favourites index if the recipe is one of the authenticated user's favourites.
      * @param recipe - the recipe's data to check if its one of the user's favourite.
-     * @return observable result that contains a boolean if the entry has been found or not; false if an error happens.
+     * @return true if the recipe is added to favourites; false if not.
+     */
+    public boolean isRecipeFavourite(Recipe recipe) {
+        return favouritesRepository.isFavourite(recipe.getId());
+    }
+
+    /**
+     * @return true if the user's favourites entries still use auto generated ids; false if not.
+     */
+    public boolean needsFavouritesMigration() {
+        return !sharedPrefRepository.areFavouritesMigrated(getAuthUsername());
+    }
+
+    /**
+     * Moves the user's favourites entries to their deterministic document ids.
+     * @return result success with the quantity of migrated entries; error if something goes wrong.
+     */
+    public LiveData<Result<?>> migrateFavourites() {
+        return favouritesRepository.migrateFavouriteDocumentIds(getAuthUsername());
+    }
+
+    /**
+     * Saves that the user's favourites entries are migrated, so it's not done again.
      */
-    public LiveData<Result<?>> isRecipeFavourite(Recipe recipe) {
-        return favouritesRepository.findFavouriteRecipe(getAuthUsername(), recipe.getId());
+    public void setFavouritesMigrated() {
+        sharedPrefRepository.setFavouritesMigrated(getAuthUsername());
     }
 
     /**
@@ -121,92 +174,132 @@ public class HomeViewModel extends AndroidViewModel {
 
 
     /**
-     * @return true if data is being added or removed from the database; false if not.
-     */
-    public boolean isLoadingData() {
-        return loadingData;
-    }
-
-    /**
-     * Boolean used to disable pagination when the user tries to paginate data and the list doesn't
-     * return any item, because the list reached its end.
-     * @return true if after paginating the result of the list is empty; false if not.
+     * @return the pagination state of the list, shared with the scroll listener.
      */
-    public boolean reachedEndPagination() {
-        return reachedEndPagination;
+    public PaginationState<PageCursor> getPagination() {
+        return pagination;
     }
 
     /**
-     * Add new recipes on the list.
-     * @param retrievedList - the new recipes that have been retrieved.
+     * Add new recipes on the list, marking them as favourite using the local favourites index.
+     * @param page - the page with the new recipes that have been retrieved.
      */
-    public void addRetrievedRecipes(List<Recipe> retrievedList) {
+    public void addRetrievedRecipes(Page<Recipe> page) {
+        List<Recipe> retrievedList = page.getItems();
         if (!retrievedList.isEmpty()) {
+            for (Recipe recipe : retrievedList) {
+                recipe.setFavourite(isRecipeFavourite(recipe));
+            }
             List<Recipe> list = recipeList.getValue();
             assert list != null;
             list.addAll(retrievedList);
 
             recipeList.setValue(list);
         }
+        updatePagination(page);
     }
 
     /**
-     * Clears the recipe list.
+     * Replaces the list with the first recipes, marking them as favourite using the local favourites
+     * index. Used for the first page, that can be received twice: from the local database and from
+     * firebase.
+     * @param page - the page with the first recipes that have been retrieved.
      */
-    public void clearRecipeList() {
-        recipeList.getValue().clear();
+    public void setRetrievedRecipes(Page<Recipe> page) {
+        List<Recipe> retrievedList = page.getItems();
+        for (Recipe recipe : retrievedList) {
+            recipe.setFavourite(isRecipeFavourite(recipe));
+        }
+        recipeList.setValue(new ArrayList<>(retrievedList));
+        updatePagination(page);
+        // The cached first page has no server timestamps, the list is reloaded until firebase answers.
+        syncedUntil = page.getNewestChange();
     }
 
     /**
-     * Sets or unsets a recipe as a favourite, using the position of the recipe to mark and a boolean
-     * that tells if the recipe will be marked as favourite (true) or not (false).
-     * @param position - position of the recipe to change the favourite state.
-     * @param state - true if is favourite; false if not
+     * Applies the changes on the list: deleted recipes are removed, edited recipes are replaced at
+     * their position and new recipes are added at the top. The loaded pages are kept.
+     * @param changes - the changes since the list was loaded or refreshed.
      */
-    public void markRecipeFavouriteAt(int position, boolean state) {
-        List<Recipe> updatedRecipeList = recipeList.getValue();
-        assert updatedRecipeList != null;
-
-        Recipe recipe = updatedRecipeList.get(position);
-        recipe.setFavourite(state);
-        updatedRecipeList.set(position, recipe);
-
-        recipeList.setValue(updatedRecipeList);
+    public void applyRecipeChanges(RecipeChanges changes) {
+        List<Recipe> list = new ArrayList<>(recipeList.getValue());
+        Set<String> deletedIds = new HashSet<>(changes.getDeletedRecipeIds());
+        list.removeIf(recipe -> deletedIds.contains(recipe.getId()));
+
+        Date headDate = list.isEmpty() ? null : list.get(0).getCreationDate();
+        List<Recipe> newRecipes = new ArrayList<>();
+        for (Recipe recipe : changes.getModifiedRecipes()) {
+            if (deletedIds.contains(recipe.getId())) {
+                continue;
+            }
+            recipe.setFavourite(isRecipeFavourite(recipe));
+            int position = list.indexOf(recipe);
+            if (position >= 0) {
+                list.set(position, recipe);
+            } else if (headDate == null || (recipe.getCreationDate() != null && recipe.getCreationDate().after(headDate))) {
+                // Older recipes that aren't loaded will be received when paginating.
+                newRecipes.add(recipe);
+            }
+        }
+        // Same order as the list: newest first, and by id when they share the date.
+        newRecipes.sort((first, second) -> {
+            int byDate = second.getCreationDate().compareTo(first.getCreationDate());
+            return byDate != 0 ? byDate : second.getId().compareTo(first.getId());
+        });
+        list.addAll(0, newRecipes);
+
+        recipeList.setValue(list);
+        syncedUntil = changes.getSyncedUntil();
     }
 
     /**
-     * Sets the boolean that checks if the user can't paginate more because there are no more recipes
-     * to fetch.
-     * @param state - the new state: true if there is no more entries to fetch; false if else.
+     * Moves the pagination cursor to the last recipe of the page received.
+     * @param page - the page received.
      */
-    public void setReachedEndPaginationState(boolean state) {
-        this.reachedEndPagination = state;
+    private void updatePagination(Page<Recipe> page) {
+        pagination.onPageLoaded(page.getNextCursor(), page.size(), RecipesRepository.LIMIT_QUERY);
     }
 
     /**
-     * Sets the quantity of recipes that must be checked if its on favourites collection corresponding
-     * with the authenticated user.
-     * @param quantity - the size of the list retrieved from the database.
+     * Updates the favourite state of every recipe on the list with the local favourites index.
+     * @return true if any recipe changed its state; false if not.
      */
-    public void setRecipesToProcess(int quantity) {
-        this.recipesToProcessFlag = quantity;
+    public boolean syncFavouriteStates() {
+        List<Recipe> list = recipeList.getValue();
+        assert list != null;
+        boolean changed = false;
+        for (Recipe recipe : list) {
+            boolean isFavourite = isRecipeFavourite(recipe);
+            if (recipe.isFavourite() != isFavourite) {
+                recipe.setFavourite(isFavourite);
+                changed = true;
+            }
+        }
+        return changed;
     }
 
     /**
-     * Sets the state of data loading.
-     * @param state - boolean state, use true when data is being processed from the database, false when it finish.
+     * Clears the recipe list.
      */
-    public void setLoadingDataState(boolean state) {
-        this.loadingData = state;
+    public void clearRecipeList() {
+        recipeList.getValue().clear();
     }
 
     /**
-     * Synchronous method that decreases the number of recipes to check as favourite and returns what is left.
-     * @return the quantity of recipes after one being processed.
+     * Sets or unsets a recipe as a favourite, using the position of the recipe to mark and a boolean
+     * that tells if the recipe will be marked as favourite (true) or not (false).
+     * @param position - position of the recipe to change the favourite state.
+     * @param state - true if is favourite; false if not
      */
-    public synchronized int recipeIsProcessed() {
-        recipesToProcessFlag -= 1;
-        return recipesToProcessFlag;
+    public void markRecipeFavouriteAt(int position, boolean state) {
+        List<Recipe> updatedRecipeList = recipeList.getValue();
+        assert updatedRecipeList != null;
+
+        Recipe recipe = updatedRecipeList.get(position);
+        recipe.setFavourite(state);
+        updatedRecipeList.set(position, recipe);
+
+        recipeList.setValue(updatedRecipeList);
     }
 
     /**
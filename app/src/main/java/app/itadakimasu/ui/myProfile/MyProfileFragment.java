@@ -2,7 +2,6 @@ package app.itadakimasu.ui.myProfile;
 
 import android.app.AlertDialog;
 import android.graphics.Bitmap;
-import android.net.Uri;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -14,9 +13,7 @@ import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.navigation.fragment.NavHostFragment;
-import androidx.palette.graphics.Palette;
 import androidx.recyclerview.widget.LinearLayoutManager;
-import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 import com.bumptech.glide.load.DataSource;
@@ -28,16 +25,20 @@ import com.google.android.material.snackbar.Snackbar;
 import com.google.firebase.storage.StorageReference;
 
 import java.util.ArrayList;
-import java.util.List;
 
 import app.itadakimasu.R;
 import app.itadakimasu.data.Result;
+import app.itadakimasu.data.model.Page;
 import app.itadakimasu.data.model.Recipe;
-import app.itadakimasu.data.repository.RecipesRepository;
 import app.itadakimasu.databinding.FragmentMyProfileBinding;
 import app.itadakimasu.ui.adapters.ProfileRecipesAdapter;
+import app.itadakimasu.ui.adapters.RecipeImagePreloadProvider;
 import app.itadakimasu.ui.recipeCreation.RecipeCreationFragment;
 import app.itadakimasu.ui.recipeDetails.RecipeDetailsFragment;
+import app.itadakimasu.utils.AppGlideModuleUtils;
+import app.itadakimasu.utils.ProfileColorCache;
+import app.itadakimasu.utils.pagination.PaginationState;
+import app.itadakimasu.utils.pagination.PrefetchScrollListener;
 
 /**
  * Fragment that shows the authenticated user's recipes and a log out option.
@@ -80,6 +81,10 @@ public class MyProfileFragment extends Fragment {
         if (myProfileViewModel.isListEmpty()) {
             loadFirstRecipes();
         }
+        // The recipes created before the content document existed get it once.
+        if (myProfileViewModel.needsRecipesContentBackfill()) {
+            backfillRecipesContent();
+        }
 
         // Observables and Listeners //
 
@@ -97,20 +102,11 @@ public class MyProfileFragment extends Fragment {
 
         adapter.setOnClickEditListener(this::editRecipe);
 
-        // Listener of recycler view, used for pagination, charging the next recipes when the recycler view
-        // reaches its end.
-        binding.rvRecipes.addOnScrollListener(new RecyclerView.OnScrollListener() {
-            @Override
-            public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
-                super.onScrollStateChanged(recyclerView, newState);
-                // With loadingData we assure that when is loading the user wont be able to call for data again
-                if ((!recyclerView.canScrollVertically(1)) && !myProfileViewModel.isLoadingData() && !myProfileViewModel.reachedEndPagination()) {
-                    if (!myProfileViewModel.isListEmpty()) {
-                        loadNextRecipes();
-                    }
-                }
-            }
-        });
+        // Scroll listener that loads the next recipes before the user reaches the end of the list.
+        binding.rvRecipes.addOnScrollListener(new PrefetchScrollListener((LinearLayoutManager) binding.rvRecipes.getLayoutManager(),
+                myProfileViewModel.getPagination(), this::loadNextRecipes));
+        // Scroll listener that loads the images of the next rows before they are shown.
+        binding.rvRecipes.addOnScrollListener(RecipeImagePreloadProvider.createPreloader(this, adapter, adapter.getPreloadSizeProvider()));
 
         // Signs out the user when the sign out image button is tapped.
         binding.ibSignOut.setOnClickListener(v -> myProfileViewModel.signOut());
@@ -120,21 +116,27 @@ public class MyProfileFragment extends Fragment {
     }
 
     /**
-     * Downloads the user's image and loads it.
+     * Writes the content document of the user's old recipes, if it fails it will be tried again
+     * the next time.
      */
-    private void setAuthUserImage() {
-        myProfileViewModel.downloadAuthUserImageUri().observe(getViewLifecycleOwner(), result -> {
+    private void backfillRecipesContent() {
+        myProfileViewModel.backfillRecipesContent().observe(getViewLifecycleOwner(), result -> {
             if (result instanceof Result.Success) {
-                Uri imageUri = ((Result.Success<Uri>) result).getData();
-                loadUserImage(imageUri);
-            } else {
-                Snackbar.make(binding.getRoot(), R.string.image_load_error, Snackbar.LENGTH_LONG)
-                        .setAction(R.string.retry, v -> setAuthUserImage())
-                        .show();
+                myProfileViewModel.setRecipesContentBackfilled();
             }
         });
     }
 
+    /**
+     * Loads the user's image, showing the cached color of the profile first.
+     */
+    private void setAuthUserImage() {
+        String photoUrl = myProfileViewModel.getPhotoUrl();
+        String photoVersion = myProfileViewModel.getAuthUserPhotoVersion();
+        applyCachedProfileColor(photoUrl, photoVersion);
+        loadUserImage(photoUrl, photoVersion);
+    }
+
     /**
      * Sends the user to recipe creation fragment with the actual data to edit it.
      * @param recipePosition - the position from the selected recipe on the list.
@@ -206,6 +208,7 @@ public class MyProfileFragment extends Fragment {
         myProfileViewModel.deleteRecipe(recipeToDelete.getId()).observe(getViewLifecycleOwner(), result -> {
             if (result instanceof Result.Success) {
                 myProfileViewModel.removeRecipeAt(itemPosition);
+                myProfileViewModel.cancelRecipeImageUpload(recipeToDelete.getId());
                 deleteRecipeImage(recipeToDelete.getPhotoUrl());
             } else {
                 Snackbar.make(binding.getRoot(), R.string.recipe_delete_error, Snackbar.LENGTH_LONG).show();
@@ -230,43 +233,80 @@ public class MyProfileFragment extends Fragment {
     /**
      * Loads the user's image getting the Image Reference.
      * Using the bitmap of the image, android's palette library will be used to obtain the muted
-     * color and it will establish it to the profile background.
+     * color and it will establish it to the profile background, unless the color is cached.
+     * @param photoUrl - the user's photo url path.
+     * @param photoVersion - the version of the user's photo.
      */
-    private void loadUserImage(Uri uriImage) {
-        Glide.with(requireContext()).asBitmap().load(uriImage).circleCrop().diskCacheStrategy(DiskCacheStrategy.ALL).placeholder(R.drawable.ic_default_user_profile)
+    private void loadUserImage(String photoUrl, String photoVersion) {
+        Glide.with(this).asBitmap().load(myProfileViewModel.getUserImageReference()).signature(AppGlideModuleUtils.getVersionSignature(photoVersion))
+                .circleCrop().diskCacheStrategy(DiskCacheStrategy.ALL).placeholder(R.drawable.ic_default_user_profile)
                 .error(R.drawable.ic_default_user_profile)
                 .listener(new RequestListener<>() {
                     @Override
                     public boolean onLoadFailed(@Nullable GlideException e, Object model, Target<Bitmap> target, boolean isFirstResource) {
+                        // A user without photo is shown with the default image.
+                        if (binding != null && !AppGlideModuleUtils.isImageMissing(e)) {
+                            Snackbar.make(binding.getRoot(), R.string.image_load_error, Snackbar.LENGTH_LONG)
+                                    .setAction(R.string.retry, v -> setAuthUserImage())
+                                    .show();
+                        }
                         return false;
                     }
 
                     @Override
                     public boolean onResourceReady(Bitmap resource, Object model, Target<Bitmap> target, DataSource dataSource, boolean isFirstResource) {
-                        if (resource != null) {
-                            Palette p = Palette.from(resource).generate();
-                            binding.getRoot().setBackgroundColor(p.getMutedColor(ContextCompat.getColor(requireContext(), R.color.primaryColor)));
+                        // The cached color is already shown, otherwise the palette is generated in the background.
+                        ProfileColorCache colorCache = ProfileColorCache.getInstance(requireContext());
+                        if (resource != null && colorCache.getColor(photoUrl, photoVersion) == null) {
+                            colorCache.extractColor(resource, photoUrl, photoVersion, ContextCompat.getColor(requireContext(), R.color.primaryColor),
+                                    color -> {
+                                        if (binding != null) {
+                                            binding.getRoot().setBackgroundColor(color);
+                                        }
+                                    });
                         }
                         return false;
                     }
                 }).into(binding.ivUserImage);
     }
 
+    /**
+     * Sets the profile's background with the cached color of the user's photo, if it's been
+     * obtained before, so it's shown before the photo is loaded.
+     * @param photoUrl - the user's photo url path.
+     * @param photoVersion - the version of the user's photo.
+     */
+    private void applyCachedProfileColor(String photoUrl, String photoVersion) {
+        Integer color = ProfileColorCache.getInstance(requireContext()).getColor(photoUrl, photoVersion);
+        if (color != null) {
+            binding.getRoot().setBackgroundColor(color);
+        }
+    }
+
     /**
      * Load the first recipes of the user, this method is used when the recycler view is reloaded and
      * when it loads the fragment for first time.
      */
     private void loadFirstRecipes() {
+        // Any page still loading belongs to the old list, so its answer will be ignored.
+        int generation = myProfileViewModel.getPagination().startFirstPage();
         setDataIsLoading();
 
+        // The stored recipes can be received first, they are replaced when firebase answers, which
+        // is when the loading ends.
         myProfileViewModel.loadFirstRecipes().observe(getViewLifecycleOwner(), result -> {
-            setDataIsRetrieved();
-            binding.srlRefresh.setRefreshing(false);
+            if (!myProfileViewModel.getPagination().isCurrent(generation)) {
+                return;
+            }
+            if (!result.isFromCache()) {
+                setPageIsRetrieved();
+                binding.srlRefresh.setRefreshing(false);
+            }
 
             if (result instanceof Result.Success) {
-                List<Recipe> recipeList = ((Result.Success<List<Recipe>>) result).getData();
-                myProfileViewModel.setPaginationEndState(recipeList.size() < RecipesRepository.LIMIT_QUERY);
-                myProfileViewModel.setRecipesList(recipeList);
+                Page<Recipe> page = ((Result.Success<Page<Recipe>>) result).getData();
+                // Also moves the cursor to the last recipe, and the pagination ends if the page isn't full.
+                myProfileViewModel.setRecipesList(page);
 
             } else {
                 Snackbar.make(binding.getRoot(), R.string.list_retrieve_error, Snackbar.LENGTH_LONG).show();
@@ -276,21 +316,28 @@ public class MyProfileFragment extends Fragment {
 
     /**
      * Loads the next recipes paginating.
-     * We get recipes by the limit query implemented in RecipesRepository,
-     * if the size of list cannot be divided by that limit having 0 as a remainder,
-     * ie: that the list should be multiples of 10 (20, 30, 40, 50, 60...),
-     * then the system wont call for more recipes, because the list of recipes reached to the end.
+     * The next page starts after the cursor of the pagination state, and when a page is smaller than
+     * the limit query implemented in RecipesRepository, the list reached its end.
      */
     private void loadNextRecipes() {
+        PaginationState<?> pagination = myProfileViewModel.getPagination();
+        // Only one page is loaded at a time.
+        if (!pagination.startNextPage()) {
+            return;
+        }
+        int generation = pagination.getGeneration();
         setDataIsLoading();
 
         myProfileViewModel.loadNextRecipes().observe(getViewLifecycleOwner(), result -> {
-            setDataIsRetrieved();
+            if (!pagination.isCurrent(generation)) {
+                return;
+            }
+            setPageIsRetrieved();
 
             if (result instanceof Result.Success) {
-                List<Recipe> recipeList = ((Result.Success<List<Recipe>>) result).getData();
-                myProfileViewModel.setPaginationEndState(recipeList.size() < RecipesRepository.LIMIT_QUERY);
-                myProfileViewModel.addRetrievedRecipes(recipeList);
+                Page<Recipe> page = ((Result.Success<Page<Recipe>>) result).getData();
+                // Also moves the cursor to the last recipe, and the pagination ends if the page isn't full.
+                myProfileViewModel.addRetrievedRecipes(page);
             } else {
                 Snackbar.make(binding.getRoot(), R.string.list_retrieve_error, Snackbar.LENGTH_LONG).show();
             }
@@ -302,27 +349,31 @@ public class MyProfileFragment extends Fragment {
      * Initiates the adapter and recycler layout manager.
      */
     private void initiateRvLayout() {
-        adapter = new ProfileRecipesAdapter(requireContext(), getViewLifecycleOwner());
+        adapter = new ProfileRecipesAdapter(requireContext());
         binding.rvRecipes.setLayoutManager(new LinearLayoutManager(requireContext()));
         binding.rvRecipes.setAdapter(adapter);
     }
 
     /**
-     * Sets the progress bar visible and the loading data state as true, stating that
-     * there is data loading.
+     * Shows the progress bar.
      */
     private void setDataIsLoading() {
         binding.pbProgress.setVisibility(View.VISIBLE);
-        myProfileViewModel.setLoadingDataState(true);
     }
 
     /**
-     * Sets the progress var invisible and data state as false, stating that the data finished
-     * to be loaded.
+     * Hides the progress bar.
      */
     private void setDataIsRetrieved() {
         binding.pbProgress.setVisibility(View.GONE);
-        myProfileViewModel.setLoadingDataState(false);
+    }
+
+    /**
+     * Hides the progress bar and ends the page load, so the next page can be loaded.
+     */
+    private void setPageIsRetrieved() {
+        myProfileViewModel.getPagination().finishLoading();
+        setDataIsRetrieved();
     }
 
     /**
@@ -10,16 +10,20 @@ import androidx.lifecycle.MutableLiveData;
 import com.google.firebase.storage.StorageReference;
 
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 
 import app.itadakimasu.data.Result;
+import app.itadakimasu.data.model.Page;
+import app.itadakimasu.data.model.PageCursor;
 import app.itadakimasu.data.model.Recipe;
 import app.itadakimasu.data.repository.AppAuthRepository;
 import app.itadakimasu.data.repository.FavouritesRepository;
+import app.itadakimasu.data.repository.ReadPolicy;
 import app.itadakimasu.data.repository.RecipesRepository;
 import app.itadakimasu.data.repository.SharedPrefRepository;
 import app.itadakimasu.data.repository.StorageRepository;
+import app.itadakimasu.data.upload.ImageUploadManager;
+import app.itadakimasu.utils.pagination.PaginationState;
 
 
 public class MyProfileViewModel extends AndroidViewModel {
@@ -28,15 +32,13 @@ public class MyProfileViewModel extends AndroidViewModel {
     private final FavouritesRepository favouritesRepository;
     private final SharedPrefRepository sharedPrefRepository;
     private final AppAuthRepository appAuthRepository;
+    private final ImageUploadManager imageUploadManager;
 
     private final MutableLiveData<List<Recipe>> recipesList;
     private String profileUsername;
     private String photoUrl;
-    // Boolean used to check if the system is fetching or removing data.
-    private boolean loadingDataState;
-    // Boolean used to check when the user's retrieve a list when paginating and it returns nothing.
-    // This one should be checked to false when the list is reloaded.
-    private boolean reachedEndPagination;
+    // Pagination state, the cursor points to the last recipe loaded.
+    private final PaginationState<PageCursor> pagination;
 
 
     public MyProfileViewModel(@NonNull Application application) {
@@ -46,9 +48,9 @@ public class MyProfileViewModel extends AndroidViewModel {
         this.favouritesRepository = FavouritesRepository.getInstance();
         this.sharedPrefRepository = SharedPrefRepository.getInstance(application.getApplicationContext());
         this.appAuthRepository = AppAuthRepository.getInstance();
+        this.imageUploadManager = ImageUploadManager.getInstance(application.getApplicationContext());
         this.recipesList = new MutableLiveData<>(new ArrayList<>());
-        this.loadingDataState = true;
-        this.reachedEndPagination = false;
+        this.pagination = new PaginationState<>();
         this.profileUsername = "";
         this.photoUrl = "";
     }
@@ -66,7 +68,7 @@ public class MyProfileViewModel extends AndroidViewModel {
      * @return the result of the method from recipes repository (list of recipes or error).
      */
     public LiveData<Result<?>> loadFirstRecipes() {
-       return recipesRepository.getRecipesByUser(profileUsername);
+       return recipesRepository.getRecipesByUser(profileUsername, ReadPolicy.CACHE_THEN_SERVER);
     }
 
     /**
@@ -74,8 +76,7 @@ public class MyProfileViewModel extends AndroidViewModel {
      * @return a list of the next recipes if the result is successful; error if it fails.
      */
     public LiveData<Result<?>> loadNextRecipes() {
-        Date lastRecipeDate = recipesList.getValue().get(getListSize() - 1).getCreationDate();
-        return recipesRepository.getNextRecipesByUser(profileUsername, lastRecipeDate);
+        return recipesRepository.getNextRecipesByUser(profileUsername, pagination.getCursor(), ReadPolicy.DEFAULT);
     }
 
     /**
@@ -87,6 +88,37 @@ public class MyProfileViewModel extends AndroidViewModel {
         return recipesRepository.deleteRecipe(recipeId);
     }
 
+    /**
+     * @return true if the authenticated user's recipes could miss their content document; false if not.
+     */
+    public boolean needsRecipesContentBackfill() {
+        return !sharedPrefRepository.areRecipesContentBackfilled(getAuthUsername());
+    }
+
+    /**
+     * Writes the content document of the authenticated user's recipes that were created without it.
+     * @return result success with the quantity of recipes updated; error if else.
+     */
+    public LiveData<Result<?>> backfillRecipesContent() {
+        return recipesRepository.backfillRecipesContent(getAuthUsername());
+    }
+
+    /**
+     * Saves that the authenticated user's recipes have their content document.
+     */
+    public void setRecipesContentBackfilled() {
+        sharedPrefRepository.setRecipesContentBackfilled(getAuthUsername());
+    }
+
+    /**
+     * Cancels the upload of the deleted recipe's image if it's still pending, so it isn't uploaded
+     * after the image is removed.
+     * @param recipeId - the deleted recipe's id.
+     */
+    public void cancelRecipeImageUpload(String recipeId) {
+        imageUploadManager.cancelRecipeImageUpload(recipeId);
+    }
+
     /**
      * Removes the image from the storage.
      * @param recipePhotoUrl - the path where the image is stored.
@@ -105,27 +137,22 @@ public class MyProfileViewModel extends AndroidViewModel {
         return favouritesRepository.removeEveryEntryWithRecipe(recipeId);
     }
 
-    /**
-     *
-     * @return image's data as uri or result error if it fails.
-     */
-    public LiveData<Result<?>> downloadAuthUserImageUri() {
-        return storageRepository.getImageUri(getAuthUserPhotoUrl());
-    }
-
     /**
      * Sets the value of recipesList.
-     * @param recipes - the list of recipes.
+     * @param page - the page with the list of recipes.
      */
-    public void setRecipesList(List<Recipe> recipes) {
+    public void setRecipesList(Page<Recipe> page) {
+        List<Recipe> recipes = page.getItems();
         this.recipesList.setValue(recipes);
+        updatePagination(page);
     }
 
     /**
      * Adds to the list the next recipes paginated.
-     * @param retrievedList - the list that are retrieved.
+     * @param page - the page with the recipes that are retrieved.
      */
-    public void addRetrievedRecipes(List<Recipe> retrievedList) {
+    public void addRetrievedRecipes(Page<Recipe> page) {
+        List<Recipe> retrievedList = page.getItems();
         if (!retrievedList.isEmpty()) {
             List<Recipe> list = recipesList.getValue();
             assert list != null;
@@ -133,6 +160,15 @@ public class MyProfileViewModel extends AndroidViewModel {
 
             recipesList.setValue(list);
         }
+        updatePagination(page);
+    }
+
+    /**
+     * Moves the pagination cursor to the last recipe of the page received.
+     * @param page - the page received.
+     */
+    private void updatePagination(Page<Recipe> page) {
+        pagination.onPageLoaded(page.getNextCursor(), page.size(), RecipesRepository.LIMIT_QUERY);
     }
 
     /**
@@ -170,37 +206,10 @@ public class MyProfileViewModel extends AndroidViewModel {
     }
 
     /**
-     * Gets the state of the loading data variable, used in the pagination of the recycler view,
-     * to check if the user already tried to load the data or not.
-     * @return true if the app is fetching data from the database; false if it's not.
-     */
-    public boolean isLoadingData() {
-        return loadingDataState;
-    }
-
-    /**
-     * Boolean used to disable pagination when the user tries to paginate data and the list doesn't
-     * return any item, because the list reached its end.
-     * @return true if after paginating the result of the list is empty; false if not.
-     */
-    public boolean reachedEndPagination() {
-        return reachedEndPagination;
-    }
-
-    /**
-     * Sets the pagination end state.
-     * @param state - true if there is no more data to paginate, false if not.
-     */
-    public void setPaginationEndState(boolean state) {
-        this.reachedEndPagination = state;
-    }
-
-    /**
-     * Sets the state of loading data variable.
-     * @param state - boolean indicating if is loading data or not.
+     * @return the pagination state of the list, shared with the scroll listener.
      */
-    public void setLoadingDataState(boolean state) {
-        this.loadingDataState = state;
+    public PaginationState<PageCursor> getPagination() {
+        return pagination;
     }
 
     /**
@@ -255,9 +264,17 @@ public class MyProfileViewModel extends AndroidViewModel {
     }
 
     /**
-     * Sign outs the authenticated user.
+     * @return the version of the authenticated user's photo, null if it has none.
+     */
+    public String getAuthUserPhotoVersion() {
+        return sharedPrefRepository.getAuthUserPhotoVersion();
+    }
+
+    /**
+     * Sign outs the authenticated user, removing their local favourites index.
      */
     public void signOut() {
+        favouritesRepository.stopFavouritesIndex();
         appAuthRepository.signOut();
     }
 
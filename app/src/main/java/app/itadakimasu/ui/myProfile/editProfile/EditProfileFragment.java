@@ -29,9 +29,13 @@ import com.google.android.material.snackbar.Snackbar;
 
 import app.itadakimasu.R;
 import app.itadakimasu.data.Result;
+import app.itadakimasu.data.model.EncodedImage;
+import app.itadakimasu.data.upload.ImageUploadState;
 import app.itadakimasu.databinding.FragmentEditProfileBinding;
-import app.itadakimasu.utils.ImageCompressorUtils;
+import app.itadakimasu.utils.AppGlideModuleUtils;
+import app.itadakimasu.utils.imageProcessing.ImageProcessingState;
 import app.itadakimasu.utils.ImageCropUtils;
+import app.itadakimasu.utils.ImageProgressUtils;
 import app.itadakimasu.utils.dialogs.SelectMediaDialogFragment;
 
 /**
@@ -62,8 +66,9 @@ public class EditProfileFragment extends Fragment {
                     if (result.isSuccessful()) {
                         Uri resultUri = result.getUriContent();
                         String resultPath = result.getUriFilePath(requireContext(), false);
-                        editProfileViewModel.setPhotoUri(resultUri);
+                        // The path is settled first, the image shown depends on it.
                         editProfileViewModel.setPhotoPath(resultPath);
+                        editProfileViewModel.setPhotoUri(resultUri);
                     }
                 }
             });
@@ -84,7 +89,8 @@ public class EditProfileFragment extends Fragment {
 
         // Observes for the photo uri obtained from the database or from the user's input.
         editProfileViewModel.getPhotoUri().observe(getViewLifecycleOwner(), photoUri ->
-                Glide.with(requireContext()).load(photoUri).circleCrop().error(R.drawable.ic_default_user_profile).into(binding.ivNewPhoto));
+                Glide.with(requireContext()).load(photoUri).signature(AppGlideModuleUtils.getVersionSignature(getShownPhotoVersion()))
+                        .circleCrop().error(R.drawable.ic_default_user_profile).into(binding.ivNewPhoto));
 
         binding.ivNewPhoto.setOnClickListener(v -> {
             DialogFragment dialog = new SelectMediaDialogFragment();
@@ -122,20 +128,49 @@ public class EditProfileFragment extends Fragment {
      * Uploads the selected photo data to the storage, changing the actual data that it has.
      */
     private void uploadPhotoStorage() {
-        String imagePath = editProfileViewModel.getPhotoPath();
-        byte[] imageData = ImageCompressorUtils.compressImage(imagePath, ImageCompressorUtils.PROFILE_MAX_HEIGHT, ImageCompressorUtils.PROFILE_MAX_WIDTH);
-
-        editProfileViewModel.uploadPhotoStorage(imageData).observe(getViewLifecycleOwner(), result -> {
-            binding.pbAddPhoto.setVisibility(View.GONE);
-            if (result instanceof Result.Success) {
+        // The photo is compressed on the background, the upload starts as soon as it's ready.
+        editProfileViewModel.compressPhoto().observe(getViewLifecycleOwner(), state -> {
+            if (state.getStage() == ImageProcessingState.Stage.DONE) {
+                ImageProgressUtils.showProcessingProgress(binding.pbAddPhoto, state);
+                uploadImage(state.getResult());
+            } else if (state.getStage() == ImageProcessingState.Stage.FAILED) {
+                binding.pbAddPhoto.setVisibility(View.GONE);
+                Snackbar.make(binding.getRoot(), R.string.image_upload_error, Snackbar.LENGTH_SHORT).show();
+            } else {
+                ImageProgressUtils.showProcessingProgress(binding.pbAddPhoto, state);
+            }
+        });
+    }
 
+    /**
+     * Uploads the compressed photo to the storage, the upload goes on in the background if the user
+     * leaves the screen. Its version is written once it's uploaded, so the cached copies of the old
+     * photo aren't shown.
+     * @param image - the compressed photo.
+     */
+    private void uploadImage(EncodedImage image) {
+        editProfileViewModel.uploadPhotoStorage(image).observe(getViewLifecycleOwner(), state -> {
+            if (state.getStatus() == ImageUploadState.Status.SUCCEEDED) {
+                binding.pbAddPhoto.setVisibility(View.GONE);
+                editProfileViewModel.setAuthUserPhotoVersion(state.getPhotoVersion());
                 NavHostFragment.findNavController(this).popBackStack();
-            } else {
+            } else if (state.getStatus() == ImageUploadState.Status.FAILED) {
+                binding.pbAddPhoto.setVisibility(View.GONE);
                 Snackbar.make(binding.getRoot(), R.string.image_upload_error, Snackbar.LENGTH_SHORT).show();
+            } else {
+                ImageProgressUtils.showUploadProgress(binding.pbAddPhoto, state);
             }
         });
     }
 
+    /**
+     * @return the version of the photo shown, only the current user's photo has one; the cropped
+     * images are local files.
+     */
+    private String getShownPhotoVersion() {
+        return editProfileViewModel.getPhotoPath() == null ? editProfileViewModel.getAuthUserPhotoVersion() : null;
+    }
+
     /**
      * Obtains the image as an uri, so the image uri can be stored on the view model.
      * The image url path won't be settled, it will when the user changes the image. This serves
@@ -9,11 +9,24 @@ import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
 import app.itadakimasu.data.Result;
+import app.itadakimasu.data.model.EncodedImage;
 import app.itadakimasu.data.repository.SharedPrefRepository;
 import app.itadakimasu.data.repository.StorageRepository;
+import app.itadakimasu.data.upload.ImageUploadManager;
+import app.itadakimasu.data.upload.ImageUploadState;
+import app.itadakimasu.utils.ImageCompressorUtils;
+import app.itadakimasu.utils.imageProcessing.ImageProcessingJob;
+import app.itadakimasu.utils.imageProcessing.ImageProcessingService;
+import app.itadakimasu.utils.imageProcessing.ImageProcessingState;
 
 public class EditProfileViewModel extends AndroidViewModel {
     private final StorageRepository storageRepository;
+    // Manager that uploads the photo on the background.
+    private final ImageUploadManager imageUploadManager;
+    // Service that compresses the photo on the background.
+    private final ImageProcessingService imageProcessingService;
+    // Compression of the photo that is being uploaded, cancelled if the view model is cleared.
+    private ImageProcessingJob<?> photoCompressionJob;
     private final SharedPrefRepository sharedPrefRepository;
 
     private final MutableLiveData<Uri> photoUri;
@@ -22,6 +35,8 @@ public class EditProfileViewModel extends AndroidViewModel {
     public EditProfileViewModel(@NonNull Application application) {
         super(application);
         this.storageRepository = StorageRepository.getInstance();
+        this.imageUploadManager = ImageUploadManager.getInstance(application.getApplicationContext());
+        this.imageProcessingService = ImageProcessingService.getInstance();
         this.sharedPrefRepository = SharedPrefRepository.getInstance(application.getApplicationContext());
         this.photoUri = new MutableLiveData<>();
     }
@@ -41,12 +56,40 @@ public class EditProfileViewModel extends AndroidViewModel {
     }
 
     /**
-     * Uploads the photo to firebase storage.
-     * @param imageData - the image's data to upload.
-     * @return result.success if it's uploaded successfully; error if else.
+     * Compresses the cropped photo on the background, cancelling the previous compression.
+     * @return observable state of the compression, with the photo's data when it's done.
      */
-    public LiveData<Result<?>> uploadPhotoStorage(byte[] imageData) {
-        return storageRepository.updateUserImage(getAuthUserPhotoUrl(), imageData);
+    public LiveData<ImageProcessingState<EncodedImage>> compressPhoto() {
+        if (photoCompressionJob != null) {
+            photoCompressionJob.cancel();
+        }
+        ImageProcessingJob<EncodedImage> job = imageProcessingService.compressImage(photoPath,
+                ImageCompressorUtils.PROFILE_MAX_HEIGHT, ImageCompressorUtils.PROFILE_MAX_WIDTH, ImageCompressorUtils.PROFILE_MAX_BYTES);
+        photoCompressionJob = job;
+        return job.getState();
+    }
+
+    /**
+     * Uploads the photo to firebase storage on the background, its version is written on the user's
+     * document and recipes once it's uploaded.
+     * @param image - the compressed image to upload.
+     * @return the observable state of the upload.
+     */
+    public LiveData<ImageUploadState> uploadPhotoStorage(EncodedImage image) {
+        // The version is the hash of the photo, if the user already has the same photo nothing is uploaded.
+        String photoVersion = StorageRepository.getContentVersion(image.getData());
+        if (photoVersion.equals(getAuthUserPhotoVersion())) {
+            return new MutableLiveData<>(ImageUploadState.alreadyUploaded(photoVersion));
+        }
+        return imageUploadManager.uploadUserImage(getAuthUsername(), getAuthUserPhotoUrl(), image);
+    }
+
+    /**
+     * Stores the version of the authenticated user's photo, so the new recipes are created with it.
+     * @param photoVersion - the version of the uploaded photo.
+     */
+    public void setAuthUserPhotoVersion(String photoVersion) {
+        sharedPrefRepository.setAuthUserPhotoVersion(photoVersion);
     }
 
     /**
@@ -63,6 +106,13 @@ public class EditProfileViewModel extends AndroidViewModel {
         return sharedPrefRepository.getAuthUserPhotoUrl();
     }
 
+    /**
+     * @return the version of the authenticated user's photo, null if it has none.
+     */
+    public String getAuthUserPhotoVersion() {
+        return sharedPrefRepository.getAuthUserPhotoVersion();
+    }
+
     /**
      * Sets the uri of the photo to show.
      * @param photoUri - the uri data.
@@ -78,4 +128,15 @@ public class EditProfileViewModel extends AndroidViewModel {
     public void setPhotoPath(String photoPath) {
         this.photoPath = photoPath;
     }
-}
\ No newline at end of file
+
+    /**
+     * The photo is no longer needed when the view model is cleared, so its compression is cancelled.
+     */
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        if (photoCompressionJob != null) {
+            photoCompressionJob.cancel();
+        }
+    }
+}
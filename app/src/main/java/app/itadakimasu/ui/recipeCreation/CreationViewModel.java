@@ -2,31 +2,46 @@ package app.itadakimasu.ui.recipeCreation;
 
 import android.app.Application;
 import android.net.Uri;
+import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Observer;
 
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import app.itadakimasu.data.Result;
+import app.itadakimasu.data.model.EncodedImage;
+import app.itadakimasu.data.model.ImageVariant;
 import app.itadakimasu.data.model.Ingredient;
 import app.itadakimasu.data.model.Recipe;
 import app.itadakimasu.data.model.Step;
 import app.itadakimasu.data.repository.RecipesRepository;
 import app.itadakimasu.data.repository.SharedPrefRepository;
 import app.itadakimasu.data.repository.StorageRepository;
+import app.itadakimasu.data.upload.ImageUploadManager;
+import app.itadakimasu.data.upload.ImageUploadState;
+import app.itadakimasu.utils.imageProcessing.ImageProcessingJob;
+import app.itadakimasu.utils.imageProcessing.ImageProcessingService;
+import app.itadakimasu.utils.imageProcessing.ImageProcessingState;
 
 /**
  * Shared ViewModel used on recipe, ingredients and steps fragments for creating a recipe.
  */
 public class CreationViewModel extends AndroidViewModel {
+    private static final String TAG = "CreationViewModel";
     // Repositories to load, modify and add data from the database.
     private final RecipesRepository recipesRepository;
     private final StorageRepository storageRepository;
+    // Service that compresses the photo on the background.
+    private final ImageProcessingService imageProcessingService;
+    // Manager that uploads the photo on the background.
+    private final ImageUploadManager imageUploadManager;
     // This repository is used to obtain the data from the shared preferences.
     private final SharedPrefRepository sharedPrefRepository;
 
@@ -38,11 +53,26 @@ public class CreationViewModel extends AndroidViewModel {
     private final MutableLiveData<Uri> photoUri;
     // Photo path where it will be uploaded to the storage.
     private String photoPath;
+    // Compression of the photo that is being uploaded. The recipe is already saved when it starts,
+    // so it isn't cancelled if the view model is cleared, its images are uploaded anyway.
+    private ImageProcessingJob<Map<ImageVariant, EncodedImage>> photoCompressionJob;
+    // Url path where the compressed photo is uploaded.
+    private String compressedPhotoUrl;
+    // True once the upload of the compressed photo has been enqueued.
+    private boolean photoUploadEnqueued;
     private int itemPositionToEdit;
     // If this is null then there is no recipe to edit
     private String recipeIdToEdit;
     // Saves the date when the recipe to edit was created, this data won't be updated.
     private Date recipeDateToEdit;
+    // Version of the edited recipe's image, it's kept if the image isn't changed.
+    private String recipePhotoVersionToEdit;
+    // True if the edited recipe's image has its smaller sizes, it's kept if the image isn't changed.
+    private boolean recipePhotoVariantsToEdit;
+    // Blurhash of the edited recipe's image, it's kept if the image isn't changed.
+    private String recipePhotoBlurHashToEdit;
+    // Id of the recipe uploaded or updated, used to write the version of its image once it's uploaded.
+    private String savedRecipeId;
     // Boolean to know if the recipe is being edited
     private boolean isEdited;
 
@@ -50,6 +80,8 @@ public class CreationViewModel extends AndroidViewModel {
         super(application);
         this.recipesRepository = RecipesRepository.getInstance();
         this.storageRepository = StorageRepository.getInstance();
+        this.imageProcessingService = ImageProcessingService.getInstance();
+        this.imageUploadManager = ImageUploadManager.getInstance(application.getApplicationContext());
         this.sharedPrefRepository = SharedPrefRepository.getInstance(application.getApplicationContext());
         this.ingredientList = new MutableLiveData<>(new ArrayList<>());
         this.stepList = new MutableLiveData<>(new ArrayList<>());
@@ -65,8 +97,12 @@ public class CreationViewModel extends AndroidViewModel {
      */
     public LiveData<Result<?>> uploadRecipe(String author, String photoAuthorUrl,String recipeTitle, String recipeDescription) {
         Recipe recipe = new Recipe(author, photoAuthorUrl, recipeTitle, recipeDescription);
+        recipe.setPhotoAuthorVersion(getAuthUserPhotoVersion());
 
-        return recipesRepository.uploadRecipe(recipe, getIngredientListToUpload(), getStepListToUpload());
+        LiveData<Result<?>> result = recipesRepository.uploadRecipe(recipe, getIngredientListToUpload(), getStepListToUpload());
+        // The repository assigns the id before uploading the recipe.
+        savedRecipeId = recipe.getId();
+        return result;
 
     }
 
@@ -78,19 +114,48 @@ public class CreationViewModel extends AndroidViewModel {
      */
     public LiveData<Result<?>> updateRecipe(String author, String photoAuthorUrl, String recipeTitle, String recipeDescription) {
         Recipe recipe = new Recipe(author, photoAuthorUrl, recipeTitle, recipeDescription);
+        recipe.setPhotoAuthorVersion(getAuthUserPhotoVersion());
+        recipe.setPhotoVersion(recipePhotoVersionToEdit);
+        recipe.setPhotoVariantsUploaded(recipePhotoVariantsToEdit);
+        recipe.setPhotoBlurHash(recipePhotoBlurHashToEdit);
+        savedRecipeId = recipeIdToEdit;
 
         return recipesRepository.updateRecipe(recipeIdToEdit, recipeDateToEdit, recipe);
 
     }
 
     /**
-     * Uploads to the storage the recipe image's data on given photo url.
+     * Compresses the cropped photo in every size on the background, cancelling the previous compression.
+     * It must be called once the recipe is saved.
      * @param recipePhotoUrl - the url path where the image will be uploaded.
-     * @param imageData - the image compressed data.
-     * @return result success if it's uploaded successfully; error if not.
+     * @return observable state of the compression, with the data of every size when it's done.
      */
-    public LiveData<Result<?>> uploadPhotoStorage(String recipePhotoUrl, byte[] imageData) {
-        return storageRepository.updateRecipeImage(recipePhotoUrl, imageData);
+    public LiveData<ImageProcessingState<Map<ImageVariant, EncodedImage>>> compressPhoto(String recipePhotoUrl) {
+        if (photoCompressionJob != null) {
+            photoCompressionJob.cancel();
+        }
+        photoCompressionJob = imageProcessingService.compressImageVariants(photoPath, ImageVariant.values());
+        compressedPhotoUrl = recipePhotoUrl;
+        photoUploadEnqueued = false;
+        return photoCompressionJob.getState();
+    }
+
+    /**
+     * Uploads to the storage the recipe image's data on given photo url, in every size, on the
+     * background. The version of the image is written on the uploaded or updated recipe once it's uploaded.
+     * @param recipePhotoUrl - the url path where the image will be uploaded.
+     * @param images - the compressed image of every size.
+     * @return the observable state of the upload.
+     */
+    public LiveData<ImageUploadState> uploadPhotoStorage(String recipePhotoUrl, Map<ImageVariant, EncodedImage> images) {
+        photoUploadEnqueued = true;
+        // The version is the hash of the full size, if the edited recipe already has the same image
+        // with every size, nothing is uploaded.
+        String photoVersion = StorageRepository.getContentVersion(images.get(ImageVariant.FULL).getData());
+        if (recipePhotoVariantsToEdit && photoVersion.equals(recipePhotoVersionToEdit)) {
+            return new MutableLiveData<>(ImageUploadState.alreadyUploaded(photoVersion));
+        }
+        return imageUploadManager.uploadRecipeImage(savedRecipeId, recipePhotoUrl, images);
     }
 
     /**
@@ -376,6 +441,13 @@ public class CreationViewModel extends AndroidViewModel {
         return sharedPrefRepository.getAuthUserPhotoUrl();
     }
 
+    /**
+     * @return the version of the authenticated user's photo, null if it has none.
+     */
+    public String getAuthUserPhotoVersion() {
+        return sharedPrefRepository.getAuthUserPhotoVersion();
+    }
+
     /**
      * @return the recipe's id to edit, if it returns null, then the recipe is new, is not editable.
      */
@@ -407,6 +479,37 @@ public class CreationViewModel extends AndroidViewModel {
         this.recipeDateToEdit = recipeDateToEdit;
     }
 
+    /**
+     * @return the version of the edited recipe's image.
+     */
+    public String getRecipePhotoVersionToEdit() {
+        return recipePhotoVersionToEdit;
+    }
+
+    /**
+     * Sets the version of the edited recipe's image, it remains the same unless the image is changed.
+     * @param recipePhotoVersionToEdit - the version of the edited recipe's image.
+     */
+    public void setRecipePhotoVersionToEdit(String recipePhotoVersionToEdit) {
+        this.recipePhotoVersionToEdit = recipePhotoVersionToEdit;
+    }
+
+    /**
+     * Sets if the edited recipe's image has its smaller sizes, it remains the same unless the image is changed.
+     * @param recipePhotoVariantsToEdit - true if the edited recipe's image has its smaller sizes; false if not.
+     */
+    public void setRecipePhotoVariantsToEdit(boolean recipePhotoVariantsToEdit) {
+        this.recipePhotoVariantsToEdit = recipePhotoVariantsToEdit;
+    }
+
+    /**
+     * Sets the blurhash of the edited recipe's image, it remains the same unless the image is changed.
+     * @param recipePhotoBlurHashToEdit - the blurhash of the edited recipe's image.
+     */
+    public void setRecipePhotoBlurHashToEdit(String recipePhotoBlurHashToEdit) {
+        this.recipePhotoBlurHashToEdit = recipePhotoBlurHashToEdit;
+    }
+
     /**
      * Sets if the recipe is being edited or not.
      * @param state - true if is being edited; false if not.
@@ -421,4 +524,31 @@ public class CreationViewModel extends AndroidViewModel {
     public boolean isEdited() {
         return isEdited;
     }
-}
\ No newline at end of file
+
+    /**
+     * The recipe is already saved with its photo url when the photo is compressed, so if the user
+     * leaves the screen before the upload is enqueued, the compression goes on and its images are
+     * uploaded once it's done.
+     */
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        if (photoCompressionJob == null || photoUploadEnqueued) {
+            return;
+        }
+        LiveData<ImageProcessingState<Map<ImageVariant, EncodedImage>>> state = photoCompressionJob.getState();
+        String recipePhotoUrl = compressedPhotoUrl;
+        state.observeForever(new Observer<>() {
+            @Override
+            public void onChanged(ImageProcessingState<Map<ImageVariant, EncodedImage>> processingState) {
+                if (processingState.getStage() == ImageProcessingState.Stage.DONE) {
+                    state.removeObserver(this);
+                    uploadPhotoStorage(recipePhotoUrl, processingState.getResult());
+                } else if (processingState.getStage() == ImageProcessingState.Stage.FAILED) {
+                    state.removeObserver(this);
+                    Log.e(TAG, "onCleared: the photo of the recipe " + savedRecipeId + " couldn't be compressed", processingState.getError());
+                }
+            }
+        });
+    }
+}
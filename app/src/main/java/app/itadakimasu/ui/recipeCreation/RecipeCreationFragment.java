@@ -30,12 +30,19 @@ import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.android.material.snackbar.BaseTransientBottomBar;
 import com.google.android.material.snackbar.Snackbar;
 
+import java.util.Map;
+
 import app.itadakimasu.R;
 import app.itadakimasu.data.Result;
+import app.itadakimasu.data.model.EncodedImage;
+import app.itadakimasu.data.model.ImageVariant;
 import app.itadakimasu.data.model.Recipe;
+import app.itadakimasu.data.upload.ImageUploadState;
 import app.itadakimasu.databinding.FragmentRecipeCreationBinding;
-import app.itadakimasu.utils.ImageCompressorUtils;
+import app.itadakimasu.utils.AppGlideModuleUtils;
+import app.itadakimasu.utils.imageProcessing.ImageProcessingState;
 import app.itadakimasu.utils.ImageCropUtils;
+import app.itadakimasu.utils.ImageProgressUtils;
 import app.itadakimasu.utils.dialogs.SelectMediaDialogFragment;
 import app.itadakimasu.utils.dialogs.WarningDialogFragment;
 
@@ -72,8 +79,9 @@ public class RecipeCreationFragment extends Fragment {
                         Uri resultUri = result.getUriContent();
                         String resultPath = result.getUriFilePath(requireContext(), false);
 
-                        creationViewModel.setPhotoUri(resultUri);
+                        // The path is settled first, the image shown depends on it.
                         creationViewModel.setPhotoPath(resultPath);
+                        creationViewModel.setPhotoUri(resultUri);
 
                     }
                 }
@@ -122,6 +130,7 @@ public class RecipeCreationFragment extends Fragment {
             String recipeDescription = binding.etAddRecipeDescription.getText().toString().trim();
             if (creationViewModel.isEdited()) {
                 if (creationViewModel.areFieldsFilledEdited(recipeTitle, recipeDescription)) {
+                    binding.pbProgress.setProgressCompat(0, false);
                     binding.pbProgress.setVisibility(View.VISIBLE);
                     updateRecipe();
                 } else {
@@ -129,6 +138,7 @@ public class RecipeCreationFragment extends Fragment {
                 }
             } else {
                 if (creationViewModel.areFieldsFilled(recipeTitle, recipeDescription)) {
+                    binding.pbProgress.setProgressCompat(0, false);
                     binding.pbProgress.setVisibility(View.VISIBLE);
                     uploadRecipe();
                 } else {
@@ -153,7 +163,8 @@ public class RecipeCreationFragment extends Fragment {
 
         // Observable to update the Image view with the image that the user loads.
         creationViewModel.getPhotoUri().observe(getViewLifecycleOwner(), imageUri ->
-                Glide.with(requireContext()).load(imageUri).centerCrop().error(R.drawable.ic_baseline_image_not_supported_24).into(binding.ivAddRecipeImage));
+                Glide.with(requireContext()).load(imageUri).signature(AppGlideModuleUtils.getVersionSignature(getShownPhotoVersion()))
+                        .centerCrop().error(R.drawable.ic_baseline_image_not_supported_24).into(binding.ivAddRecipeImage));
 
     }
 
@@ -170,6 +181,9 @@ public class RecipeCreationFragment extends Fragment {
             creationViewModel.setEdited(true);
             creationViewModel.setRecipeIdToEdit(recipe.getId());
             creationViewModel.setRecipeDateToEdit(recipe.getCreationDate());
+            creationViewModel.setRecipePhotoVersionToEdit(recipe.getPhotoVersion());
+            creationViewModel.setRecipePhotoVariantsToEdit(recipe.isPhotoVariantsUploaded());
+            creationViewModel.setRecipePhotoBlurHashToEdit(recipe.getPhotoBlurHash());
 
             binding.etAddRecipeTitle.setText(recipe.getTitle());
             binding.etAddRecipeDescription.setText(recipe.getDescription());
@@ -230,25 +244,62 @@ public class RecipeCreationFragment extends Fragment {
      * @param recipePhotoUrl - the recipe's url image where the image's data will be uploaded.
      */
     private void uploadPhotoStorage(String recipePhotoUrl) {
-        // Obtains the path of the recipe's cropped image and compress it.
-        String imagePath = creationViewModel.getPhotoPath();
-        byte[] imageData = ImageCompressorUtils.compressImage(imagePath, ImageCompressorUtils.LANDSCAPE_MAX_HEIGHT, ImageCompressorUtils.LANDSCAPE_MAX_WIDTH);
+        // The recipe's cropped image is compressed in every size on the background, the upload
+        // starts as soon as the images are ready.
+        creationViewModel.compressPhoto(recipePhotoUrl).observe(getViewLifecycleOwner(), state -> {
+            if (state.getStage() == ImageProcessingState.Stage.DONE) {
+                ImageProgressUtils.showProcessingProgress(binding.pbProgress, state);
+                uploadImages(recipePhotoUrl, state.getResult());
+            } else if (state.getStage() == ImageProcessingState.Stage.FAILED) {
+                binding.pbProgress.setVisibility(View.GONE);
+                Snackbar.make(binding.getRoot(), R.string.image_upload_error, Snackbar.LENGTH_LONG)
+                        .setAnchorView(binding.fabCreateRecipe).setAction(R.string.retry, v -> {
+                            binding.pbProgress.setVisibility(View.VISIBLE);
+                            uploadPhotoStorage(recipePhotoUrl);
+                        }).show();
+            } else {
+                ImageProgressUtils.showProcessingProgress(binding.pbProgress, state);
+            }
+        });
+    }
 
+    /**
+     * Uploads the compressed images to the firebase storage, the upload goes on in the background if
+     * the user leaves the screen. Its version is written on the recipe once every size is uploaded,
+     * so the cached copies of the old image aren't shown.
+     * @param recipePhotoUrl - the recipe's url image where the image's data will be uploaded.
+     * @param images - the compressed image in every size.
+     */
+    private void uploadImages(String recipePhotoUrl, Map<ImageVariant, EncodedImage> images) {
         // View model method to upload the photo to storage.
-        // Observes for a result, if the result is successful the user will be sent back to the host fragment.
-        creationViewModel.uploadPhotoStorage(recipePhotoUrl, imageData).observe(getViewLifecycleOwner(), result -> {
-            binding.pbProgress.setVisibility(View.GONE);
-            if (result instanceof Result.Success) {
+        // Observes for its state, if it's uploaded the user will be sent back to the host fragment.
+        creationViewModel.uploadPhotoStorage(recipePhotoUrl, images).observe(getViewLifecycleOwner(), state -> {
+            if (state.getStatus() == ImageUploadState.Status.SUCCEEDED) {
+                binding.pbProgress.setVisibility(View.GONE);
                 NavHostFragment.findNavController(this).popBackStack();
-
-            } else {
-                // If the upload fails the user will be informed via a snack bar, they will be able to retry to upload it again.
+            } else if (state.getStatus() == ImageUploadState.Status.FAILED) {
+                binding.pbProgress.setVisibility(View.GONE);
+                // If the upload fails the user will be informed via a snack bar, they will be able to
+                // retry to upload the same images again.
                 Snackbar.make(binding.getRoot(), R.string.image_upload_error, Snackbar.LENGTH_LONG)
-                        .setAnchorView(binding.fabCreateRecipe).setAction(R.string.retry, v -> uploadPhotoStorage(recipePhotoUrl)).show();
+                        .setAnchorView(binding.fabCreateRecipe).setAction(R.string.retry, v -> {
+                            binding.pbProgress.setVisibility(View.VISIBLE);
+                            uploadImages(recipePhotoUrl, images);
+                        }).show();
+            } else {
+                ImageProgressUtils.showUploadProgress(binding.pbProgress, state);
             }
         });
     }
 
+    /**
+     * @return the version of the image shown, only the edited recipe's image has one; the cropped
+     * images are local files.
+     */
+    private String getShownPhotoVersion() {
+        return creationViewModel.getPhotoPath() == null ? creationViewModel.getRecipePhotoVersionToEdit() : null;
+    }
+
     /**
      * Updates an existed recipe, used when its edited.
      */
@@ -1,6 +1,5 @@
 package app.itadakimasu.ui.recipeDetails;
 
-import android.net.Uri;
 import android.os.Bundle;
 
 import androidx.annotation.NonNull;
@@ -8,24 +7,23 @@ import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.navigation.fragment.NavHostFragment;
+import androidx.recyclerview.widget.ConcatAdapter;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 
-import com.bumptech.glide.Glide;
 import com.google.android.material.snackbar.Snackbar;
 
-import java.util.List;
-
 import app.itadakimasu.R;
 import app.itadakimasu.data.Result;
-import app.itadakimasu.data.model.Ingredient;
 import app.itadakimasu.data.model.Recipe;
-import app.itadakimasu.data.model.Step;
+import app.itadakimasu.data.model.RecipeContent;
 import app.itadakimasu.databinding.FragmentRecipeDetailsBinding;
+import app.itadakimasu.ui.adapters.RecipeDetailsHeaderAdapter;
 import app.itadakimasu.ui.adapters.RecipeDetailsIngredientAdapter;
+import app.itadakimasu.ui.adapters.RecipeDetailsSectionTitleAdapter;
 import app.itadakimasu.ui.adapters.RecipeDetailsStepAdapter;
 import app.itadakimasu.ui.userProfile.UserProfileFragment;
 
@@ -43,9 +41,12 @@ public class RecipeDetailsFragment extends Fragment {
     // View model that stores the recipe's data on memory for configuration changes survival.
     private RecipeDetailsViewModel detailsViewModel;
 
-    // Adapter for the list of ingredients and steps.
+    // Adapters of the sections of the details list: the recipe's data, its ingredients and steps.
+    private RecipeDetailsHeaderAdapter headerAdapter;
     private RecipeDetailsIngredientAdapter ingredientsAdapter;
     private RecipeDetailsStepAdapter stepsAdapter;
+    private RecipeDetailsSectionTitleAdapter ingredientsTitleAdapter;
+    private RecipeDetailsSectionTitleAdapter stepsTitleAdapter;
 
 
     @Override
@@ -68,95 +69,60 @@ public class RecipeDetailsFragment extends Fragment {
 
         // When the recipe is obtained, shows the data.
         detailsViewModel.getSelectedRecipe().observe(getViewLifecycleOwner(), this::showRecipeData);
+        // Checks the favourite state again when the favourites index changes.
+        detailsViewModel.getFavouriteRecipeIds().observe(getViewLifecycleOwner(), favouriteIds -> {
+            if (detailsViewModel.getSelectedRecipe().getValue() != null) {
+                loadRecipeFavourite();
+            }
+        });
 
-        // Submit the list of ingredients and lists to the adapters.
-        detailsViewModel.getIngredientList().observe(getViewLifecycleOwner(), ingredientList -> ingredientsAdapter.submitList(ingredientList));
-        detailsViewModel.getStepList().observe(getViewLifecycleOwner(), stepList -> stepsAdapter.submitList(stepList));
+        // Submit the list of ingredients and steps to the adapters at once.
+        detailsViewModel.getDetailsState().observe(getViewLifecycleOwner(), detailsState -> {
+            ingredientsTitleAdapter.setShown(!detailsState.getIngredientList().isEmpty());
+            ingredientsAdapter.submitList(detailsState.getIngredientList());
+            stepsTitleAdapter.setShown(!detailsState.getStepList().isEmpty());
+            stepsAdapter.submitList(detailsState.getStepList());
+        });
 
         // When selecting the author's image or username, the user is sent to their profile.
-        binding.ivUserImage.setOnClickListener(v -> goToAuthorProfile());
-        binding.tvAuthor.setOnClickListener(v -> goToAuthorProfile());
+        headerAdapter.setOnAuthorClickListener(v -> goToAuthorProfile());
         // When clicking to the go back button, the user is sent back to the previous fragment where they were.
         binding.ibGoBack.setOnClickListener(v -> NavHostFragment.findNavController(this).popBackStack());
         // Adds or removes from favourite the recipe.
-        binding.cbFavourite.setOnClickListener(v -> {
+        headerAdapter.setOnFavouriteClickListener(v -> {
             if (detailsViewModel.isRecipeFavourite()) {
                 removeFromFavourites();
             } else {
                 addToFavourites();
             }
         });
-
+        // Lets the user retry the load of the recipe's images when it fails.
+        headerAdapter.setOnImageLoadFailedListener(retry ->
+                Snackbar.make(binding.getRoot(), R.string.image_load_error, Snackbar.LENGTH_LONG)
+                        .setAction(R.string.retry, v -> retry.run())
+                        .show());
     }
 
     /**
-     * The recipe's data except the lists are obtained with the recipe and loaded into its views.
+     * The recipe's data except the lists are obtained with the recipe and shown on the first row.
      * After that, the ingredients and steps are loaded using the recipe's id.
      * @param recipe - the recipe from which data is loaded.
      */
     private void showRecipeData(Recipe recipe) {
-        binding.cbFavourite.setEnabled(true);
-
-        loadAuthorImage(recipe.getPhotoAuthorUrl());
-        loadRecipeImage(recipe.getPhotoUrl());
-
-        binding.tvAuthor.setText(getString(R.string.created_by, recipe.getAuthor()));
-        binding.tvRecipeTitle.setText(recipe.getTitle());
-        binding.tvRecipeDescription.setText(recipe.getDescription());
+        headerAdapter.setRecipe(recipe);
         // Checks if the recipe is a user's favourite one.
         loadRecipeFavourite();
         // Loads the ingredient and step list.
-        loadIngredientList(recipe.getId());
-        loadStepList(recipe.getId());
-
-    }
-
-    /**
-     * Downloads the recipe image and updates the UI.
-     * @param photoUrl - the recipe's image url.
-     */
-    private void loadRecipeImage(String photoUrl) {
-        detailsViewModel.downloadImageData(photoUrl).observe(getViewLifecycleOwner(), result -> {
-           if (result instanceof Result.Success) {
-               Uri uriImage = ((Result.Success<Uri>) result).getData();
-               Glide.with(requireContext()).load(uriImage).error(R.drawable.ic_baseline_image_not_supported_24).centerCrop().into(binding.ivRecipeImage);
-           } else {
-               Snackbar.make(binding.getRoot(), R.string.image_load_error, Snackbar.LENGTH_LONG)
-                       .setAction(R.string.retry, v -> loadRecipeImage(photoUrl))
-                       .show();
-           }
-        });
-    }
-
-    /**
-     * Downloads the author photo and updates the UI.
-     * @param photoAuthorUrl - the author's image url.
-     */
-    private void loadAuthorImage(String photoAuthorUrl) {
-        detailsViewModel.downloadImageData(photoAuthorUrl).observe(getViewLifecycleOwner(), result -> {
-            if (result instanceof Result.Success) {
-                Uri uriImage = ((Result.Success<Uri>) result).getData();
-                Glide.with(requireContext()).load(uriImage).error(R.drawable.ic_default_user_profile).circleCrop().into(binding.ivUserImage);
-
-            } else {
-                Snackbar.make(binding.getRoot(), R.string.image_load_error, Snackbar.LENGTH_LONG)
-                        .setAction(R.string.retry, v -> loadAuthorImage(photoAuthorUrl))
-                        .show();
-            }
-        });
+        loadRecipeContent(recipe.getId());
     }
 
     /**
-     * Checks if the user added to favourites the selected recipe.
+     * Checks on the local favourites index if the user added to favourites the selected recipe.
      */
     private void loadRecipeFavourite() {
-        detailsViewModel.loadRecipeAsFavourite().observe(getViewLifecycleOwner(), result -> {
-            if (result instanceof Result.Success) {
-                boolean isFavourite = ((Result.Success<Boolean>) result).getData();
-                binding.cbFavourite.setChecked(isFavourite);
-                detailsViewModel.setRecipeAsFavourite(isFavourite);
-            }
-        });
+        boolean isFavourite = detailsViewModel.loadRecipeAsFavourite();
+        headerAdapter.setFavourite(isFavourite);
+        detailsViewModel.setRecipeAsFavourite(isFavourite);
     }
 
     /**
@@ -165,10 +131,10 @@ public class RecipeDetailsFragment extends Fragment {
     private void addToFavourites() {
         detailsViewModel.addRecipeToFavourites().observe(getViewLifecycleOwner(), result -> {
             if (result instanceof Result.Success) {
-                binding.cbFavourite.setChecked(true);
+                headerAdapter.setFavourite(true);
                 detailsViewModel.setRecipeAsFavourite(true);
             } else {
-                binding.cbFavourite.setChecked(false);
+                headerAdapter.setFavourite(false);
                 Snackbar.make(binding.getRoot(), R.string.add_fav_error, Snackbar.LENGTH_SHORT).show();
             }
         });
@@ -180,10 +146,10 @@ public class RecipeDetailsFragment extends Fragment {
     private void removeFromFavourites() {
         detailsViewModel.removeRecipeFromFavourites().observe(getViewLifecycleOwner(), result -> {
             if (result instanceof Result.Success) {
-                binding.cbFavourite.setChecked(false);
+                headerAdapter.setFavourite(false);
                 detailsViewModel.setRecipeAsFavourite(false);
             } else {
-                binding.cbFavourite.setChecked(false);
+                headerAdapter.setFavourite(false);
                 Snackbar.make(binding.getRoot(), R.string.remove_fav_error, Snackbar.LENGTH_SHORT).show();
             }
         });
@@ -199,55 +165,47 @@ public class RecipeDetailsFragment extends Fragment {
         Recipe userRecipe = detailsViewModel.getSelectedRecipe().getValue();
         result.putString(UserProfileFragment.RESULT_USERNAME, userRecipe.getAuthor());
         result.putString(UserProfileFragment.RESULT_USER_PHOTO, userRecipe.getPhotoAuthorUrl());
+        result.putString(UserProfileFragment.RESULT_USER_PHOTO_VERSION, userRecipe.getPhotoAuthorVersion());
         // Sets the fragment result and sends the user to the user profile.
         getParentFragmentManager().setFragmentResult(UserProfileFragment.REQUEST, result);
         NavHostFragment.findNavController(this).navigate(R.id.action_navigation_details_to_navigation_user_profile);
     }
 
     /**
-     * Loads the ingredient list from given recipe's id.
-     * @param recipeId - the recipe's id.
-     */
-    private void loadIngredientList(String recipeId) {
-        detailsViewModel.loadIngredientList(recipeId).observe(getViewLifecycleOwner(), result -> {
-            if (result instanceof Result.Success) {
-                detailsViewModel.setIngredientList(((Result.Success<List<Ingredient>>) result).getData());
-            } else {
-                Snackbar.make(binding.getRoot(), R.string.ingredient_list_load_error, Snackbar.LENGTH_LONG)
-                        .setAction(R.string.retry, v -> loadStepList(recipeId))
-                        .show();
-            }
-        });
-    }
-
-    /**
-     * Loads the step list from given recipe's id.
+     * Loads the ingredient and step lists from given recipe's id.
      * @param recipeId - the recipe's id.
      */
-    private void loadStepList(String recipeId) {
-        detailsViewModel.loadStepsList(recipeId).observe(getViewLifecycleOwner(), result -> {
+    private void loadRecipeContent(String recipeId) {
+        detailsViewModel.loadRecipeContent(recipeId).observe(getViewLifecycleOwner(), result -> {
             if (result instanceof Result.Success) {
-                detailsViewModel.setStepList(((Result.Success<List<Step>>) result).getData());
+                detailsViewModel.setRecipeContent(((Result.Success<RecipeContent>) result).getData());
             } else {
-                Snackbar.make(binding.getRoot(), R.string.step_list_load_error, Snackbar.LENGTH_LONG)
-                        .setAction(R.string.retry, v -> loadStepList(recipeId))
+                Snackbar.make(binding.getRoot(), R.string.recipe_content_load_error, Snackbar.LENGTH_LONG)
+                        .setAction(R.string.retry, v -> loadRecipeContent(recipeId))
                         .show();
             }
         });
     }
 
     /**
-     * Set ups the recycler views from the fragment and the adapters.
+     * Set ups the details list, a single recycler view with the recipe's data, its ingredients and
+     * steps as consecutive sections, so every row is recycled while scrolling.
      */
     private void setupRecyclerViews() {
+        headerAdapter = new RecipeDetailsHeaderAdapter(requireContext());
         ingredientsAdapter = new RecipeDetailsIngredientAdapter();
         stepsAdapter = new RecipeDetailsStepAdapter();
-
-        binding.rvIngredientList.setLayoutManager(new LinearLayoutManager(requireContext()));
-        binding.rvIngredientList.setAdapter(ingredientsAdapter);
-
-        binding.rvStepList.setLayoutManager(new LinearLayoutManager(requireContext()));
-        binding.rvStepList.setAdapter(stepsAdapter);
+        ingredientsTitleAdapter = new RecipeDetailsSectionTitleAdapter(R.string.ingredients);
+        stepsTitleAdapter = new RecipeDetailsSectionTitleAdapter(R.string.steps);
+
+        ConcatAdapter detailsAdapter = new ConcatAdapter(
+                headerAdapter,
+                ingredientsTitleAdapter,
+                ingredientsAdapter,
+                stepsTitleAdapter,
+                stepsAdapter);
+        binding.rvRecipeDetails.setLayoutManager(new LinearLayoutManager(requireContext()));
+        binding.rvRecipeDetails.setAdapter(detailsAdapter);
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,43 @@
+package app.itadakimasu.ui.recipeDetails;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import app.itadakimasu.data.model.Ingredient;
+import app.itadakimasu.data.model.RecipeContent;
+import app.itadakimasu.data.model.Step;
+
+/**
+ * Immutable state of the recipe's details lists, the ingredients and steps are published together
+ * so the screen is rendered once both of them are loaded.
+ */
+public final class RecipeDetailsState {
+    private final List<Ingredient> ingredientList;
+    private final List<Step> stepList;
+
+    /**
+     * @param ingredientList - the recipe's ingredients ordered by position.
+     * @param stepList - the recipe's steps ordered by position.
+     */
+    public RecipeDetailsState(List<Ingredient> ingredientList, List<Step> stepList) {
+        this.ingredientList = Collections.unmodifiableList(new ArrayList<>(ingredientList));
+        this.stepList = Collections.unmodifiableList(new ArrayList<>(stepList));
+    }
+
+    /**
+     * @param content - the recipe's content loaded from the data source.
+     * @return the details state with the content's lists.
+     */
+    public static RecipeDetailsState fromContent(RecipeContent content) {
+        return new RecipeDetailsState(content.getIngredients(), content.getSteps());
+    }
+
+    public List<Ingredient> getIngredientList() {
+        return ingredientList;
+    }
+
+    public List<Step> getStepList() {
+        return stepList;
+    }
+}
@@ -11,14 +11,13 @@ import androidx.lifecycle.ViewModel;
 
 import com.google.firebase.storage.StorageReference;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Set;
 
 import app.itadakimasu.data.Result;
-import app.itadakimasu.data.model.Ingredient;
 import app.itadakimasu.data.model.Recipe;
-import app.itadakimasu.data.model.Step;
+import app.itadakimasu.data.model.RecipeContent;
 import app.itadakimasu.data.repository.FavouritesRepository;
+import app.itadakimasu.data.repository.ReadPolicy;
 import app.itadakimasu.data.repository.RecipesRepository;
 import app.itadakimasu.data.repository.SharedPrefRepository;
 import app.itadakimasu.data.repository.StorageRepository;
@@ -36,8 +35,8 @@ public class RecipeDetailsViewModel extends AndroidViewModel {
     private final FavouritesRepository favouritesRepository;
     // Observable data of the recipe's data.
     private final MutableLiveData<Recipe> selectedRecipe;
-    private final MutableLiveData<List<Ingredient>> ingredientList;
-    private final MutableLiveData<List<Step>> stepList;
+    // Observable state with the recipe's ingredients and steps, published at once.
+    private final MutableLiveData<RecipeDetailsState> detailsState;
 
     public RecipeDetailsViewModel(@NonNull Application application) {
         super(application);
@@ -46,8 +45,8 @@ public class RecipeDetailsViewModel extends AndroidViewModel {
         this.recipesRepository = RecipesRepository.getInstance();
         this.favouritesRepository = FavouritesRepository.getInstance();
         this.selectedRecipe = new MutableLiveData<>();
-        this.ingredientList = new MutableLiveData<>();
-        this.stepList = new MutableLiveData<>();
+        this.detailsState = new MutableLiveData<>();
+        this.favouritesRepository.startFavouritesIndex(getAuthUsername());
     }
 
 
@@ -59,35 +58,20 @@ public class RecipeDetailsViewModel extends AndroidViewModel {
     }
 
     /**
-     * @return the list of the recipe's ingredients.
+     * @return the observable state with the recipe's ingredients and steps.
      */
-    public LiveData<List<Ingredient>> getIngredientList() {
-        return ingredientList;
+    public LiveData<RecipeDetailsState> getDetailsState() {
+        return detailsState;
     }
 
     /**
-     * @return the list of the recipe's steps.
-     */
-    public LiveData<List<Step>> getStepList() {
-        return stepList;
-    }
-
-    /**
-     * Loads the ingredients of the recipe using its id.
+     * Loads the ingredients and steps of the recipe using its id, with a single read of its content.
+     * When the recipe has no content document, both sub-collections are queried at the same time.
      * @param recipeId - the recipe id, that identifies the document entry in the collection.
-     * @return the list of the recipe's ingredients, or an error as an observable data.
+     * @return the recipe's content with both lists, or an error as an observable data.
      */
-    public LiveData<Result<?>> loadIngredientList(String recipeId) {
-        return recipesRepository.getIngredientsFromRecipe(recipeId);
-    }
-
-    /**
-     * Loads the step of the recipe using its id.
-     * @param recipeId - the recipe id, that identifies the document entry in the collection.
-     * @return the list of the recipe's steps, or an error as an observable data.
-     */
-    public LiveData<Result<?>> loadStepsList(String recipeId) {
-        return recipesRepository.getStepsFromRecipe(recipeId);
+    public LiveData<Result<?>> loadRecipeContent(String recipeId) {
+        return recipesRepository.getRecipeContent(recipeId, ReadPolicy.CACHE_THEN_SERVER);
     }
 
     /**
@@ -107,19 +91,18 @@ public class RecipeDetailsViewModel extends AndroidViewModel {
     }
 
     /**
-     * Checks if the user has this recipe added as favourite, using the auth user's username and recipe's id.
-     * @return boolean true if is favourite, false if not; error if something wrong happens.
+     * @return observable set with the ids of the user's favourite recipes from the local index.
      */
-    public LiveData<Result<?>> loadRecipeAsFavourite() {
-        return favouritesRepository.findFavouriteRecipe(getAuthUsername(), selectedRecipe.getValue().getId());
+    public LiveData<Set<String>> getFavouriteRecipeIds() {
+        return favouritesRepository.getFavouriteRecipeIds();
     }
 
     /**
-     * @param imageUrl - the image path to download.
-     * @return success uri with the image's data or result error if it fails.
+     * Checks on the local favourites index if the user has this recipe added as favourite.
+     * @return true if is favourite, false if not.
      */
-    public LiveData<Result<?>> downloadImageData(String imageUrl) {
-        return storageRepository.getImageUri(imageUrl);
+    public boolean loadRecipeAsFavourite() {
+        return favouritesRepository.isFavourite(selectedRecipe.getValue().getId());
     }
 
     /**
@@ -131,19 +114,11 @@ public class RecipeDetailsViewModel extends AndroidViewModel {
     }
 
     /**
-     * Sets the list of ingredients.
-     * @param ingredientList - the list of ingredients that will be added.
-     */
-    public void setIngredientList(List<Ingredient> ingredientList) {
-        this.ingredientList.setValue(ingredientList);
-    }
-
-    /**
-     * Sets the list of steps.
-     * @param stepList - the list of steps that will be added.
+     * Publishes the recipe's ingredients and steps as a single details state.
+     * @param content - the recipe's content with both lists.
      */
-    public void setStepList(List<Step> stepList) {
-        this.stepList.setValue(stepList);
+    public void setRecipeContent(RecipeContent content) {
+        this.detailsState.setValue(RecipeDetailsState.fromContent(content));
     }
 
     /**
@@ -4,16 +4,13 @@ import androidx.core.content.ContextCompat;
 import androidx.lifecycle.ViewModelProvider;
 
 import android.graphics.Bitmap;
-import android.net.Uri;
 import android.os.Bundle;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 import androidx.navigation.fragment.NavHostFragment;
-import androidx.palette.graphics.Palette;
 import androidx.recyclerview.widget.LinearLayoutManager;
-import androidx.recyclerview.widget.RecyclerView;
 
 import android.view.LayoutInflater;
 import android.view.View;
@@ -29,15 +26,19 @@ import com.google.android.material.snackbar.Snackbar;
 import com.google.firebase.storage.StorageReference;
 
 import java.util.ArrayList;
-import java.util.List;
 
 import app.itadakimasu.R;
 import app.itadakimasu.data.Result;
+import app.itadakimasu.data.model.Page;
 import app.itadakimasu.data.model.Recipe;
-import app.itadakimasu.data.repository.RecipesRepository;
 import app.itadakimasu.databinding.FragmentUserProfileBinding;
 import app.itadakimasu.ui.adapters.ProfileRecipesAdapter;
+import app.itadakimasu.ui.adapters.RecipeImagePreloadProvider;
 import app.itadakimasu.ui.recipeDetails.RecipeDetailsFragment;
+import app.itadakimasu.utils.pagination.PaginationState;
+import app.itadakimasu.utils.AppGlideModuleUtils;
+import app.itadakimasu.utils.ProfileColorCache;
+import app.itadakimasu.utils.pagination.PrefetchScrollListener;
 
 /**
  * Fragment used for watching other user's profiles.
@@ -48,6 +49,7 @@ public class UserProfileFragment extends Fragment {
     public static final String REQUEST = "app.itadakimasu.ui.userProfile.Request";
     public static final String RESULT_USERNAME = "app.itadakimasu.ui.userProfile.ResultUsername";
     public static final String RESULT_USER_PHOTO = "app.itadakimasu.ui.userProfile.ResultUserPhoto";
+    public static final String RESULT_USER_PHOTO_VERSION = "app.itadakimasu.ui.userProfile.ResultUserPhotoVersion";
 
     // The fragment's binding layout.
     private FragmentUserProfileBinding binding;
@@ -80,6 +82,8 @@ public class UserProfileFragment extends Fragment {
             String userPhotoUrl = result.getString(RESULT_USER_PHOTO);
 
             userProfileViewModel.setProfileUsername(username);
+            // The version is settled first, the photo is loaded when its url is settled.
+            userProfileViewModel.setPhotoVersion(result.getString(RESULT_USER_PHOTO_VERSION));
             userProfileViewModel.setPhotoUrl(userPhotoUrl);
         });
 
@@ -105,39 +109,23 @@ public class UserProfileFragment extends Fragment {
         // Load the first recipes when the user refresh the list by pulling down.
         binding.srlRefresh.setOnRefreshListener(this::loadFirstRecipes);
 
-        // Listener of recycler view, used for pagination, this charges the next recipes when the recycler view
-        // reaches its end.
-        binding.rvRecipes.addOnScrollListener(new RecyclerView.OnScrollListener() {
-            @Override
-            public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
-                super.onScrollStateChanged(recyclerView, newState);
-                // With loadingData we assure that when is loading the user wont be able to call for data again.
-                if ((!recyclerView.canScrollVertically(1)) && !userProfileViewModel.isLoadingData() && !userProfileViewModel.reachedEndPagination()) {
-                    if (!userProfileViewModel.isListEmpty()) {
-                        loadNextRecipes();
-                    }
-                }
-            }
-        });
+        // Scroll listener that loads the next recipes before the user reaches the end of the list.
+        binding.rvRecipes.addOnScrollListener(new PrefetchScrollListener((LinearLayoutManager) binding.rvRecipes.getLayoutManager(),
+                userProfileViewModel.getPagination(), this::loadNextRecipes));
+        // Scroll listener that loads the images of the next rows before they are shown.
+        binding.rvRecipes.addOnScrollListener(RecipeImagePreloadProvider.createPreloader(this, adapter, adapter.getPreloadSizeProvider()));
 
 
     }
 
     /**
-     * Downloads the user's image and loads it into the UI.
+     * Loads the user's image into the UI, showing the cached color of the profile first.
      * @param userImageUrl - the user's image url where the data is stored.
      */
     private void setUserImage(String userImageUrl) {
-        userProfileViewModel.downloadUserImage(userImageUrl).observe(getViewLifecycleOwner(), result -> {
-            if (result instanceof Result.Success) {
-                Uri imageUri = ((Result.Success<Uri>) result).getData();
-                loadUserImage(imageUri);
-            } else {
-                Snackbar.make(binding.getRoot(), R.string.image_load_error, Snackbar.LENGTH_LONG)
-                        .setAction(R.string.retry, v -> setUserImage(userImageUrl))
-                        .show();
-            }
-        });
+        String photoVersion = userProfileViewModel.getPhotoVersion();
+        applyCachedProfileColor(userImageUrl, photoVersion);
+        loadUserImage(userImageUrl, photoVersion);
     }
 
     /**
@@ -156,16 +144,25 @@ public class UserProfileFragment extends Fragment {
      * If the load fails, an error will prompt to the user.
      */
     private void loadFirstRecipes() {
+        // Any page still loading belongs to the old list, so its answer will be ignored.
+        int generation = userProfileViewModel.getPagination().startFirstPage();
         setDataIsLoading();
 
+        // The stored recipes can be received first, they are replaced when firebase answers, which
+        // is when the loading ends.
         userProfileViewModel.loadFirstRecipes().observe(getViewLifecycleOwner(), result -> {
-            setDataIsRetrieved();
-            binding.srlRefresh.setRefreshing(false);
+            if (!userProfileViewModel.getPagination().isCurrent(generation)) {
+                return;
+            }
+            if (!result.isFromCache()) {
+                setPageIsRetrieved();
+                binding.srlRefresh.setRefreshing(false);
+            }
 
             if (result instanceof Result.Success) {
-                List<Recipe> recipeList = ((Result.Success<List<Recipe>>) result).getData();
-                userProfileViewModel.setRecipesList(recipeList);
-                userProfileViewModel.setPaginationEndState(recipeList.size() < RecipesRepository.LIMIT_QUERY);
+                Page<Recipe> page = ((Result.Success<Page<Recipe>>) result).getData();
+                // Also moves the cursor to the last recipe, and the pagination ends if the page isn't full.
+                userProfileViewModel.setRecipesList(page);
             } else {
                 Snackbar.make(binding.getRoot(), R.string.list_retrieve_error, Snackbar.LENGTH_LONG).show();
             }
@@ -174,21 +171,28 @@ public class UserProfileFragment extends Fragment {
 
     /**
      * Loads the next recipes with pagination.
-     * We get recipes by the limit query implemented in RecipesRepository,
-     * if the size of list cannot be divided by that limit having 0 as a remainder,
-     * ie: that the list should be multiples of 10 (20, 30, 40, 50, 60...),
-     * then the system wont call for more recipes, because the list of recipes reached to the end.
+     * The next page starts after the cursor of the pagination state, and when a page is smaller than
+     * the limit query implemented in RecipesRepository, the list reached its end.
      */
     private void loadNextRecipes() {
+        PaginationState<?> pagination = userProfileViewModel.getPagination();
+        // Only one page is loaded at a time.
+        if (!pagination.startNextPage()) {
+            return;
+        }
+        int generation = pagination.getGeneration();
         setDataIsLoading();
 
         userProfileViewModel.loadNextRecipes().observe(getViewLifecycleOwner(), result -> {
-            setDataIsRetrieved();
+            if (!pagination.isCurrent(generation)) {
+                return;
+            }
+            setPageIsRetrieved();
 
             if (result instanceof Result.Success) {
-                List<Recipe> recipeList = ((Result.Success<List<Recipe>>) result).getData();
-                userProfileViewModel.setPaginationEndState(recipeList.size() < RecipesRepository.LIMIT_QUERY);
-                userProfileViewModel.addRetrievedRecipes(recipeList);
+                Page<Recipe> page = ((Result.Success<Page<Recipe>>) result).getData();
+                // Also moves the cursor to the last recipe, and the pagination ends if the page isn't full.
+                userProfileViewModel.addRetrievedRecipes(page);
             } else {
                 Snackbar.make(binding.getRoot(), R.string.list_retrieve_error, Snackbar.LENGTH_LONG).show();
             }
@@ -197,26 +201,32 @@ public class UserProfileFragment extends Fragment {
     }
 
     /**
-     * Shows the progress bar and sets the loading data as true.
+     * Shows the progress bar.
      */
     private void setDataIsLoading() {
         binding.pbProgress.setVisibility(View.VISIBLE);
-        userProfileViewModel.setLoadingDataState(true);
     }
 
     /**
-     * Hides the progress bar and sets the loading data as false.
+     * Hides the progress bar.
      */
     private void setDataIsRetrieved() {
         binding.pbProgress.setVisibility(View.GONE);
-        userProfileViewModel.setLoadingDataState(false);
+    }
+
+    /**
+     * Hides the progress bar and ends the page load, so the next page can be loaded.
+     */
+    private void setPageIsRetrieved() {
+        userProfileViewModel.getPagination().finishLoading();
+        setDataIsRetrieved();
     }
 
     /**
      * Initiates the adapter and recycler layout manager.
      */
     private void initiateRvLayout() {
-        adapter = new ProfileRecipesAdapter(requireContext(), getViewLifecycleOwner());
+        adapter = new ProfileRecipesAdapter(requireContext());
         binding.rvRecipes.setLayoutManager(new LinearLayoutManager(requireContext()));
         binding.rvRecipes.setAdapter(adapter);
     }
@@ -224,28 +234,56 @@ public class UserProfileFragment extends Fragment {
     /**
      * Loads the user's image getting the Image Reference.
      * Using the bitmap of the image, android's palette library will be used to obtain the muted
-     * color and it will establish it to the profile background.
+     * color and it will establish it to the profile background, unless the color is cached.
+     * @param photoUrl - the user's photo url path.
+     * @param photoVersion - the version of the user's photo.
      */
-    private void loadUserImage(Uri uriImage) {
-        Glide.with(requireContext()).asBitmap().load(uriImage).circleCrop().diskCacheStrategy(DiskCacheStrategy.ALL).placeholder(R.drawable.ic_default_user_profile)
+    private void loadUserImage(String photoUrl, String photoVersion) {
+        Glide.with(this).asBitmap().load(userProfileViewModel.getUserImageReference(photoUrl)).signature(AppGlideModuleUtils.getVersionSignature(photoVersion))
+                .circleCrop().diskCacheStrategy(DiskCacheStrategy.ALL).placeholder(R.drawable.ic_default_user_profile)
                 .error(R.drawable.ic_default_user_profile)
                 .listener(new RequestListener<>() {
                     @Override
                     public boolean onLoadFailed(@Nullable GlideException e, Object model, Target<Bitmap> target, boolean isFirstResource) {
+                        // A user without photo is shown with the default image.
+                        if (binding != null && !AppGlideModuleUtils.isImageMissing(e)) {
+                            Snackbar.make(binding.getRoot(), R.string.image_load_error, Snackbar.LENGTH_LONG)
+                                    .setAction(R.string.retry, v -> setUserImage(photoUrl))
+                                    .show();
+                        }
                         return false;
                     }
 
                     @Override
                     public boolean onResourceReady(Bitmap resource, Object model, Target<Bitmap> target, DataSource dataSource, boolean isFirstResource) {
-                        if (resource != null) {
-                            Palette p = Palette.from(resource).generate();
-                            binding.getRoot().setBackgroundColor(p.getMutedColor(ContextCompat.getColor(requireContext(), R.color.primaryColor)));
+                        // The cached color is already shown, otherwise the palette is generated in the background.
+                        ProfileColorCache colorCache = ProfileColorCache.getInstance(requireContext());
+                        if (resource != null && colorCache.getColor(photoUrl, photoVersion) == null) {
+                            colorCache.extractColor(resource, photoUrl, photoVersion, ContextCompat.getColor(requireContext(), R.color.primaryColor),
+                                    color -> {
+                                        if (binding != null) {
+                                            binding.getRoot().setBackgroundColor(color);
+                                        }
+                                    });
                         }
                         return false;
                     }
                 }).into(binding.ivUserImage);
     }
 
+    /**
+     * Sets the profile's background with the cached color of the user's photo, if it's been
+     * obtained before, so it's shown before the photo is loaded.
+     * @param photoUrl - the user's photo url path.
+     * @param photoVersion - the version of the user's photo.
+     */
+    private void applyCachedProfileColor(String photoUrl, String photoVersion) {
+        Integer color = ProfileColorCache.getInstance(requireContext()).getColor(photoUrl, photoVersion);
+        if (color != null) {
+            binding.getRoot().setBackgroundColor(color);
+        }
+    }
+
     @Override
     public void onDestroy() {
         super.onDestroy();
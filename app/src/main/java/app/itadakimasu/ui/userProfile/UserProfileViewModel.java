@@ -7,13 +7,16 @@ import androidx.lifecycle.ViewModel;
 import com.google.firebase.storage.StorageReference;
 
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 
 import app.itadakimasu.data.Result;
+import app.itadakimasu.data.model.Page;
+import app.itadakimasu.data.model.PageCursor;
 import app.itadakimasu.data.model.Recipe;
+import app.itadakimasu.data.repository.ReadPolicy;
 import app.itadakimasu.data.repository.RecipesRepository;
 import app.itadakimasu.data.repository.StorageRepository;
+import app.itadakimasu.utils.pagination.PaginationState;
 
 /**
  * View model for different user profiles.
@@ -27,9 +30,10 @@ public class UserProfileViewModel extends ViewModel {
     // The user's username and their profile picture.
     private final MutableLiveData<String> profileUsername;
     private final MutableLiveData<String> photoUrl;
-    // Data states used to tell if the data is loading and if there is no more data to fetch.
-    private boolean loadingDataState;
-    private boolean reachedEndPagination;
+    // Version of the user's profile picture, used to not show an old cached copy.
+    private String photoVersion;
+    // Pagination state, the cursor points to the last recipe loaded.
+    private final PaginationState<PageCursor> pagination;
 
     public UserProfileViewModel() {
         this.recipesRepository = RecipesRepository.getInstance();
@@ -37,8 +41,7 @@ public class UserProfileViewModel extends ViewModel {
         this.recipeList = new MutableLiveData<>(new ArrayList<>());
         this.profileUsername = new MutableLiveData<>();
         this.photoUrl = new MutableLiveData<>();
-        this.loadingDataState = false;
-        this.reachedEndPagination = false;
+        this.pagination = new PaginationState<>();
     }
 
     /**
@@ -67,7 +70,7 @@ public class UserProfileViewModel extends ViewModel {
      * @return the result of the method from recipes repository (list of recipes or error).
      */
     public LiveData<Result<?>> loadFirstRecipes() {
-        return recipesRepository.getRecipesByUser(profileUsername.getValue());
+        return recipesRepository.getRecipesByUser(profileUsername.getValue(), ReadPolicy.CACHE_THEN_SERVER);
     }
 
     /**
@@ -75,32 +78,26 @@ public class UserProfileViewModel extends ViewModel {
      * @return a list of the next recipes if the result is successful; error if it fails.
      */
     public LiveData<Result<?>> loadNextRecipes() {
-        Date lastRecipeDate = recipeList.getValue().get(getListSize() - 1).getCreationDate();
-        return recipesRepository.getNextRecipesByUser(profileUsername.getValue(), lastRecipeDate);
-    }
-
-    /**
-     * @param userImageUrl - the user image's path to download the data.
-     * @return image's data as uri or result error if it fails.
-     */
-    public LiveData<Result<?>> downloadUserImage(String userImageUrl) {
-        return storageRepository.getImageUri(userImageUrl);
+        return recipesRepository.getNextRecipesByUser(profileUsername.getValue(), pagination.getCursor(), ReadPolicy.DEFAULT);
     }
 
 
     /**
      * Sets the value of recipesList.
-     * @param recipes - the list of recipes.
+     * @param page - the page with the list of recipes.
      */
-    public void setRecipesList(List<Recipe> recipes) {
+    public void setRecipesList(Page<Recipe> page) {
+        List<Recipe> recipes = page.getItems();
         this.recipeList.setValue(recipes);
+        updatePagination(page);
     }
 
     /**
      * Adds to the list the next recipes paginated.
-     * @param retrievedList - the list that are retrieved.
+     * @param page - the page with the recipes that are retrieved.
      */
-    public void addRetrievedRecipes(List<Recipe> retrievedList) {
+    public void addRetrievedRecipes(Page<Recipe> page) {
+        List<Recipe> retrievedList = page.getItems();
         if (!retrievedList.isEmpty()) {
             List<Recipe> list = recipeList.getValue();
             assert list != null;
@@ -108,6 +105,15 @@ public class UserProfileViewModel extends ViewModel {
 
             recipeList.setValue(list);
         }
+        updatePagination(page);
+    }
+
+    /**
+     * Moves the pagination cursor to the last recipe of the page received.
+     * @param page - the page received.
+     */
+    private void updatePagination(Page<Recipe> page) {
+        pagination.onPageLoaded(page.getNextCursor(), page.size(), RecipesRepository.LIMIT_QUERY);
     }
 
     /**
@@ -126,6 +132,21 @@ public class UserProfileViewModel extends ViewModel {
         photoUrl.setValue(userPhotoUrl);
     }
 
+    /**
+     * @return the version of the user's photo, null if it has none.
+     */
+    public String getPhotoVersion() {
+        return photoVersion;
+    }
+
+    /**
+     * Sets the version of the user's photo.
+     * @param photoVersion - the version of the user's photo, null if it has none.
+     */
+    public void setPhotoVersion(String photoVersion) {
+        this.photoVersion = photoVersion;
+    }
+
     /**
      * @return the size of the list.
      */
@@ -149,37 +170,10 @@ public class UserProfileViewModel extends ViewModel {
     }
 
     /**
-     * Gets the state of the loading data variable, used in the pagination of the recycler view,
-     * to check if the user already tried to load the data or not.
-     * @return true if the app is fetching data from the database; false if it's not.
-     */
-    public boolean isLoadingData() {
-        return loadingDataState;
-    }
-
-    /**
-     * Boolean used to disable pagination when the user tries to paginate data and the list doesn't
-     * return any item, because the list reached its end.
-     * @return true if after paginating the result of the list is empty; false if not.
-     */
-    public boolean reachedEndPagination() {
-        return reachedEndPagination;
-    }
-
-    /**
-     * Sets the pagination end state.
-     * @param state - true if there is no more data to paginate, false if not.
-     */
-    public void setPaginationEndState(boolean state) {
-        this.reachedEndPagination = state;
-    }
-
-    /**
-     * Sets the state of loading data variable.
-     * @param state - boolean indicating if is loading data or not.
+     * @return the pagination state of the list, shared with the scroll listener.
      */
-    public void setLoadingDataState(boolean state) {
-        this.loadingDataState = state;
+    public PaginationState<PageCursor> getPagination() {
+        return pagination;
     }
 
     /**
@@ -1,26 +1,103 @@
 package app.itadakimasu.utils;
 
 import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.drawable.Drawable;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.GlideBuilder;
 import com.bumptech.glide.Registry;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
 import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
 import com.bumptech.glide.module.AppGlideModule;
+import com.bumptech.glide.signature.EmptySignature;
+import com.bumptech.glide.signature.ObjectKey;
 import com.firebase.ui.storage.images.FirebaseImageLoader;
+import com.google.firebase.storage.StorageException;
 import com.google.firebase.storage.StorageReference;
 
 import java.io.InputStream;
 
+import app.itadakimasu.R;
+
 /**
  * Class that lets retrieve the reference of an image from the Storage and show it on the
- * ImageView with Glide.
+ * ImageView with Glide. The references are cached by their path, so the loads need no download url.
+ * The images are replaced on the same path, so their loads use the image's version as signature,
+ * otherwise Glide would keep showing the cached copy of the old image.
+ * The sizes of the caches are set on integers.xml.
+ * An image that was never uploaded fails to load, so its views show their default image instead.
  */
 @GlideModule
 public class AppGlideModuleUtils extends AppGlideModule {
+    private static final long BYTES_PER_MB = 1024 * 1024;
+
+    @Override
+    public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+        Resources resources = context.getResources();
+        builder.setMemorySizeCalculator(new MemorySizeCalculator.Builder(context)
+                .setMemoryCacheScreens(resources.getInteger(R.integer.glide_memory_cache_screens))
+                .setBitmapPoolScreens(resources.getInteger(R.integer.glide_bitmap_pool_screens))
+                .build());
+        builder.setDiskCache(new InternalCacheDiskCacheFactory(context,
+                resources.getInteger(R.integer.glide_disk_cache_size_mb) * BYTES_PER_MB));
+    }
+
     @Override
     public void registerComponents(@NonNull Context context, @NonNull Glide glide, @NonNull Registry registry) {
         registry.append(StorageReference.class, InputStream.class, new FirebaseImageLoader.Factory());
     }
+
+    /**
+     * @param version - the version of the image, null if it doesn't have one.
+     * @return the signature that makes Glide cache every version of the image apart.
+     */
+    @NonNull
+    public static Key getVersionSignature(@Nullable String version) {
+        return version != null ? new ObjectKey(version) : EmptySignature.obtain();
+    }
+
+    /**
+     * Builds the load of an image shown on a list's row. The images are opaque, so when they aren't
+     * decoded as hardware bitmaps they are decoded in RGB_565, with half the memory. The rows and
+     * their preloads must use this same load, so the preloaded image is found on the cache.
+     * @param requestManager - the request manager of the list.
+     * @param model - the image to load.
+     * @param version - the version of the image, null if it doesn't have one.
+     * @return the load, without its target.
+     */
+    @NonNull
+    public static RequestBuilder<Drawable> loadListImage(@NonNull RequestManager requestManager, @Nullable Object model, @Nullable String version) {
+        return requestManager.load(model).signature(getVersionSignature(version))
+                .format(DecodeFormat.PREFER_RGB_565).centerCrop();
+    }
+
+    /**
+     * @param e - the exception of a failed load.
+     * @return true if the load failed because the image doesn't exist on the storage, like the
+     * photo of a user who skipped it or an image whose upload is still queued; false if not.
+     */
+    public static boolean isImageMissing(@Nullable GlideException e) {
+        if (e == null) {
+            return false;
+        }
+        for (Throwable rootCause : e.getRootCauses()) {
+            for (Throwable cause = rootCause; cause != null; cause = cause.getCause()) {
+                if (cause instanceof StorageException
+                        && ((StorageException) cause).getErrorCode() == StorageException.ERROR_OBJECT_NOT_FOUND) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,230 @@
+package app.itadakimasu.utils;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.util.LruCache;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Util class that encodes an image as a blurhash, a string of a few dozens characters stored next
+ * to the image's url, and decodes it as a blurred placeholder shown while the image loads.
+ * Implementation of the algorithm described on https://github.com/woltapp/blurhash
+ */
+public class BlurHashUtils {
+    private static final String CHARACTERS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz#$%*+,-.:;=?@[]^_{|}~";
+    // Components of the hash on every axis, more components keep more detail but make it longer.
+    private static final int COMPONENTS_X = 4;
+    private static final int COMPONENTS_Y = 3;
+    // The image is scaled down to this size before encoding, the hash only keeps its colors.
+    private static final int ENCODE_SIZE = 32;
+    // Size of the decoded placeholder, with the aspect ratio of the recipes' images. It's stretched
+    // with filtering by the view, so it keeps looking blurred.
+    private static final int PLACEHOLDER_WIDTH = 32;
+    private static final int PLACEHOLDER_HEIGHT = 17;
+    // Decoded placeholders by hash, they are tiny so many of them are kept.
+    private static final LruCache<String, Bitmap> placeholders = new LruCache<>(100);
+
+    /**
+     * Encodes the image as a blurhash, it can be called from any thread.
+     * @param bitmap - the decoded image.
+     * @return the image's blurhash.
+     */
+    public static String encode(Bitmap bitmap) {
+        float ratio = Math.min(1f, (float) ENCODE_SIZE / Math.max(bitmap.getWidth(), bitmap.getHeight()));
+        int width = Math.max(1, Math.round(bitmap.getWidth() * ratio));
+        int height = Math.max(1, Math.round(bitmap.getHeight() * ratio));
+        Bitmap small = Bitmap.createScaledBitmap(bitmap, width, height, true);
+        int[] pixels = new int[width * height];
+        small.getPixels(pixels, 0, width, 0, 0, width, height);
+        if (small != bitmap) {
+            small.recycle();
+        }
+
+        float[][] factors = new float[COMPONENTS_X * COMPONENTS_Y][];
+        for (int j = 0; j < COMPONENTS_Y; j++) {
+            for (int i = 0; i < COMPONENTS_X; i++) {
+                float normalisation = (i == 0 && j == 0) ? 1 : 2;
+                factors[j * COMPONENTS_X + i] = getFactor(pixels, width, height, i, j, normalisation);
+            }
+        }
+
+        StringBuilder hash = new StringBuilder();
+        encode83((COMPONENTS_X - 1) + (COMPONENTS_Y - 1) * 9, 1, hash);
+
+        float maximumValue;
+        if (factors.length > 1) {
+            float actualMaximum = 0;
+            for (int i = 1; i < factors.length; i++) {
+                for (float component : factors[i]) {
+                    actualMaximum = Math.max(actualMaximum, Math.abs(component));
+                }
+            }
+            int quantisedMaximum = (int) Math.max(0, Math.min(82, Math.floor(actualMaximum * 166 - 0.5)));
+            maximumValue = (quantisedMaximum + 1) / 166f;
+            encode83(quantisedMaximum, 1, hash);
+        } else {
+            maximumValue = 1;
+            encode83(0, 1, hash);
+        }
+
+        float[] dc = factors[0];
+        encode83((linearToSrgb(dc[0]) << 16) + (linearToSrgb(dc[1]) << 8) + linearToSrgb(dc[2]), 4, hash);
+        for (int i = 1; i < factors.length; i++) {
+            encode83(encodeAc(factors[i], maximumValue), 2, hash);
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Decodes the blurhash as a placeholder, the decoded placeholders are cached.
+     * @param resources - the resources used to create the drawable.
+     * @param blurHash - the image's blurhash, may be null.
+     * @return the placeholder, or null if the image has no valid blurhash.
+     */
+    @Nullable
+    public static Drawable getPlaceholder(Resources resources, @Nullable String blurHash) {
+        if (blurHash == null) {
+            return null;
+        }
+        Bitmap placeholder = placeholders.get(blurHash);
+        if (placeholder == null) {
+            placeholder = decode(blurHash, PLACEHOLDER_WIDTH, PLACEHOLDER_HEIGHT);
+            if (placeholder == null) {
+                return null;
+            }
+            placeholders.put(blurHash, placeholder);
+        }
+        return new BitmapDrawable(resources, placeholder);
+    }
+
+    /**
+     * Decodes a blurhash.
+     * @param blurHash - the image's blurhash.
+     * @param width - the width of the decoded image.
+     * @param height - the height of the decoded image.
+     * @return the decoded image, or null if the hash isn't valid.
+     */
+    @Nullable
+    public static Bitmap decode(String blurHash, int width, int height) {
+        if (blurHash.length() < 6) {
+            return null;
+        }
+        int sizeFlag = decode83(blurHash, 0, 1);
+        int componentsY = sizeFlag / 9 + 1;
+        int componentsX = sizeFlag % 9 + 1;
+        if (sizeFlag < 0 || blurHash.length() != 4 + 2 * componentsX * componentsY) {
+            return null;
+        }
+
+        float maximumValue = (decode83(blurHash, 1, 2) + 1) / 166f;
+        float[][] colors = new float[componentsX * componentsY][];
+        colors[0] = decodeDc(decode83(blurHash, 2, 6));
+        for (int i = 1; i < colors.length; i++) {
+            colors[i] = decodeAc(decode83(blurHash, 4 + i * 2, 6 + i * 2), maximumValue);
+        }
+
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                float r = 0;
+                float g = 0;
+                float b = 0;
+                for (int j = 0; j < componentsY; j++) {
+                    for (int i = 0; i < componentsX; i++) {
+                        float basis = (float) (Math.cos(Math.PI * x * i / width) * Math.cos(Math.PI * y * j / height));
+                        float[] color = colors[j * componentsX + i];
+                        r += color[0] * basis;
+                        g += color[1] * basis;
+                        b += color[2] * basis;
+                    }
+                }
+                pixels[y * width + x] = 0xFF000000 | (linearToSrgb(r) << 16) | (linearToSrgb(g) << 8) | linearToSrgb(b);
+            }
+        }
+        return Bitmap.createBitmap(pixels, width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    private static float[] getFactor(int[] pixels, int width, int height, int i, int j, float normalisation) {
+        float r = 0;
+        float g = 0;
+        float b = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                float basis = (float) (normalisation * Math.cos(Math.PI * i * x / width) * Math.cos(Math.PI * j * y / height));
+                int pixel = pixels[y * width + x];
+                r += basis * srgbToLinear((pixel >> 16) & 0xFF);
+                g += basis * srgbToLinear((pixel >> 8) & 0xFF);
+                b += basis * srgbToLinear(pixel & 0xFF);
+            }
+        }
+        float scale = 1f / (width * height);
+        return new float[]{r * scale, g * scale, b * scale};
+    }
+
+    private static int encodeAc(float[] value, float maximumValue) {
+        int quantR = (int) Math.max(0, Math.min(18, Math.floor(signPow(value[0] / maximumValue, 0.5f) * 9 + 9.5)));
+        int quantG = (int) Math.max(0, Math.min(18, Math.floor(signPow(value[1] / maximumValue, 0.5f) * 9 + 9.5)));
+        int quantB = (int) Math.max(0, Math.min(18, Math.floor(signPow(value[2] / maximumValue, 0.5f) * 9 + 9.5)));
+        return quantR * 19 * 19 + quantG * 19 + quantB;
+    }
+
+    private static float[] decodeDc(int value) {
+        return new float[]{srgbToLinear(value >> 16), srgbToLinear((value >> 8) & 0xFF), srgbToLinear(value & 0xFF)};
+    }
+
+    private static float[] decodeAc(int value, float maximumValue) {
+        int quantR = value / (19 * 19);
+        int quantG = (value / 19) % 19;
+        int quantB = value % 19;
+        return new float[]{
+                signPow((quantR - 9) / 9f, 2) * maximumValue,
+                signPow((quantG - 9) / 9f, 2) * maximumValue,
+                signPow((quantB - 9) / 9f, 2) * maximumValue
+        };
+    }
+
+    private static void encode83(int value, int length, StringBuilder hash) {
+        int divisor = 1;
+        for (int i = 1; i < length; i++) {
+            divisor *= 83;
+        }
+        for (int i = 0; i < length; i++) {
+            hash.append(CHARACTERS.charAt((value / divisor) % 83));
+            divisor /= 83;
+        }
+    }
+
+    /**
+     * @return the value of the characters from start to end, or -1 if one isn't valid.
+     */
+    private static int decode83(String hash, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = CHARACTERS.indexOf(hash.charAt(i));
+            if (digit < 0) {
+                return -1;
+            }
+            value = value * 83 + digit;
+        }
+        return value;
+    }
+
+    private static float srgbToLinear(int value) {
+        float v = value / 255f;
+        return v <= 0.04045f ? v / 12.92f : (float) Math.pow((v + 0.055f) / 1.055f, 2.4f);
+    }
+
+    private static int linearToSrgb(float value) {
+        float v = Math.max(0, Math.min(1, value));
+        return v <= 0.0031308f
+                ? (int) (v * 12.92f * 255 + 0.5f)
+                : (int) ((1.055f * Math.pow(v, 1 / 2.4f) - 0.055f) * 255 + 0.5f);
+    }
+
+    private static float signPow(float value, float exponent) {
+        return Math.copySign((float) Math.pow(Math.abs(value), exponent), value);
+    }
+}
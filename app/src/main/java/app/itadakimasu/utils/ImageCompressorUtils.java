@@ -4,168 +4,326 @@ package app.itadakimasu.utils;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
+import android.graphics.ImageDecoder;
 import android.graphics.Matrix;
 import android.graphics.Paint;
+import android.graphics.RectF;
+import android.os.Build;
+import android.util.Size;
 
+import androidx.annotation.RequiresApi;
 import androidx.exifinterface.media.ExifInterface;
 
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 
+import app.itadakimasu.data.model.EncodedImage;
+
 /**
  * Class util that resize and compress the image so it's file size is lighter when uploaded to the server.
  * Credit to Jitty Andyan for posting the method to resize and compress the image.
  * The method is changed to fit my requirements and to fix some errors.
  * https://stackoverflow.com/questions/28424942/decrease-image-size-without-losing-its-quality-in-android
+ *
+ * The images are decoded straight to the required size on API 28+. On older versions they are
+ * decoded subsampled into a bitmap of the pool, and scaled and rotated with a single draw, so at
+ * most two bitmaps are held at the same time.
  */
 public class ImageCompressorUtils {
     public static float PROFILE_MAX_HEIGHT = 400.0f;
     public static float PROFILE_MAX_WIDTH= 400.0f;
-    public static float LANDSCAPE_MAX_HEIGHT= 566.0f;
-    public static float LANDSCAPE_MAX_WIDTH= 1080.0f;
+    public static int PROFILE_MAX_BYTES = 40 * 1024;
+    // Range of qualities searched to fit an image in its byte budget.
+    static final int MIN_QUALITY = 50;
+    static final int MAX_QUALITY = 85;
+    // Maximum encodes done to search the quality, a budget search stops after these.
+    static final int MAX_QUALITY_STEPS = 5;
 
     /**
-     * Compress an image.
-     * @param imageUri - the path of the image.
-     * @return the bytes of the image that will be uploaded to the server.
+     * Encodes an image with a given quality.
      */
-    public static byte[] compressImage(String imageUri, float maxHeight, float maxWidth) {
-
-        BitmapFactory.Options options = new BitmapFactory.Options();
-
-        // By setting this field as true, the actual bitmap pixels are not loaded in the memory.
-        // Just the bounds are loaded. If you try the use the bitmap here, you will get null.
-        options.inJustDecodeBounds = true;
-        Bitmap bmp = BitmapFactory.decodeFile(imageUri, options);
+    interface QualityEncoder {
+        /**
+         * @param quality - the quality from 0 to 100.
+         * @param outputStream - the stream where the encoded image is written.
+         */
+        void encode(int quality, ByteArrayOutputStream outputStream);
+    }
 
-        int actualHeight = options.outHeight;
-        int actualWidth = options.outWidth;
+    /**
+     * The bytes of an encoded image and the quality it was encoded with.
+     */
+    static final class QualityEncoding {
+        final byte[] data;
+        final int quality;
 
-        // We get the image ratio and the max ratio permitted dividing the width with the height.
-        float imgRatio = (float) actualWidth / (float) actualHeight;
-        float maxRatio = maxWidth / maxHeight;
+        QualityEncoding(byte[] data, int quality) {
+            this.data = data;
+            this.quality = quality;
+        }
+    }
 
-        // Width and height values are set maintaining the aspect ratio of the image.
+    /**
+     * Scales down a bitmap, keeping its aspect ratio, so it fits on the maximum size.
+     * @param bitmap - the decoded image.
+     * @param pool - the pool where the scaled bitmap is taken from.
+     * @return the scaled bitmap, or the same bitmap if it already fits.
+     */
+    public static Bitmap scaleToFit(Bitmap bitmap, float maxHeight, float maxWidth, BitmapPool pool) {
+        Size size = fitSize(bitmap.getWidth(), bitmap.getHeight(), maxHeight, maxWidth);
+        if (size.getWidth() == bitmap.getWidth() && size.getHeight() == bitmap.getHeight()) {
+            return bitmap;
+        }
+        return drawTransformed(bitmap, new Matrix(), size, pool);
+    }
 
-        if (actualHeight > maxHeight || actualWidth > maxWidth) {
-            if (imgRatio < maxRatio) {
-                imgRatio = maxHeight / actualHeight;
-                actualWidth = (int) (imgRatio * actualWidth);
-                actualHeight = (int) maxHeight;
+    /**
+     * Decodes an image scaled down to the maximum size and rotated as its exif orientation tells.
+     * The bitmap should be returned to the pool once it's no longer used.
+     * @param imageUri - the path of the image.
+     * @param pool - the pool where the bitmaps are taken from and returned to.
+     * @return the decoded image.
+     * @throws IOException if the image can't be read.
+     */
+    public static Bitmap decodeScaledBitmap(String imageUri, float maxHeight, float maxWidth, BitmapPool pool) throws IOException {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            return decodeWithImageDecoder(imageUri, maxHeight, maxWidth);
+        }
 
-            } else if (imgRatio > maxRatio) {
-                imgRatio = maxWidth / actualWidth;
-                actualHeight = (int) (imgRatio * actualHeight);
-                actualWidth = (int) maxWidth;
+        // The orientation is read once, the size to fit on is the one of the rotated image.
+        int orientation = readOrientation(imageUri);
+        boolean swapsSides = orientation >= ExifInterface.ORIENTATION_TRANSPOSE && orientation <= ExifInterface.ORIENTATION_ROTATE_270;
 
-            } else {
-                actualHeight = (int) maxHeight;
-                actualWidth = (int) maxWidth;
-            }
+        // By setting this field as true, the actual bitmap pixels are not loaded in the memory.
+        // Just the bounds are loaded.
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(imageUri, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            throw new IOException("The image can't be decoded: " + imageUri);
         }
 
-        // Setting inSampleSize value allows to load a scaled down version of the original image.
-        options.inSampleSize = calculateInSampleSize(options, actualWidth, actualHeight);
+        Size size = swapsSides
+                ? fitSize(options.outHeight, options.outWidth, maxHeight, maxWidth)
+                : fitSize(options.outWidth, options.outHeight, maxHeight, maxWidth);
+        int sampledWidth = swapsSides ? size.getHeight() : size.getWidth();
+        int sampledHeight = swapsSides ? size.getWidth() : size.getHeight();
 
-        // InJustDecodeBounds set to false to load the actual bitmap.
+        // Setting inSampleSize value allows to load a scaled down version of the original image,
+        // decoded into a bitmap of the pool.
+        int inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, sampledWidth, sampledHeight);
         options.inJustDecodeBounds = false;
-
-        // This options allow android to claim the bitmap memory if it runs low on memory.
-        options.inBitmap = bmp;
+        options.inSampleSize = inSampleSize;
+        options.inMutable = true;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        options.inBitmap = pool.getDirty(
+                (int) Math.ceil((double) options.outWidth / inSampleSize),
+                (int) Math.ceil((double) options.outHeight / inSampleSize),
+                Bitmap.Config.ARGB_8888);
         options.inTempStorage = new byte[16 * 1024];
 
+        Bitmap decoded;
         try {
-            // Load the bitmap from its path.
-            bmp = BitmapFactory.decodeFile(imageUri, options);
-        } catch (OutOfMemoryError exception) {
-            exception.printStackTrace();
-
+            decoded = BitmapFactory.decodeFile(imageUri, options);
+        } catch (IllegalArgumentException e) {
+            // The pooled bitmap can't hold the image, so a new one is allocated.
+            pool.put(options.inBitmap);
+            options.inBitmap = null;
+            decoded = BitmapFactory.decodeFile(imageUri, options);
+        }
+        if (decoded == null) {
+            if (options.inBitmap != null) {
+                pool.put(options.inBitmap);
+            }
+            throw new IOException("The image can't be decoded: " + imageUri);
         }
 
-        Bitmap scaledBitmap = null;
-
+        // The cropped images are already written fitting the size and without rotation, so they are
+        // used as decoded.
+        if (orientation <= ExifInterface.ORIENTATION_NORMAL
+                && decoded.getWidth() == size.getWidth() && decoded.getHeight() == size.getHeight()) {
+            return decoded;
+        }
         try {
-            scaledBitmap = Bitmap.createBitmap(actualWidth, actualHeight, Bitmap.Config.ARGB_8888);
-        } catch (OutOfMemoryError exception) {
-            exception.printStackTrace();
+            return drawTransformed(decoded, getOrientationMatrix(orientation), size, pool);
+        } finally {
+            pool.put(decoded);
         }
-        // Sets the ratio of the image to scale.
-        float ratioX = actualWidth / (float) options.outWidth;
-        float ratioY = actualHeight / (float) options.outHeight;
-        float middleX = actualWidth / 2.0f;
-        float middleY = actualHeight / 2.0f;
+    }
 
-        Matrix scaleMatrix = new Matrix();
-        scaleMatrix.setScale(ratioX, ratioY, middleX, middleY);
+    /**
+     * Decodes the image straight to the size that fits, ImageDecoder applies the exif orientation itself.
+     */
+    @RequiresApi(api = Build.VERSION_CODES.P)
+    private static Bitmap decodeWithImageDecoder(String imageUri, float maxHeight, float maxWidth) throws IOException {
+        ImageDecoder.Source source = ImageDecoder.createSource(new File(imageUri));
+        return ImageDecoder.decodeBitmap(source, (decoder, info, src) -> {
+            // The cropped images are already written fitting the size, so they aren't rescaled.
+            Size size = fitSize(info.getSize().getWidth(), info.getSize().getHeight(), maxHeight, maxWidth);
+            if (!size.equals(info.getSize())) {
+                decoder.setTargetSize(size.getWidth(), size.getHeight());
+            }
+            // Software and mutable, so it can be drawn on, compressed and returned to the pool.
+            decoder.setAllocator(ImageDecoder.ALLOCATOR_SOFTWARE);
+            decoder.setMutableRequired(true);
+        });
+    }
 
-        Canvas canvas = new Canvas(scaledBitmap);
-        canvas.setMatrix(scaleMatrix);
-        canvas.drawBitmap(bmp, middleX - (float)bmp.getWidth() / 2, middleY - (float)bmp.getHeight() / 2, new Paint(Paint.FILTER_BITMAP_FLAG));
+    /**
+     * Draws the bitmap transformed by the orientation and scaled to the size with a single matrix.
+     * @return a bitmap of the pool with the transformed image.
+     */
+    private static Bitmap drawTransformed(Bitmap source, Matrix orientation, Size size, BitmapPool pool) {
+        Matrix matrix = new Matrix(orientation);
+        RectF bounds = new RectF(0, 0, source.getWidth(), source.getHeight());
+        matrix.mapRect(bounds);
+        matrix.postTranslate(-bounds.left, -bounds.top);
+        matrix.postScale(size.getWidth() / bounds.width(), size.getHeight() / bounds.height());
+
+        Bitmap result = pool.get(size.getWidth(), size.getHeight(), Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(result);
+        canvas.drawBitmap(source, matrix, new Paint(Paint.FILTER_BITMAP_FLAG));
+        canvas.setBitmap(null);
+        return result;
+    }
 
-        // Check the rotation of the image and display it properly.
-        ExifInterface exif;
+    /**
+     * @return the exif orientation of the image, or undefined if it can't be read.
+     */
+    private static int readOrientation(String imageUri) {
         try {
-            exif = new ExifInterface(imageUri);
-
-            int orientation = exif.getAttributeInt(
-                    ExifInterface.TAG_ORIENTATION, 0);
-            Matrix matrix = new Matrix();
-            if (orientation == 6) {
-                matrix.postRotate(90);
-            } else if (orientation == 3) {
-                matrix.postRotate(180);
-            } else if (orientation == 8) {
-                matrix.postRotate(270);
-            }
-            assert scaledBitmap != null;
-            scaledBitmap = Bitmap.createBitmap(scaledBitmap, 0, 0,
-                    scaledBitmap.getWidth(), scaledBitmap.getHeight(), matrix,
-                    true);
+            return new ExifInterface(imageUri).getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_UNDEFINED);
         } catch (IOException e) {
             e.printStackTrace();
+            return ExifInterface.ORIENTATION_UNDEFINED;
         }
+    }
 
-        byte[] compressedImageData = null;
+    /**
+     * @param orientation - the exif orientation of the image.
+     * @return the matrix that shows the image properly.
+     */
+    private static Matrix getOrientationMatrix(int orientation) {
+        Matrix matrix = new Matrix();
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                matrix.setScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                matrix.setRotate(180);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                matrix.setScale(1, -1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                matrix.setRotate(90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                matrix.setRotate(90);
+                break;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                matrix.setRotate(-90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                matrix.setRotate(-90);
+                break;
+            default:
+                break;
+        }
+        return matrix;
+    }
 
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            assert scaledBitmap != null;
-            scaledBitmap.compress(Bitmap.CompressFormat.JPEG, 80, baos);
-            compressedImageData = baos.toByteArray();
-        } catch (IOException e) {
-            e.printStackTrace();
+    /**
+     * @return the size that fits on the maximum size keeping the aspect ratio, never bigger than the image.
+     */
+    private static Size fitSize(int width, int height, float maxHeight, float maxWidth) {
+        float ratio = Math.min(1f, Math.min(maxWidth / width, maxHeight / height));
+        return new Size(Math.max(1, Math.round(width * ratio)), Math.max(1, Math.round(height * ratio)));
+    }
+
+    /**
+     * Encodes the image with the highest quality that fits in the byte budget, searched with a bounded
+     * binary search. If not even the lowest quality fits, the image is encoded with the lowest quality.
+     * It's encoded as lossy webp on API 30+, and as jpeg on older versions.
+     * @param bitmap - the decoded image.
+     * @param maxBytes - the bytes that the encoded image should fit in.
+     * @param blurHash - the blurhash of the image, stored with it.
+     * @return the encoded image with its format and quality.
+     */
+    public static EncodedImage encodeWithinBudget(Bitmap bitmap, int maxBytes, String blurHash) {
+        Bitmap.CompressFormat format;
+        String mimeType;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            format = Bitmap.CompressFormat.WEBP_LOSSY;
+            mimeType = EncodedImage.MIME_TYPE_WEBP;
+        } else {
+            format = Bitmap.CompressFormat.JPEG;
+            mimeType = EncodedImage.MIME_TYPE_JPEG;
         }
 
+        QualityEncoding encoding = encodeBestQuality((quality, outputStream) -> bitmap.compress(format, quality, outputStream), maxBytes);
+        return new EncodedImage(encoding.data, mimeType, encoding.quality, bitmap.getWidth(), bitmap.getHeight(), blurHash);
+    }
 
-        return compressedImageData;
+    /**
+     * Searches the highest quality whose encoding fits in the byte budget, with at most
+     * MAX_QUALITY_STEPS encodes between MIN_QUALITY and MAX_QUALITY. If not even the lowest quality
+     * fits, the encoding with the lowest quality is returned.
+     * @param encoder - encodes the image with a quality.
+     * @param maxBytes - the bytes that the encoded image should fit in.
+     * @return the best encoding found and its quality.
+     */
+    static QualityEncoding encodeBestQuality(QualityEncoder encoder, int maxBytes) {
+        // The stream is reused on every encode, sized for the budget.
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(maxBytes);
+        byte[] bestData = null;
+        int bestQuality = MIN_QUALITY;
+
+        // Most images fit with the maximum quality, so it's tried first.
+        int low = MIN_QUALITY;
+        int high = MAX_QUALITY;
+        int quality = MAX_QUALITY;
+        for (int step = 0; step < MAX_QUALITY_STEPS && low <= high; step++) {
+            baos.reset();
+            encoder.encode(quality, baos);
+            if (baos.size() <= maxBytes) {
+                bestData = baos.toByteArray();
+                bestQuality = quality;
+                low = quality + 1;
+            } else {
+                high = quality - 1;
+            }
+            quality = (low + high) / 2;
+        }
 
+        if (bestData == null) {
+            baos.reset();
+            encoder.encode(MIN_QUALITY, baos);
+            bestData = baos.toByteArray();
+        }
+        return new QualityEncoding(bestData, bestQuality);
     }
 
     /**
-     * Calculates the sample size that will allow to laad a scaled down version of the original image.
-     * @param options - BitmapFactory options that holds the bounds of the image
-     * @param reqWidth - the required resized width that will calculate part the sampleSize with the original
-     *                 image's width
-     * @param reqHeight - the required resized height that will calculate part of the sampleSize with the original
-     *                  imagei's height
+     * Calculates the sample size that will allow to load a scaled down version of the original image.
+     * It's the biggest power of two that keeps the decoded image at least as big as the required size,
+     * so the decoder uses it as is and the image is never scaled down more than twice afterwards.
+     * @param width - the original image's width.
+     * @param height - the original image's height.
+     * @param reqWidth - the required resized width.
+     * @param reqHeight - the required resized height.
      * @return the sample size number coeficient that will let the BitmapFactory scale the image
      */
-    public static int calculateInSampleSize(BitmapFactory.Options options, int reqWidth, int reqHeight) {
-        final int height = options.outHeight;
-        final int width = options.outWidth;
+    public static int calculateInSampleSize(int width, int height, int reqWidth, int reqHeight) {
         int inSampleSize = 1;
-        // Calculate the sampleSize number coeficient, if the height of the width if greater than the
-        // resized ones, they will get divided by the resized.
-        if (height > reqHeight || width > reqWidth) {
-            final int heightRatio = Math.round((float) height / (float) reqHeight);
-            final int widthRatio = Math.round((float) width / (float) reqWidth);
-            inSampleSize = Math.min(heightRatio, widthRatio);
+        while (width / (inSampleSize * 2) >= reqWidth && height / (inSampleSize * 2) >= reqHeight) {
+            inSampleSize *= 2;
         }
-        final float totalPixels = width * height;
-        final float totalReqPixelsCap = reqWidth * reqHeight * 2;
-        while (totalPixels / (inSampleSize * inSampleSize) > totalReqPixelsCap) {
-            inSampleSize++;
-        }
-
         return inSampleSize;
     }
 
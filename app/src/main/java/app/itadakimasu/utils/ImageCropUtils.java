@@ -1,15 +1,24 @@
 package app.itadakimasu.utils;
 
+import android.graphics.Bitmap;
+
 import com.canhub.cropper.CropImageContractOptions;
 import com.canhub.cropper.CropImageOptions;
 import com.canhub.cropper.CropImageView;
 
 import app.itadakimasu.R;
+import app.itadakimasu.data.model.ImageVariant;
 
 /**
  * Util class that uses Android-Image-Cropper to set crop image options.
+ * The cropped image is written already fitting the biggest size it's uploaded with, so the
+ * compressor doesn't decode a full resolution file again.
  */
 public class ImageCropUtils {
+    // The cropped image is compressed again before uploading, so it's written with a high quality.
+    private static final int OUTPUT_QUALITY = 95;
+    private static final int PROFILE_OUTPUT_SIZE = (int) ImageCompressorUtils.PROFILE_MAX_WIDTH;
+
     /**
      * Sets the crop area as an oval for images from the gallery.
      * @return options for cropping a profile image from gallery.
@@ -20,7 +29,10 @@ public class ImageCropUtils {
                 .setImageSource(true, false)
                 .setFixAspectRatio(true)
                 .setCropShape(CropImageView.CropShape.OVAL)
-                .setScaleType(CropImageView.ScaleType.FIT_CENTER);
+                .setScaleType(CropImageView.ScaleType.FIT_CENTER)
+                .setRequestedSize(PROFILE_OUTPUT_SIZE, PROFILE_OUTPUT_SIZE, CropImageView.RequestSizeOptions.RESIZE_INSIDE)
+                .setOutputCompressFormat(Bitmap.CompressFormat.JPEG)
+                .setOutputCompressQuality(OUTPUT_QUALITY);
     }
 
     /**
@@ -33,7 +45,10 @@ public class ImageCropUtils {
                 .setImageSource(false, true)
                 .setFixAspectRatio(true)
                 .setCropShape(CropImageView.CropShape.OVAL)
-                .setScaleType(CropImageView.ScaleType.FIT_CENTER);
+                .setScaleType(CropImageView.ScaleType.FIT_CENTER)
+                .setRequestedSize(PROFILE_OUTPUT_SIZE, PROFILE_OUTPUT_SIZE, CropImageView.RequestSizeOptions.RESIZE_INSIDE)
+                .setOutputCompressFormat(Bitmap.CompressFormat.JPEG)
+                .setOutputCompressQuality(OUTPUT_QUALITY);
     }
 
     /**
@@ -46,7 +61,10 @@ public class ImageCropUtils {
                 .setImageSource(true, false)
                 .setFixAspectRatio(false)
                 .setCropShape(CropImageView.CropShape.RECTANGLE)
-                .setScaleType(CropImageView.ScaleType.FIT_CENTER);
+                .setScaleType(CropImageView.ScaleType.FIT_CENTER)
+                .setRequestedSize(ImageVariant.FULL.getMaxWidth(), ImageVariant.FULL.getMaxHeight(), CropImageView.RequestSizeOptions.RESIZE_INSIDE)
+                .setOutputCompressFormat(Bitmap.CompressFormat.JPEG)
+                .setOutputCompressQuality(OUTPUT_QUALITY);
     }
 
     /**
@@ -59,6 +77,9 @@ public class ImageCropUtils {
                 .setImageSource(false, true)
                 .setFixAspectRatio(false)
                 .setCropShape(CropImageView.CropShape.RECTANGLE)
-                .setScaleType(CropImageView.ScaleType.FIT_CENTER);
+                .setScaleType(CropImageView.ScaleType.FIT_CENTER)
+                .setRequestedSize(ImageVariant.FULL.getMaxWidth(), ImageVariant.FULL.getMaxHeight(), CropImageView.RequestSizeOptions.RESIZE_INSIDE)
+                .setOutputCompressFormat(Bitmap.CompressFormat.JPEG)
+                .setOutputCompressQuality(OUTPUT_QUALITY);
     }
 }
@@ -0,0 +1,40 @@
+package app.itadakimasu.utils;
+
+import android.view.View;
+
+import com.google.android.material.progressindicator.LinearProgressIndicator;
+
+import app.itadakimasu.data.upload.ImageUploadState;
+import app.itadakimasu.utils.imageProcessing.ImageProcessingState;
+
+/**
+ * Util class that shows the progress of an image that is compressed and uploaded on a single
+ * progress bar: the compression fills its first half and the upload the second one.
+ */
+public class ImageProgressUtils {
+    // Part of the bar filled once the image is compressed.
+    private static final int PROCESSING_SHARE = 50;
+
+    /**
+     * Shows the progress of the image's compression.
+     * @param progressBar - the screen's progress bar.
+     * @param state - the state of the image being compressed.
+     */
+    public static void showProcessingProgress(LinearProgressIndicator progressBar, ImageProcessingState<?> state) {
+        showProgress(progressBar, state.getProgress() * PROCESSING_SHARE / 100);
+    }
+
+    /**
+     * Shows the progress of the compressed image's upload.
+     * @param progressBar - the screen's progress bar.
+     * @param state - the state of the upload.
+     */
+    public static void showUploadProgress(LinearProgressIndicator progressBar, ImageUploadState state) {
+        showProgress(progressBar, PROCESSING_SHARE + state.getProgress() * (100 - PROCESSING_SHARE) / 100);
+    }
+
+    private static void showProgress(LinearProgressIndicator progressBar, int progress) {
+        progressBar.setVisibility(View.VISIBLE);
+        progressBar.setProgressCompat(progress, true);
+    }
+}
@@ -0,0 +1,117 @@
+package app.itadakimasu.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.palette.graphics.Palette;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Obtains the muted color of the users' photos, used as the background of their profiles. The
+ * palette is generated on a background thread and the color is cached in memory and on a shared
+ * preferences file, by photo and version, so a profile shows its color before its photo is loaded.
+ */
+public class ProfileColorCache {
+    private static final String COLORS_FILE_KEY = "Profile_Colors";
+    // Separates the photo's version and its color on the stored value.
+    private static final String VERSION_SEPARATOR = "#";
+    // Size of the copy of the photo given to the palette, the colors don't need more pixels.
+    private static final int PALETTE_SIZE = 64;
+    private static final int MEMORY_CACHE_SIZE = 50;
+    // Cache's singleton
+    private static volatile ProfileColorCache INSTANCE;
+    // Colors by photo path and version.
+    private final LruCache<String, Integer> memoryCache;
+    // Last color of every photo path, with its version.
+    private final SharedPreferences storedColors;
+    private final ExecutorService executor;
+    private final Handler mainHandler;
+
+    /**
+     * Listener that receives the color of a photo on the main thread.
+     */
+    public interface OnColorListener {
+        void onColor(@ColorInt int color);
+    }
+
+    /**
+     * @param context - app's context required to open the file where the colors are stored.
+     * @return the cache's singleton.
+     */
+    public static ProfileColorCache getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (ProfileColorCache.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new ProfileColorCache(context.getApplicationContext());
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    private ProfileColorCache(Context context) {
+        this.memoryCache = new LruCache<>(MEMORY_CACHE_SIZE);
+        this.storedColors = context.getSharedPreferences(COLORS_FILE_KEY, Context.MODE_PRIVATE);
+        this.executor = Executors.newSingleThreadExecutor();
+        this.mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * @param photoUrl - the user's photo url path.
+     * @param version - the version of the photo, null if it doesn't have one.
+     * @return the cached color of the photo; null if it hasn't been obtained yet.
+     */
+    @Nullable
+    public Integer getColor(@NonNull String photoUrl, @Nullable String version) {
+        String key = getKey(photoUrl, version);
+        Integer color = memoryCache.get(key);
+        if (color != null) {
+            return color;
+        }
+
+        String storedColor = storedColors.getString(photoUrl, null);
+        String versionPrefix = (version != null ? version : "") + VERSION_SEPARATOR;
+        if (storedColor != null && storedColor.startsWith(versionPrefix)) {
+            color = Integer.parseInt(storedColor.substring(versionPrefix.length()));
+            memoryCache.put(key, color);
+        }
+        return color;
+    }
+
+    /**
+     * Generates the palette of a loaded photo on a background thread and caches its muted color.
+     * @param photo - the loaded photo, it's copied so it can be recycled by Glide meanwhile.
+     * @param photoUrl - the user's photo url path.
+     * @param version - the version of the photo, null if it doesn't have one.
+     * @param defaultColor - the color used if the photo has no muted color.
+     * @param listener - receives the color on the main thread.
+     */
+    public void extractColor(@NonNull Bitmap photo, @NonNull String photoUrl, @Nullable String version,
+                             @ColorInt int defaultColor, @NonNull OnColorListener listener) {
+        Bitmap copy = Bitmap.createScaledBitmap(photo, PALETTE_SIZE, PALETTE_SIZE, true);
+        if (copy == photo) {
+            copy = photo.copy(Bitmap.Config.ARGB_8888, false);
+        }
+        Bitmap paletteBitmap = copy;
+        executor.execute(() -> {
+            int color = Palette.from(paletteBitmap).generate().getMutedColor(defaultColor);
+            paletteBitmap.recycle();
+            memoryCache.put(getKey(photoUrl, version), color);
+            storedColors.edit().putString(photoUrl, (version != null ? version : "") + VERSION_SEPARATOR + color).apply();
+            mainHandler.post(() -> listener.onColor(color));
+        });
+    }
+
+    private static String getKey(String photoUrl, @Nullable String version) {
+        return photoUrl + VERSION_SEPARATOR + version;
+    }
+}
@@ -0,0 +1,130 @@
+package app.itadakimasu.utils.imageProcessing;
+
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * An image being processed on the background. Its states are delivered on the main thread until
+ * it finishes or it's cancelled; once cancelled, nothing else is delivered.
+ * @param <T> - the type of the processed image.
+ */
+public class ImageProcessingJob<T> {
+    private static final String TAG = "ImageProcessingJob";
+    private final MutableLiveData<ImageProcessingState<T>> state;
+    private final Handler mainHandler;
+    // Milliseconds spent on every stage, only used from the background thread.
+    private final Map<ImageProcessingState.Stage, Long> timings;
+    // Quantity of stages that the processing runs, to calculate the progress.
+    private final int totalSteps;
+    private int completedSteps;
+    private volatile boolean cancelled;
+    private Future<?> future;
+
+    /**
+     * The work that processes the image, running every step with runStage.
+     * @param <T> - the type of the processed image.
+     */
+    interface Work<T> {
+        T run(ImageProcessingJob<T> job) throws Exception;
+    }
+
+    ImageProcessingJob(Handler mainHandler, int totalSteps) {
+        this.state = new MutableLiveData<>(ImageProcessingState.inProgress(ImageProcessingState.Stage.QUEUED, 0));
+        this.mainHandler = mainHandler;
+        this.timings = new EnumMap<>(ImageProcessingState.Stage.class);
+        this.totalSteps = totalSteps;
+    }
+
+    /**
+     * Submits the work to the executor.
+     * @param executor - the executor where the image is processed.
+     * @param work - the work that processes the image.
+     */
+    void start(ExecutorService executor, Work<T> work) {
+        future = executor.submit(() -> {
+            try {
+                T result = work.run(this);
+                throwIfCancelled();
+                Log.i(TAG, "start: image processed, timings " + timings);
+                publish(ImageProcessingState.done(result));
+            } catch (CancellationException e) {
+                Log.i(TAG, "start: image processing cancelled");
+            } catch (OutOfMemoryError e) {
+                Log.e(TAG, "start: not enough memory to process the image", e);
+                publish(ImageProcessingState.failed(new IllegalStateException("Not enough memory to process the image", e)));
+            } catch (Exception e) {
+                Log.e(TAG, "start: error processing the image, timings " + timings, e);
+                publish(ImageProcessingState.failed(e));
+            }
+        });
+    }
+
+    /**
+     * Runs a step of the processing, measuring the time it takes and publishing the progress.
+     * @param stage - the stage that the step belongs to.
+     * @param step - the step to run.
+     * @return the result of the step.
+     * @throws CancellationException if the job has been cancelled.
+     */
+    <R> R runStage(ImageProcessingState.Stage stage, Callable<R> step) throws Exception {
+        throwIfCancelled();
+        publish(ImageProcessingState.inProgress(stage, completedSteps * 100 / totalSteps));
+        long start = SystemClock.elapsedRealtime();
+        R result = step.call();
+        timings.merge(stage, SystemClock.elapsedRealtime() - start, Long::sum);
+        completedSteps++;
+        return result;
+    }
+
+    /**
+     * @return the observable state of the image, delivered on the main thread.
+     */
+    public LiveData<ImageProcessingState<T>> getState() {
+        return state;
+    }
+
+    /**
+     * Stops processing the image as soon as the current step ends, nothing else is delivered.
+     */
+    public void cancel() {
+        cancelled = true;
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    /**
+     * @return true if the job has been cancelled; false if not.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    private void throwIfCancelled() {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+    }
+
+    /**
+     * Delivers the state on the main thread, unless the job has been cancelled meanwhile.
+     */
+    private void publish(ImageProcessingState<T> newState) {
+        mainHandler.post(() -> {
+            if (!cancelled) {
+                state.setValue(newState);
+            }
+        });
+    }
+}
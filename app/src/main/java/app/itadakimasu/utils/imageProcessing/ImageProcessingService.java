@@ -0,0 +1,147 @@
+package app.itadakimasu.utils.imageProcessing;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import app.itadakimasu.data.model.EncodedImage;
+import app.itadakimasu.data.model.ImageVariant;
+import app.itadakimasu.utils.BlurHashUtils;
+import app.itadakimasu.utils.ImageCompressorUtils;
+
+/**
+ * Service that decodes, scales and compresses the images before they are uploaded, on background
+ * threads so the UI isn't frozen. Every image is processed as a job that can be observed and
+ * cancelled. The bitmaps are taken from and returned to Glide's bitmap pool, which is trimmed
+ * when the app runs low on memory.
+ */
+public class ImageProcessingService {
+    // The images are decoded with their full resolution, so only a few of them are processed at
+    // the same time to bound the memory used.
+    private static final int MAX_THREADS = 2;
+    // Time that an idle thread is kept alive.
+    private static final long KEEP_ALIVE_SECONDS = 30;
+    // Service's singleton
+    private static volatile ImageProcessingService INSTANCE;
+    private final Context context;
+    private final ThreadPoolExecutor executor;
+    private final Handler mainHandler;
+
+    /**
+     * Creates the singleton, it should be called when the app is created.
+     * @param context - app's context required to obtain the bitmap pool.
+     */
+    public static void init(Context context) {
+        if (INSTANCE == null) {
+            synchronized (ImageProcessingService.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new ImageProcessingService(context.getApplicationContext());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the service's singleton.
+     */
+    public static ImageProcessingService getInstance() {
+        if (INSTANCE == null) {
+            throw new IllegalStateException("ImageProcessingService.init must be called when the app is created");
+        }
+        return INSTANCE;
+    }
+
+    private ImageProcessingService(Context context) {
+        this.context = context;
+        this.executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        this.executor.allowCoreThreadTimeOut(true);
+        this.mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * Compresses an image scaled down to the maximum size, fitting in the byte budget.
+     * @param imagePath - the path of the image.
+     * @param maxBytes - the bytes that the compressed image should fit in.
+     * @return the job with the compressed image.
+     */
+    public ImageProcessingJob<EncodedImage> compressImage(String imagePath, float maxHeight, float maxWidth, int maxBytes) {
+        // A decode, the blurhash and an encode.
+        ImageProcessingJob<EncodedImage> job = new ImageProcessingJob<>(mainHandler, 3);
+        job.start(executor, currentJob -> {
+            BitmapPool pool = getBitmapPool();
+            Bitmap bitmap = currentJob.runStage(ImageProcessingState.Stage.DECODING,
+                    () -> ImageCompressorUtils.decodeScaledBitmap(imagePath, maxHeight, maxWidth, pool));
+            try {
+                String blurHash = currentJob.runStage(ImageProcessingState.Stage.ENCODING, () -> BlurHashUtils.encode(bitmap));
+                return currentJob.runStage(ImageProcessingState.Stage.ENCODING, () -> ImageCompressorUtils.encodeWithinBudget(bitmap, maxBytes, blurHash));
+            } finally {
+                pool.put(bitmap);
+            }
+        });
+        return job;
+    }
+
+    /**
+     * Compresses an image in every given size. The image is decoded once, for the biggest size,
+     * and the smaller sizes are scaled down from it.
+     * @param imagePath - the path of the image.
+     * @param variants - the sizes in which the image will be uploaded.
+     * @return the job with every size of the image, each one fitting in its byte budget.
+     */
+    public ImageProcessingJob<Map<ImageVariant, EncodedImage>> compressImageVariants(String imagePath, ImageVariant... variants) {
+        ImageVariant biggest = variants[0];
+        for (ImageVariant variant : variants) {
+            if (variant.getMaxWidth() * variant.getMaxHeight() > biggest.getMaxWidth() * biggest.getMaxHeight()) {
+                biggest = variant;
+            }
+        }
+        ImageVariant decodedVariant = biggest;
+
+        // A decode, the blurhash, and a scale and an encode for every size.
+        ImageProcessingJob<Map<ImageVariant, EncodedImage>> job = new ImageProcessingJob<>(mainHandler, 2 + variants.length * 2);
+        job.start(executor, currentJob -> {
+            BitmapPool pool = getBitmapPool();
+            Bitmap bitmap = currentJob.runStage(ImageProcessingState.Stage.DECODING,
+                    () -> ImageCompressorUtils.decodeScaledBitmap(imagePath, decodedVariant.getMaxHeight(), decodedVariant.getMaxWidth(), pool));
+            try {
+                // Every size has the same blurhash, so it's computed once from the decoded image.
+                String blurHash = currentJob.runStage(ImageProcessingState.Stage.ENCODING, () -> BlurHashUtils.encode(bitmap));
+                Map<ImageVariant, EncodedImage> images = new EnumMap<>(ImageVariant.class);
+                for (ImageVariant variant : variants) {
+                    Bitmap variantBitmap = currentJob.runStage(ImageProcessingState.Stage.SCALING,
+                            () -> ImageCompressorUtils.scaleToFit(bitmap, variant.getMaxHeight(), variant.getMaxWidth(), pool));
+                    try {
+                        images.put(variant, currentJob.runStage(ImageProcessingState.Stage.ENCODING,
+                                () -> ImageCompressorUtils.encodeWithinBudget(variantBitmap, variant.getMaxBytes(), blurHash)));
+                    } finally {
+                        if (variantBitmap != bitmap) {
+                            pool.put(variantBitmap);
+                        }
+                    }
+                }
+                return images;
+            } finally {
+                pool.put(bitmap);
+            }
+        });
+        return job;
+    }
+
+    /**
+     * @return Glide's bitmap pool, obtained from the background thread so Glide isn't initialized
+     * on the main thread.
+     */
+    private BitmapPool getBitmapPool() {
+        return Glide.get(context).getBitmapPool();
+    }
+}
@@ -0,0 +1,84 @@
+package app.itadakimasu.utils.imageProcessing;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * State of an image being processed: the stage it's in, its progress and, when it finishes, the
+ * processed image or the error.
+ * @param <T> - the type of the processed image.
+ */
+public class ImageProcessingState<T> {
+    public enum Stage {
+        QUEUED,
+        DECODING,
+        SCALING,
+        ENCODING,
+        DONE,
+        FAILED
+    }
+
+    private final Stage stage;
+    // Progress from 0 to 100.
+    private final int progress;
+    @Nullable
+    private final T result;
+    @Nullable
+    private final Exception error;
+
+    private ImageProcessingState(Stage stage, int progress, @Nullable T result, @Nullable Exception error) {
+        this.stage = stage;
+        this.progress = progress;
+        this.result = result;
+        this.error = error;
+    }
+
+    /**
+     * @param stage - the stage that the image is starting.
+     * @param progress - the progress from 0 to 100.
+     * @return the state of an image that is being processed.
+     */
+    static <T> ImageProcessingState<T> inProgress(Stage stage, int progress) {
+        return new ImageProcessingState<>(stage, progress, null, null);
+    }
+
+    /**
+     * @param result - the processed image.
+     * @return the state of a processed image.
+     */
+    static <T> ImageProcessingState<T> done(@NonNull T result) {
+        return new ImageProcessingState<>(Stage.DONE, 100, result, null);
+    }
+
+    /**
+     * @param error - the reason why the image couldn't be processed.
+     * @return the state of an image that couldn't be processed.
+     */
+    static <T> ImageProcessingState<T> failed(@NonNull Exception error) {
+        return new ImageProcessingState<>(Stage.FAILED, 100, null, error);
+    }
+
+    public Stage getStage() {
+        return stage;
+    }
+
+    public int getProgress() {
+        return progress;
+    }
+
+    /**
+     * @return the processed image, only when the stage is DONE.
+     */
+    @Nullable
+    public T getResult() {
+        return result;
+    }
+
+    /**
+     * @return the reason why the image couldn't be processed, only when the stage is FAILED.
+     */
+    @Nullable
+    public Exception getError() {
+        return error;
+    }
+}
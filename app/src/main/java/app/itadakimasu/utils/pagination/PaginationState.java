@@ -0,0 +1,95 @@
+package app.itadakimasu.utils.pagination;
+
+/**
+ * Pagination state shared by the screens that load their lists in pages.
+ * It keeps the cursor where the next page starts, if a page is being loaded and if the list reached
+ * its end. Only one load can be in flight, and every first page load starts a new generation, so the
+ * answers of older loads can be ignored.
+ * @param <C> - the type of the cursor.
+ */
+public class PaginationState<C> {
+    // Cursor that points to the last item loaded, the next page starts after it.
+    private C cursor;
+    // True while a page is being loaded.
+    private boolean loading;
+    // True when a page returned less items than the limit, so there are no more pages.
+    private boolean reachedEnd;
+    // Generation of the list, it changes every time the first page is loaded again.
+    private int generation;
+
+    /**
+     * Starts loading the first page, any load in flight becomes outdated.
+     * @return the generation of the load.
+     */
+    public int startFirstPage() {
+        generation++;
+        loading = true;
+        reachedEnd = false;
+        cursor = null;
+        return generation;
+    }
+
+    /**
+     * Starts loading the next page, unless a page is being loaded, the list reached its end or the
+     * first page hasn't been loaded.
+     * @return true if the load can start; false if not.
+     */
+    public boolean startNextPage() {
+        if (!canLoadMore()) {
+            return false;
+        }
+        loading = true;
+        return true;
+    }
+
+    /**
+     * Saves the state after receiving a page.
+     * @param lastItemCursor - the cursor of the page's last item, null if the page is empty.
+     * @param pageSize - the quantity of items received.
+     * @param limit - the quantity of items requested.
+     */
+    public void onPageLoaded(C lastItemCursor, int pageSize, int limit) {
+        if (lastItemCursor != null) {
+            cursor = lastItemCursor;
+        }
+        reachedEnd = pageSize < limit;
+    }
+
+    /**
+     * Ends the load in flight, after it succeeds or fails.
+     */
+    public void finishLoading() {
+        loading = false;
+    }
+
+    /**
+     * @param generation - the generation of a load.
+     * @return true if the load belongs to the current list; false if the list has been reloaded.
+     */
+    public boolean isCurrent(int generation) {
+        return this.generation == generation;
+    }
+
+    /**
+     * @return true if the next page can be loaded; false if not.
+     */
+    public boolean canLoadMore() {
+        return !loading && !reachedEnd && cursor != null;
+    }
+
+    public C getCursor() {
+        return cursor;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    public boolean isLoading() {
+        return loading;
+    }
+
+    public boolean hasReachedEnd() {
+        return reachedEnd;
+    }
+}
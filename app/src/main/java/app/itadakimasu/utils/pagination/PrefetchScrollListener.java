@@ -0,0 +1,68 @@
+package app.itadakimasu.utils.pagination;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Scroll listener that requests the next page when the user scrolls near the end of the list,
+ * before reaching it, so the page is usually loaded when the user gets there. It also requests it
+ * when a loaded page leaves the end of the list on the screen.
+ */
+public class PrefetchScrollListener extends RecyclerView.OnScrollListener {
+    // Default quantity of items left before the end of the list when the next page is requested.
+    public static final int DEFAULT_PREFETCH_DISTANCE = 3;
+
+    private final LinearLayoutManager layoutManager;
+    private final PaginationState<?> paginationState;
+    private final OnLoadMoreListener onLoadMoreListener;
+    private final int prefetchDistance;
+
+    /**
+     * Listener that loads the next page.
+     */
+    public interface OnLoadMoreListener {
+        void onLoadMore();
+    }
+
+    /**
+     * @param layoutManager - the recycler view's layout manager, used to know the last visible item.
+     * @param paginationState - the screen's pagination state, used to not request a page twice.
+     * @param onLoadMoreListener - loads the next page.
+     */
+    public PrefetchScrollListener(LinearLayoutManager layoutManager, PaginationState<?> paginationState, OnLoadMoreListener onLoadMoreListener) {
+        this(layoutManager, paginationState, onLoadMoreListener, DEFAULT_PREFETCH_DISTANCE);
+    }
+
+    /**
+     * @param layoutManager - the recycler view's layout manager, used to know the last visible item.
+     * @param paginationState - the screen's pagination state, used to not request a page twice.
+     * @param onLoadMoreListener - loads the next page.
+     * @param prefetchDistance - quantity of items left before the end when the next page is requested.
+     */
+    public PrefetchScrollListener(LinearLayoutManager layoutManager, PaginationState<?> paginationState,
+                                  OnLoadMoreListener onLoadMoreListener, int prefetchDistance) {
+        this.layoutManager = layoutManager;
+        this.paginationState = paginationState;
+        this.onLoadMoreListener = onLoadMoreListener;
+        this.prefetchDistance = prefetchDistance;
+    }
+
+    /**
+     * Called when the list is scrolled, and with dy 0 after a layout that changed the visible items,
+     * like the one after a page is added. So a page that doesn't fill the screen, where the list
+     * can't be scrolled, also requests the next one.
+     */
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        super.onScrolled(recyclerView, dx, dy);
+        // Not when scrolling up, away from the end of the list.
+        if (dy < 0 || !paginationState.canLoadMore()) {
+            return;
+        }
+        int lastVisiblePosition = layoutManager.findLastVisibleItemPosition();
+        if (lastVisiblePosition >= layoutManager.getItemCount() - 1 - prefetchDistance) {
+            onLoadMoreListener.onLoadMore();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package app.itadakimasu.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit test of the quality search that fits the encoded images in their byte budget. The
+ * encoder is faked, every quality point weighs a hundred bytes.
+ */
+public class ImageCompressorUtilsTest {
+    private static final int BYTES_PER_QUALITY = 100;
+
+    private final List<Integer> encodedQualities = new ArrayList<>();
+
+    private final ImageCompressorUtils.QualityEncoder encoder = (quality, outputStream) -> {
+        encodedQualities.add(quality);
+        outputStream.write(new byte[quality * BYTES_PER_QUALITY], 0, quality * BYTES_PER_QUALITY);
+    };
+
+    @Test
+    public void encodeBestQuality_fittingMaxQualityEncodesOnce() {
+        ImageCompressorUtils.QualityEncoding encoding = ImageCompressorUtils.encodeBestQuality(encoder,
+                ImageCompressorUtils.MAX_QUALITY * BYTES_PER_QUALITY);
+
+        assertEquals(ImageCompressorUtils.MAX_QUALITY, encoding.quality);
+        assertEquals(ImageCompressorUtils.MAX_QUALITY * BYTES_PER_QUALITY, encoding.data.length);
+        assertEquals(1, encodedQualities.size());
+    }
+
+    @Test
+    public void encodeBestQuality_findsAQualityWithinTheBudget() {
+        int maxBytes = 70 * BYTES_PER_QUALITY;
+        ImageCompressorUtils.QualityEncoding encoding = ImageCompressorUtils.encodeBestQuality(encoder, maxBytes);
+
+        assertTrue(encoding.data.length <= maxBytes);
+        assertEquals(encoding.quality * BYTES_PER_QUALITY, encoding.data.length);
+        assertTrue(encoding.quality > ImageCompressorUtils.MIN_QUALITY);
+        assertTrue(encodedQualities.size() <= ImageCompressorUtils.MAX_QUALITY_STEPS);
+    }
+
+    @Test
+    public void encodeBestQuality_stopsAfterTheMaximumSteps() {
+        ImageCompressorUtils.encodeBestQuality(encoder, 51 * BYTES_PER_QUALITY);
+
+        assertTrue(encodedQualities.size() <= ImageCompressorUtils.MAX_QUALITY_STEPS);
+    }
+
+    @Test
+    public void encodeBestQuality_tooSmallBudgetUsesTheMinQuality() {
+        ImageCompressorUtils.QualityEncoding encoding = ImageCompressorUtils.encodeBestQuality(encoder, BYTES_PER_QUALITY);
+
+        assertEquals(ImageCompressorUtils.MIN_QUALITY, encoding.quality);
+        assertEquals(ImageCompressorUtils.MIN_QUALITY * BYTES_PER_QUALITY, encoding.data.length);
+        assertEquals(ImageCompressorUtils.MIN_QUALITY, (int) encodedQualities.get(encodedQualities.size() - 1));
+    }
+}
@@ -0,0 +1,93 @@
+package app.itadakimasu.utils.pagination;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit test of the pagination state shared by the list screens.
+ */
+public class PaginationStateTest {
+    private static final int LIMIT = 10;
+    private PaginationState<String> pagination;
+
+    @Before
+    public void setUp() {
+        pagination = new PaginationState<>();
+    }
+
+    @Test
+    public void startFirstPage_makesOlderGenerationsStale() {
+        int oldGeneration = pagination.startFirstPage();
+        int newGeneration = pagination.startFirstPage();
+
+        assertFalse(pagination.isCurrent(oldGeneration));
+        assertTrue(pagination.isCurrent(newGeneration));
+    }
+
+    @Test
+    public void startNextPage_isRefusedBeforeTheFirstPage() {
+        assertFalse(pagination.startNextPage());
+    }
+
+    @Test
+    public void startNextPage_isRefusedWhileALoadIsInFlight() {
+        pagination.startFirstPage();
+        pagination.onPageLoaded("last", LIMIT, LIMIT);
+        pagination.finishLoading();
+
+        assertTrue(pagination.startNextPage());
+        assertFalse(pagination.startNextPage());
+
+        pagination.finishLoading();
+        assertTrue(pagination.startNextPage());
+    }
+
+    @Test
+    public void onPageLoaded_fullPageKeepsTheListOpen() {
+        pagination.startFirstPage();
+        pagination.onPageLoaded("last", LIMIT, LIMIT);
+        pagination.finishLoading();
+
+        assertFalse(pagination.hasReachedEnd());
+        assertEquals("last", pagination.getCursor());
+        assertTrue(pagination.canLoadMore());
+    }
+
+    @Test
+    public void onPageLoaded_shortPageEndsTheList() {
+        pagination.startFirstPage();
+        pagination.onPageLoaded("last", LIMIT - 1, LIMIT);
+        pagination.finishLoading();
+
+        assertTrue(pagination.hasReachedEnd());
+        assertFalse(pagination.startNextPage());
+    }
+
+    @Test
+    public void onPageLoaded_emptyPageKeepsTheCursor() {
+        pagination.startFirstPage();
+        pagination.onPageLoaded("last", LIMIT, LIMIT);
+        pagination.finishLoading();
+        pagination.startNextPage();
+        pagination.onPageLoaded(null, 0, LIMIT);
+        pagination.finishLoading();
+
+        assertEquals("last", pagination.getCursor());
+        assertTrue(pagination.hasReachedEnd());
+    }
+
+    @Test
+    public void startFirstPage_resetsTheEndAndTheCursor() {
+        pagination.startFirstPage();
+        pagination.onPageLoaded("last", 0, LIMIT);
+        pagination.finishLoading();
+
+        pagination.startFirstPage();
+
+        assertFalse(pagination.hasReachedEnd());
+        assertNull(pagination.getCursor());
+        assertTrue(pagination.isLoading());
+    }
+}